@@ -0,0 +1,64 @@
+package ru.practicum.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies in microseconds and status counts of one endpoint. Recording is wait-free so workers never contend.
+ */
+public final class EndpointStats {
+
+    /**
+     * Status recorded for requests that got no response: connection failures and timeouts.
+     */
+    public static final int NO_RESPONSE = -1;
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String endpoint;
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final LongAdder errors = new LongAdder();
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    private Histogram histogram;
+
+    public EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void record(long latencyNanos, int status, boolean success) {
+        recorder.recordValue(Math.max(1, latencyNanos / 1_000));
+        statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Returns everything recorded so far; call once recording has stopped.
+     */
+    public Histogram histogram() {
+        if (histogram == null) {
+            histogram = recorder.getIntervalHistogram();
+        }
+        return histogram;
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    public Map<Integer, Long> statuses() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        statuses.forEach((status, count) -> counts.put(status, count.sum()));
+        return counts;
+    }
+}
@@ -0,0 +1,61 @@
+package ru.practicum.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays recorded traffic against the main service and the stats server and reports throughput and latency
+ * percentiles per endpoint.
+ *
+ * <pre>
+ * --traffic=loadtest/traffic/sample.jsonl   recorded requests (.jsonl) or a Postman collection (.json)
+ * --start --database=h2|postgres            start both services from their packaged jars first
+ * --service-arg=--name=value                extra argument for both started services
+ * --main-url=... --stats-url=...            where the services listen, http://localhost:8080 and :9090
+ * --concurrency=16 --rate=0                 workers, and arrival rate per second (0 = closed loop)
+ * --warmup=10s --duration=60s --timeout=5s
+ * --label=local --output=loadtest/target/loadtest-result.json --compare=previous.json
+ * --var=name=value                          collection variables
+ * </pre>
+ */
+@Slf4j
+public final class LoadTest {
+
+    private LoadTest() {
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<TrafficRecord> records = new TrafficLoader(objectMapper).load(config.traffic(), config.variables());
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        try (ServiceLauncher launcher = new ServiceLauncher(config, httpClient)) {
+            if (config.start()) {
+                launcher.start();
+            }
+            ReplayRunner runner = new ReplayRunner(config, httpClient);
+            runner.setup(records);
+            Instant startedAt = Instant.now();
+            Map<String, EndpointStats> stats = runner.run(records);
+
+            LoadTestReport report = LoadTestReport.of(config, startedAt, stats);
+            report.print(System.out);
+            report.write(objectMapper, config.output());
+            log.info("Results written to {}", config.output().toAbsolutePath());
+            if (config.compare() != null) {
+                report.printComparison(LoadTestReport.read(objectMapper, config.compare()), System.out);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line options of a load-test run, given as {@code --name=value}; {@code --var=key=value} and
+ * {@code --service-arg=...} may repeat.
+ *
+ * <p>A positive {@code rate} replays an open workload at that many requests per second, with at most
+ * {@code concurrency} requests in flight; zero replays a closed workload of {@code concurrency} clients
+ * sending back to back.
+ */
+public record LoadTestConfig(Path traffic,
+                             URI mainUrl,
+                             URI statsUrl,
+                             boolean start,
+                             Database database,
+                             Path mainJar,
+                             Path statsJar,
+                             int concurrency,
+                             double rate,
+                             Duration duration,
+                             Duration warmup,
+                             Duration timeout,
+                             String label,
+                             Path output,
+                             Path compare,
+                             Map<String, String> variables,
+                             List<String> serviceArgs) {
+
+    private static final Set<String> KNOWN_OPTIONS = Set.of("main-url", "stats-url", "start", "database",
+            "main-jar", "stats-jar", "concurrency", "rate", "duration", "warmup", "timeout", "label", "output",
+            "compare");
+
+    public enum Database {
+        H2,
+        POSTGRES
+    }
+
+    public static LoadTestConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        Map<String, String> variables = new HashMap<>();
+        List<String> serviceArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String option = arg.substring(2);
+            int eq = option.indexOf('=');
+            String name = eq < 0 ? option : option.substring(0, eq);
+            String value = eq < 0 ? "true" : option.substring(eq + 1);
+            if (name.equals("var")) {
+                int sep = value.indexOf('=');
+                if (sep < 1) {
+                    throw new IllegalArgumentException("Expected --var=key=value but got: " + arg);
+                }
+                variables.put(value.substring(0, sep), value.substring(sep + 1));
+            } else if (name.equals("service-arg")) {
+                serviceArgs.add(value);
+            } else {
+                options.put(name, value);
+            }
+        }
+        String traffic = options.remove("traffic");
+        if (traffic == null) {
+            throw new IllegalArgumentException("--traffic=<file.jsonl|collection.json> is required");
+        }
+        LoadTestConfig config = new LoadTestConfig(
+                Path.of(traffic),
+                URI.create(options.getOrDefault("main-url", "http://localhost:8080")),
+                URI.create(options.getOrDefault("stats-url", "http://localhost:9090")),
+                Boolean.parseBoolean(options.getOrDefault("start", "false")),
+                Database.valueOf(options.getOrDefault("database", "h2").toUpperCase()),
+                Path.of(options.getOrDefault("main-jar", "main/target/main-0.0.1-SNAPSHOT.jar")),
+                Path.of(options.getOrDefault("stats-jar", "stats/stats-server/target/stats-server-0.0.1-SNAPSHOT.jar")),
+                Integer.parseInt(options.getOrDefault("concurrency", "16")),
+                Double.parseDouble(options.getOrDefault("rate", "0")),
+                parseDuration(options.getOrDefault("duration", "60s")),
+                parseDuration(options.getOrDefault("warmup", "10s")),
+                parseDuration(options.getOrDefault("timeout", "5s")),
+                options.getOrDefault("label", "local"),
+                Path.of(options.getOrDefault("output", "loadtest/target/loadtest-result.json")),
+                options.containsKey("compare") ? Path.of(options.get("compare")) : null,
+                Map.copyOf(variables),
+                List.copyOf(serviceArgs));
+        options.keySet().removeAll(KNOWN_OPTIONS);
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + options.keySet());
+        }
+        if (config.concurrency < 1 || config.rate < 0) {
+            throw new IllegalArgumentException("Concurrency must be positive and rate must not be negative");
+        }
+        return config;
+    }
+
+    /**
+     * Accepts {@code 500ms}, {@code 30s}, {@code 5m} or an ISO-8601 duration.
+     */
+    static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s") && !value.startsWith("P")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m") && !value.startsWith("P")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.parse(value);
+    }
+}
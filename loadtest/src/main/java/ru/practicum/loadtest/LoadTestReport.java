@@ -0,0 +1,154 @@
+package ru.practicum.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Throughput and latency percentiles per endpoint of one run, written as JSON so runs of different builds can be
+ * compared with {@code --compare}.
+ */
+public record LoadTestReport(String label,
+                             String startedAt,
+                             String traffic,
+                             String database,
+                             String model,
+                             int concurrency,
+                             double rate,
+                             long warmupSeconds,
+                             long durationSeconds,
+                             EndpointResult total,
+                             List<EndpointResult> endpoints) {
+
+    public record EndpointResult(String endpoint,
+                                 long requests,
+                                 long errors,
+                                 double throughput,
+                                 Latency latencyMs,
+                                 Map<String, Long> statuses) {
+    }
+
+    public record Latency(double mean, double p50, double p90, double p99, double p999, double max) {
+
+        static Latency of(Histogram micros) {
+            return new Latency(
+                    micros.getMean() / 1_000,
+                    micros.getValueAtPercentile(50) / 1_000.0,
+                    micros.getValueAtPercentile(90) / 1_000.0,
+                    micros.getValueAtPercentile(99) / 1_000.0,
+                    micros.getValueAtPercentile(99.9) / 1_000.0,
+                    micros.getMaxValue() / 1_000.0);
+        }
+    }
+
+    public static LoadTestReport of(LoadTestConfig config, Instant startedAt, Map<String, EndpointStats> stats) {
+        double seconds = config.duration().toMillis() / 1_000.0;
+        Histogram all = new Histogram(3);
+        Map<String, Long> allStatuses = new LinkedHashMap<>();
+        long allErrors = 0;
+        List<EndpointResult> endpoints = new ArrayList<>();
+        for (EndpointStats endpoint : stats.values()) {
+            Histogram histogram = endpoint.histogram();
+            all.add(histogram);
+            allErrors += endpoint.errors();
+            Map<String, Long> statuses = statusNames(endpoint.statuses());
+            statuses.forEach((status, count) -> allStatuses.merge(status, count, Long::sum));
+            endpoints.add(result(endpoint.getEndpoint(), histogram, endpoint.errors(), statuses, seconds));
+        }
+        endpoints.sort(Comparator.comparingLong(EndpointResult::requests).reversed()
+                .thenComparing(EndpointResult::endpoint));
+        return new LoadTestReport(
+                config.label(),
+                startedAt.toString(),
+                config.traffic().toString(),
+                config.start() ? config.database().name().toLowerCase() : "external",
+                config.rate() > 0 ? "open" : "closed",
+                config.concurrency(),
+                config.rate(),
+                config.warmup().toSeconds(),
+                config.duration().toSeconds(),
+                result("total", all, allErrors, allStatuses, seconds),
+                endpoints);
+    }
+
+    public static LoadTestReport read(ObjectMapper objectMapper, Path file) throws IOException {
+        return objectMapper.readValue(file.toFile(), LoadTestReport.class);
+    }
+
+    public void write(ObjectMapper objectMapper, Path file) throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), this);
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%nRun '%s': %s model, %d workers%s, %ds measured after %ds warmup, database %s%n", label, model,
+                concurrency, rate > 0 ? " at " + rate + " requests/s" : "", durationSeconds, warmupSeconds, database);
+        out.printf("%-48s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (EndpointResult result : endpoints) {
+            printRow(out, result);
+        }
+        printRow(out, total);
+    }
+
+    /**
+     * Prints throughput and p99 of this run relative to {@code baseline} for endpoints present in both.
+     */
+    public void printComparison(LoadTestReport baseline, PrintStream out) {
+        Map<String, EndpointResult> before = baseline.endpoints.stream()
+                .collect(Collectors.toMap(EndpointResult::endpoint, Function.identity()));
+        before.put(baseline.total.endpoint(), baseline.total);
+        out.printf("%nCompared with '%s' (%s)%n", baseline.label, baseline.startedAt);
+        out.printf("%-48s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "req/s", "was", "change", "p99 ms", "was", "change");
+        List<EndpointResult> current = new ArrayList<>(endpoints);
+        current.add(total);
+        for (EndpointResult result : current) {
+            EndpointResult previous = before.get(result.endpoint());
+            if (previous == null) {
+                continue;
+            }
+            out.printf("%-48s %9.1f %9.1f %9s %9.2f %9.2f %9s%n", result.endpoint(),
+                    result.throughput(), previous.throughput(), change(result.throughput(), previous.throughput()),
+                    result.latencyMs().p99(), previous.latencyMs().p99(),
+                    change(result.latencyMs().p99(), previous.latencyMs().p99()));
+        }
+    }
+
+    private static EndpointResult result(String endpoint, Histogram histogram, long errors,
+                                         Map<String, Long> statuses, double seconds) {
+        long requests = histogram.getTotalCount();
+        return new EndpointResult(endpoint, requests, errors, requests / seconds, Latency.of(histogram), statuses);
+    }
+
+    private static Map<String, Long> statusNames(Map<Integer, Long> statuses) {
+        Map<String, Long> named = new LinkedHashMap<>();
+        statuses.forEach((status, count) ->
+                named.put(status == EndpointStats.NO_RESPONSE ? "no-response" : status.toString(), count));
+        return named;
+    }
+
+    private static void printRow(PrintStream out, EndpointResult result) {
+        out.printf("%-48s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", result.endpoint(), result.requests(),
+                result.errors(), result.throughput(), result.latencyMs().p50(), result.latencyMs().p99(),
+                result.latencyMs().p999(), result.latencyMs().max());
+    }
+
+    private static String change(double current, double previous) {
+        return previous == 0 ? "n/a" : String.format("%+.1f%%", (current - previous) * 100 / previous);
+    }
+}
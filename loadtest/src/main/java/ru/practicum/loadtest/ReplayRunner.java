@@ -0,0 +1,131 @@
+package ru.practicum.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays recorded requests in order, round robin, for the warmup plus the measured duration.
+ *
+ * <p>With a fixed arrival rate request {@code i} is due at {@code start + i / rate} and its latency is measured from
+ * that moment, so time spent waiting for a free worker while the services fall behind is counted instead of hidden.
+ * Without a rate every worker sends back to back and latency is the response time alone.
+ */
+@Slf4j
+public final class ReplayRunner {
+
+    private final LoadTestConfig config;
+    private final HttpClient httpClient;
+    private final long seqBase = System.currentTimeMillis() * 1_000;
+
+    public ReplayRunner(LoadTestConfig config, HttpClient httpClient) {
+        this.config = config;
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Sends the setup requests once and in order; failures are logged since later requests may still succeed.
+     */
+    public void setup(List<TrafficRecord> records) {
+        long seq = 0;
+        for (TrafficRecord record : records) {
+            if (record.setup()) {
+                int status = send(record, seqBase - ++seq);
+                if (!record.isSuccess(status)) {
+                    log.warn("Setup request {} {} returned {}", record.method(), record.path(), status);
+                }
+            }
+        }
+    }
+
+    public Map<String, EndpointStats> run(List<TrafficRecord> records) throws InterruptedException {
+        List<TrafficRecord> replay = records.stream().filter(record -> !record.setup()).toList();
+        Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+        for (TrafficRecord record : replay) {
+            stats.computeIfAbsent(record.endpoint(), EndpointStats::new);
+        }
+        long intervalNanos = config.rate() > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / config.rate()) : 0;
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+        AtomicLong next = new AtomicLong();
+
+        log.info("Replaying {} requests for {} after {} warmup, {} workers, {}", replay.size(), config.duration(),
+                config.warmup(), config.concurrency(),
+                intervalNanos > 0 ? config.rate() + " requests/s" : "closed loop");
+        ExecutorService workers = Executors.newFixedThreadPool(config.concurrency());
+        for (int w = 0; w < config.concurrency(); w++) {
+            workers.execute(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long i = next.getAndIncrement();
+                    long intended;
+                    if (intervalNanos > 0) {
+                        intended = start + i * intervalNanos;
+                        if (intended >= end) {
+                            return;
+                        }
+                        parkUntil(intended);
+                    } else {
+                        intended = System.nanoTime();
+                        if (intended >= end) {
+                            return;
+                        }
+                    }
+                    TrafficRecord record = replay.get((int) (i % replay.size()));
+                    int status = send(record, seqBase + i);
+                    if (intended >= measureFrom) {
+                        stats.get(record.endpoint()).record(System.nanoTime() - intended, status,
+                                record.isSuccess(status));
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        long grace = config.timeout().toNanos() + TimeUnit.SECONDS.toNanos(5);
+        if (!workers.awaitTermination(end - System.nanoTime() + grace, TimeUnit.NANOSECONDS)) {
+            workers.shutdownNow();
+            log.warn("Workers did not finish in time, in-flight requests were not recorded");
+        }
+        return stats;
+    }
+
+    private int send(TrafficRecord record, long seq) {
+        String path = record.path().replace(TrafficRecord.SEQ, Long.toString(seq));
+        URI base = record.service().equals("stats") ? config.statsUrl() : config.mainUrl();
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path)).timeout(config.timeout());
+        if (record.body() == null) {
+            request.method(record.method(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/json").method(record.method(),
+                    HttpRequest.BodyPublishers.ofString(record.body().replace(TrafficRecord.SEQ, Long.toString(seq))));
+        }
+        try {
+            return httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            log.debug("{} {} failed: {}", record.method(), path, e.getMessage());
+            return EndpointStats.NO_RESPONSE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EndpointStats.NO_RESPONSE;
+        }
+    }
+
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.practicum.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.h2.Driver;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the stats server and the main service from their packaged jars and stops them when closed.
+ *
+ * <p>Against H2 both run with the {@code test} profile, and the H2 driver of this module is handed to them through
+ * {@code loader.path} because the packaged jars only carry it for tests. Against Postgres they use their default
+ * datasources. {@code --service-arg} values are passed to both, e.g.
+ * {@code --service-arg=--spring.threads.virtual.enabled=true}. Output goes to {@code <name>.log} next to the result
+ * file.
+ */
+@Slf4j
+public final class ServiceLauncher implements AutoCloseable {
+
+    private static final String PROPERTIES_LAUNCHER = "org.springframework.boot.loader.launch.PropertiesLauncher";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final LoadTestConfig config;
+    private final HttpClient httpClient;
+    private final List<Process> processes = new ArrayList<>();
+
+    public ServiceLauncher(LoadTestConfig config, HttpClient httpClient) {
+        this.config = config;
+        this.httpClient = httpClient;
+    }
+
+    public void start() throws IOException, InterruptedException {
+        start("stats", config.statsJar(), config.statsUrl(), List.of());
+        start("main", config.mainJar(), config.mainUrl(), List.of("--stats-server.url=" + config.statsUrl()));
+    }
+
+    private void start(String name, Path jar, URI url, List<String> extraArgs)
+            throws IOException, InterruptedException {
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException(jar + " not found, package the services first: mvn -B package -DskipTests");
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (config.database() == LoadTestConfig.Database.H2) {
+            command.add("-Dloader.path=" + h2Jar());
+            command.add("-cp");
+            command.add(jar.toString());
+            command.add(PROPERTIES_LAUNCHER);
+            command.add("--spring.profiles.active=test");
+        } else {
+            command.add("-jar");
+            command.add(jar.toString());
+        }
+        command.add("--server.port=" + url.getPort());
+        command.add("--logging.level.org.hibernate.SQL=WARN");
+        command.add("--logging.level.org.hibernate.type=WARN");
+        command.addAll(extraArgs);
+        command.addAll(config.serviceArgs());
+
+        Path logFile = config.output().toAbsolutePath().resolveSibling(name + ".log");
+        Files.createDirectories(logFile.getParent());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start();
+        processes.add(process);
+        log.info("Starting {} on {} with {}, output in {}", name, url, config.database(), logFile);
+        awaitHealthy(name, process, url.resolve("/actuator/health"), logFile);
+    }
+
+    private void awaitHealthy(String name, Process process, URI health, Path logFile) throws InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " exited with " + process.exitValue() + ", see " + logFile);
+            }
+            try {
+                HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(health).GET().build(),
+                        HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    log.info("{} is up", name);
+                    return;
+                }
+            } catch (IOException e) {
+                log.debug("{} is not up yet: {}", name, e.getMessage());
+            }
+            TimeUnit.MILLISECONDS.sleep(500);
+        }
+        throw new IllegalStateException(name + " did not become healthy within " + STARTUP_TIMEOUT + ", see " + logFile);
+    }
+
+    private static String h2Jar() {
+        try {
+            return Path.of(Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Cannot locate the H2 driver jar", e);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (int i = processes.size() - 1; i >= 0; i--) {
+            Process process = processes.get(i);
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
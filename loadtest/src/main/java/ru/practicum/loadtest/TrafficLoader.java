@@ -0,0 +1,164 @@
+package ru.practicum.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads recorded traffic from a {@code .jsonl} file with one request object per line, or from a Postman v2.1
+ * collection.
+ *
+ * <p>Collection requests are resolved against the collection variables and {@code --var} values; requests that
+ * still reference unknown variables are skipped. Their writes are sent once as setup and their reads are replayed,
+ * since replaying the state transitions of a functional collection mostly produces errors.
+ */
+@Slf4j
+public final class TrafficLoader {
+
+    private static final Pattern VARIABLE = Pattern.compile("\\{\\{([^}]+)}}");
+    private static final Pattern EXPECTED_STATUS = Pattern.compile("have\\.status\\((\\d{3})\\)");
+    private static final String DYNAMIC_TEXT = "Load test text number " + TrafficRecord.SEQ + " long enough to pass";
+
+    private final ObjectMapper objectMapper;
+
+    public TrafficLoader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public List<TrafficRecord> load(Path file, Map<String, String> variables) throws IOException {
+        List<TrafficRecord> records = file.getFileName().toString().endsWith(".jsonl")
+                ? loadJsonLines(file)
+                : loadCollection(file, variables);
+        if (records.stream().noneMatch(record -> !record.setup())) {
+            throw new IllegalArgumentException("No replayable requests in " + file);
+        }
+        return records;
+    }
+
+    private List<TrafficRecord> loadJsonLines(Path file) throws IOException {
+        List<TrafficRecord> records = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node = objectMapper.readTree(line);
+                if (!node.hasNonNull("path")) {
+                    throw new IllegalArgumentException(file + ":" + lineNumber + " has no path");
+                }
+                records.add(new TrafficRecord(
+                        node.path("service").asText("main"),
+                        node.path("method").asText("GET").toUpperCase(),
+                        node.get("path").asText(),
+                        body(node.get("body")),
+                        node.hasNonNull("name") ? node.get("name").asText() : null,
+                        node.path("setup").asBoolean(false),
+                        node.hasNonNull("expect") ? node.get("expect").asInt() : null));
+            }
+        }
+        return records;
+    }
+
+    private List<TrafficRecord> loadCollection(Path file, Map<String, String> overrides) throws IOException {
+        JsonNode collection = objectMapper.readTree(file.toFile());
+        Map<String, String> variables = new HashMap<>();
+        for (JsonNode variable : collection.path("variable")) {
+            if (!variable.path("value").asText().isEmpty()) {
+                variables.put(variable.path("key").asText(), variable.path("value").asText());
+            }
+        }
+        variables.putAll(overrides);
+        variables.putIfAbsent("baseUrl", "");
+        List<TrafficRecord> records = new ArrayList<>();
+        int[] skipped = new int[1];
+        collectItems(collection.path("item"), variables, records, skipped);
+        if (skipped[0] > 0) {
+            log.warn("Skipped {} collection requests with unresolved variables, pass them with --var=name=value",
+                    skipped[0]);
+        }
+        return records;
+    }
+
+    private void collectItems(JsonNode items, Map<String, String> variables, List<TrafficRecord> records,
+                              int[] skipped) {
+        for (JsonNode item : items) {
+            if (item.has("item")) {
+                collectItems(item.get("item"), variables, records, skipped);
+                continue;
+            }
+            JsonNode request = item.path("request");
+            JsonNode url = request.path("url");
+            String path = resolve(url.isTextual() ? url.asText() : url.path("raw").asText(), variables);
+            String body = request.path("body").hasNonNull("raw")
+                    ? resolve(request.path("body").path("raw").asText(), variables)
+                    : null;
+            if (path == null || (request.path("body").hasNonNull("raw") && body == null)) {
+                skipped[0]++;
+                continue;
+            }
+            String method = request.path("method").asText("GET").toUpperCase();
+            records.add(new TrafficRecord("main", method, stripHost(path), body == null || body.isBlank() ? null : body,
+                    null, !method.equals("GET"), expectedStatus(item)));
+        }
+    }
+
+    /**
+     * Substitutes variables and dynamic {@code {{$...}}} values, or returns {@code null} if any stay unresolved.
+     */
+    private static String resolve(String text, Map<String, String> variables) {
+        Matcher matcher = VARIABLE.matcher(text);
+        StringBuilder resolved = new StringBuilder();
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            String value = name.startsWith("$") ? DYNAMIC_TEXT : variables.get(name);
+            if (value == null && !matcher.group().equals(TrafficRecord.SEQ)) {
+                return null;
+            }
+            matcher.appendReplacement(resolved, Matcher.quoteReplacement(value == null ? matcher.group() : value));
+        }
+        matcher.appendTail(resolved);
+        return resolved.toString();
+    }
+
+    private static String stripHost(String url) {
+        int scheme = url.indexOf("://");
+        if (scheme < 0) {
+            return url.startsWith("/") ? url : "/" + url;
+        }
+        int path = url.indexOf('/', scheme + 3);
+        return path < 0 ? "/" : url.substring(path);
+    }
+
+    private static Integer expectedStatus(JsonNode item) {
+        for (JsonNode event : item.path("event")) {
+            if (event.path("listen").asText().equals("test")) {
+                Matcher matcher = EXPECTED_STATUS.matcher(event.path("script").path("exec").toString());
+                if (matcher.find()) {
+                    return Integer.parseInt(matcher.group(1));
+                }
+            }
+        }
+        return null;
+    }
+
+    private String body(JsonNode body) throws IOException {
+        if (body == null || body.isNull()) {
+            return null;
+        }
+        return body.isTextual() ? body.asText() : objectMapper.writeValueAsString(body);
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.loadtest;
+
+/**
+ * One recorded request. {@code path} and {@code body} may contain {@code {{seq}}}, replaced by a number unique
+ * to every send so that replayed creates do not collide.
+ *
+ * @param service  {@code main} or {@code stats}, picks the base url
+ * @param name     endpoint the request is reported under; derived from method and path when absent
+ * @param setup    sent once, in order, before the measured replay starts
+ * @param expect   expected status code; any 2xx or 3xx counts as success when absent
+ */
+public record TrafficRecord(String service,
+                            String method,
+                            String path,
+                            String body,
+                            String name,
+                            boolean setup,
+                            Integer expect) {
+
+    public static final String SEQ = "{{seq}}";
+
+    public String endpoint() {
+        if (name != null) {
+            return name;
+        }
+        int query = path.indexOf('?');
+        String route = query < 0 ? path : path.substring(0, query);
+        StringBuilder endpoint = new StringBuilder(service).append(' ').append(method).append(' ');
+        for (String segment : route.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            endpoint.append('/').append(segment.chars().allMatch(Character::isDigit) || segment.equals(SEQ)
+                    ? "{id}"
+                    : segment);
+        }
+        return endpoint.toString();
+    }
+
+    public boolean isSuccess(int status) {
+        return expect == null ? status >= 200 && status < 400 : status == expect;
+    }
+}
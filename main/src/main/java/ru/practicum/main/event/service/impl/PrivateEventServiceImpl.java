@@ -1,7 +1,6 @@
 package ru.practicum.main.event.service.impl;
 
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -9,7 +8,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.main.category.entity.Category;
 import ru.practicum.main.category.repository.CategoryRepository;
 import ru.practicum.main.event.dto.EventFullDto;
@@ -38,9 +39,11 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Writes run in their own transactions; reads load and map events in a short read-only transaction and ask the
+ * stats server for views after it has ended, as in {@link PublicEventServiceImpl}.
+ */
 @Service
-@RequiredArgsConstructor
-@Transactional(readOnly = true)
 @Slf4j
 public class PrivateEventServiceImpl implements PrivateEventService {
 
@@ -50,6 +53,24 @@ public class PrivateEventServiceImpl implements PrivateEventService {
     private final UserRepository userRepository;
     private final HitLoggingService hitLoggingService;
     private final EventViewService eventViewService;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public PrivateEventServiceImpl(EventRepository eventRepository,
+                                   CategoryRepository categoryRepository,
+                                   EventMapper mapper,
+                                   UserRepository userRepository,
+                                   HitLoggingService hitLoggingService,
+                                   EventViewService eventViewService,
+                                   PlatformTransactionManager transactionManager) {
+        this.eventRepository = eventRepository;
+        this.categoryRepository = categoryRepository;
+        this.mapper = mapper;
+        this.userRepository = userRepository;
+        this.hitLoggingService = hitLoggingService;
+        this.eventViewService = eventViewService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
 
     @Override
     @Transactional
@@ -98,30 +119,42 @@ public class PrivateEventServiceImpl implements PrivateEventService {
 
     @Override
     public EventFullDto getUserEvent(Long userId, Long eventId, HttpServletRequest request) {
-        getUserOrThrow(userId);
-        Event event = getEventWithPublishedCommentsOrThrow(eventId);
-        checkOwnership(event, userId);
+        Loaded<EventFullDto> loaded = readOnlyTransaction.execute(status -> {
+            getUserOrThrow(userId);
+            Event event = getEventWithPublishedCommentsOrThrow(eventId);
+            checkOwnership(event, userId);
+            return new Loaded<>(List.of(event), toFullDtoWithPublishedComments(event));
+        });
 
         logRequest(request);
 
-        Map<Long, Long> views = eventViewService.getViewsForEvents(List.of(event));
-        return enrichEventDtoWithComments(event, views);
+        Map<Long, Long> views = eventViewService.getViewsForEvents(loaded.events());
+        EventFullDto dto = loaded.dto();
+        dto.setViews(views.getOrDefault(eventId, 0L));
+        return dto;
     }
 
     @Override
     public List<EventFullDto> getUserEvents(PrivateEventParams params) {
-        getUserOrThrow(params.getUserId());
         Pageable pageable = buildPageable(params);
         Specification<Event> spec = buildSpecification(params.getUserId(), params.getStates());
-
-        Page<Event> evetsPage = eventRepository.findAll(spec, pageable);
-
-        return mapToFullDtoWithViews(evetsPage.getContent());
+        Loaded<List<EventFullDto>> loaded = readOnlyTransaction.execute(status -> {
+            getUserOrThrow(params.getUserId());
+            Page<Event> evetsPage = eventRepository.findAll(spec, pageable);
+            List<Event> events = evetsPage.getContent();
+            return new Loaded<>(events, events.stream()
+                    .map(this::toFullDto)
+                    .toList());
+        });
+
+        Map<Long, Long> views = eventViewService.getViewsForEvents(loaded.events());
+        List<EventFullDto> dto = loaded.dto();
+        dto.forEach(event -> event.setViews(views.getOrDefault(event.getId(), 0L)));
+        return dto;
     }
 
-    private EventFullDto enrichEventDtoWithComments(Event event, Map<Long, Long> views) {
+    private EventFullDto toFullDtoWithPublishedComments(Event event) {
         EventFullDto dto = mapper.toFullDtoWithPublishedComments(event);
-        dto.setViews(views.getOrDefault(event.getId(), 0L));
         dto.setConfirmedRequests(
                 event.getRequests() == null ? 0L :
                         event.getRequests().stream()
@@ -240,16 +273,8 @@ public class PrivateEventServiceImpl implements PrivateEventService {
                 .getOrDefault(event.getId(), 0L);
     }
 
-    private List<EventFullDto> mapToFullDtoWithViews(List<Event> events) {
-        Map<Long, Long> views = eventViewService.getViewsForEvents(events);
-        return events.stream()
-                .map(e -> enrichEventDto(e, views))
-                .toList();
-    }
-
-    private EventFullDto enrichEventDto(Event event, Map<Long, Long> views) {
+    private EventFullDto toFullDto(Event event) {
         EventFullDto dto = mapper.toFullDto(event);
-        dto.setViews(views.getOrDefault(event.getId(), 0L));
         dto.setConfirmedRequests(
                 event.getRequests() == null ? 0L :
                         event.getRequests().stream()
@@ -258,4 +283,11 @@ public class PrivateEventServiceImpl implements PrivateEventService {
         );
         return dto;
     }
+
+    /**
+     * What a read-only transaction hands back: the loaded events, for asking the stats server about views once it
+     * has ended, and their mapped DTOs.
+     */
+    private record Loaded<T>(List<Event> events, T dto) {
+    }
 }
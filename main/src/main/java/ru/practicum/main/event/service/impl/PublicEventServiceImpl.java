@@ -1,13 +1,13 @@
 package ru.practicum.main.event.service.impl;
 
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import ru.practicum.main.event.dto.EventFullDto;
 import ru.practicum.main.event.dto.EventShortDto;
@@ -28,9 +28,11 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Reads and maps events in a short read-only transaction and calls the stats server after it has ended, so a
+ * database connection is never held while waiting on the network.
+ */
 @Service
-@RequiredArgsConstructor
-@Transactional(readOnly = true)
 @Slf4j
 public class PublicEventServiceImpl implements PublicEventService {
 
@@ -38,15 +40,31 @@ public class PublicEventServiceImpl implements PublicEventService {
     private final EventMapper mapper;
     private final HitLoggingService hitLoggingService;
     private final EventViewService eventViewService;
-
+    private final TransactionTemplate readOnlyTransaction;
+
+    public PublicEventServiceImpl(EventRepository eventRepository,
+                                  EventMapper mapper,
+                                  HitLoggingService hitLoggingService,
+                                  EventViewService eventViewService,
+                                  PlatformTransactionManager transactionManager) {
+        this.eventRepository = eventRepository;
+        this.mapper = mapper;
+        this.hitLoggingService = hitLoggingService;
+        this.eventViewService = eventViewService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
 
     @Override
     public List<EventShortDto> getEvents(PublicEventParams params, HttpServletRequest request) {
         validateDateRange(params);
-        List<Event> events = findEvents(params);
-        Map<Long, Long> views = eventViewService.getViewsForEvents(events);
-
-        List<EventShortDto> dto = mapToDto(events, views);
+        Loaded<List<EventShortDto>> loaded = readOnlyTransaction.execute(status -> {
+            List<Event> events = findEvents(params);
+            return new Loaded<>(events, mapToDto(events));
+        });
+        Map<Long, Long> views = eventViewService.getViewsForEvents(loaded.events());
+        List<EventShortDto> dto = loaded.dto();
+        dto.forEach(event -> event.setViews(views.getOrDefault(event.getId(), 0L)));
 
         logRequest(request);
         return sortDto(dto, params.getSort());
@@ -54,17 +72,21 @@ public class PublicEventServiceImpl implements PublicEventService {
 
     @Override
     public EventFullDto getEventById(Long eventId, HttpServletRequest request) {
-        Event event = getEventOrThrowWithPublishedComments(eventId);
-
-        if (event.getState() != EventState.PUBLISHED) {
-            log.warn("Event with id={} not found", event.getId());
-            throw new EntityNotFoundException("Event " + event + " not found");
-        }
+        Loaded<EventFullDto> loaded = readOnlyTransaction.execute(status -> {
+            Event event = getEventOrThrowWithPublishedComments(eventId);
+            if (event.getState() != EventState.PUBLISHED) {
+                log.warn("Event with id={} not found", eventId);
+                throw new EntityNotFoundException("Event " + event + " not found");
+            }
+            return new Loaded<>(List.of(event), toFullDtoWithPublishedComments(event));
+        });
 
         logRequest(request);
 
-        Map<Long, Long> views = eventViewService.getViewsForEvents(List.of(event));
-        return enrichEventDtoWithPublishedComments(event, views);
+        Map<Long, Long> views = eventViewService.getViewsForEvents(loaded.events());
+        EventFullDto dto = loaded.dto();
+        dto.setViews(views.getOrDefault(eventId, 0L));
+        return dto;
     }
 
     private Event getEventOrThrowWithPublishedComments(Long id) {
@@ -96,19 +118,14 @@ public class PublicEventServiceImpl implements PublicEventService {
                 .and(PublicEventSpecifications.onlyAvailable(params.getOnlyAvailable()));
     }
 
-    private List<EventShortDto> mapToDto(List<Event> events, Map<Long, Long> views) {
+    private List<EventShortDto> mapToDto(List<Event> events) {
         return events.stream()
-                .map(event -> {
-                    EventShortDto dto = mapper.toShortDto(event);
-                    dto.setViews(views.getOrDefault(event.getId(), 0L));
-                    return dto;
-                })
+                .map(mapper::toShortDto)
                 .toList();
     }
 
-    private EventFullDto enrichEventDtoWithPublishedComments(Event event, Map<Long, Long> views) {
+    private EventFullDto toFullDtoWithPublishedComments(Event event) {
         EventFullDto dto = mapper.toFullDtoWithPublishedComments(event);
-        dto.setViews(views.getOrDefault(event.getId(), 0L));
         dto.setConfirmedRequests(
                 event.getRequests() == null ? 0L :
                         event.getRequests().stream()
@@ -138,4 +155,10 @@ public class PublicEventServiceImpl implements PublicEventService {
                 .toList();
     }
 
+    /**
+     * What a read-only transaction hands back: the loaded events, for asking the stats server about views once it
+     * has ended, and their mapped DTOs.
+     */
+    private record Loaded<T>(List<Event> events, T dto) {
+    }
 }
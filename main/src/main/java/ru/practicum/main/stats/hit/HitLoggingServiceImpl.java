@@ -3,7 +3,9 @@ package ru.practicum.main.stats.hit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import ru.practicum.StatsClient;
 import ru.practicum.stats.dto.EndpointHitCreateDto;
 
@@ -27,6 +29,11 @@ public class HitLoggingServiceImpl implements HitLoggingService {
                 ip,
                 LocalDateTime.now()
         );
-        statsClient.sendHit(hit);
+        try {
+            statsClient.sendHit(hit);
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            log.warn("Stats server shed hit uri={}, retry after {}s", uri,
+                    e.getResponseHeaders() == null ? null : e.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        }
     }
 }
@@ -4,12 +4,12 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.practicum.StatsClient;
 import ru.practicum.main.event.entity.Event;
-import ru.practicum.stats.dto.ViewStats;
+import ru.practicum.stats.dto.StatsQueryWindowDto;
+import ru.practicum.stats.dto.ViewStatsWindow;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,27 +23,17 @@ public class EventViewServiceImpl implements EventViewService {
             return Map.of();
         }
 
-        List<String> uris = events.stream()
-                .map(e -> "/events/" + e.getId())
+        LocalDateTime now = LocalDateTime.now();
+        List<StatsQueryWindowDto> windows = events.stream()
+                .filter(e -> e.getPublishedOn() != null && !e.getPublishedOn().isAfter(now))
+                .map(e -> new StatsQueryWindowDto("/events/" + e.getId(), e.getPublishedOn(), now, true))
                 .toList();
 
-        LocalDateTime start = events.stream()
-                .map(Event::getPublishedOn)
-                .filter(Objects::nonNull)
-                .min(LocalDateTime::compareTo)
-                .orElse(LocalDateTime.now());
-
-        List<ViewStats> stats = statsClient.getStats(
-                start,
-                LocalDateTime.now(),
-                uris,
-                true
-        );
-
-        return stats.stream()
+        return statsClient.queryWindows(windows).stream()
                 .collect(Collectors.toMap(
-                        s -> Long.parseLong(s.getUri().replace("/events/", "")),
-                        ViewStats::getHits
+                        w -> Long.parseLong(w.getUri().replace("/events/", "")),
+                        ViewStatsWindow::getHits,
+                        (first, duplicate) -> first
                 ));
     }
 }
@@ -0,0 +1,75 @@
+package ru.practicum.stats.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.service.ingest.DuplicateHitFilter;
+import ru.practicum.stats.service.metrics.StatsMetrics;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-hit cost of the ingest deduplication stage for batches where {@code duplicates} percent repeat a hit
+ * of the same batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DuplicateHitFilterBenchmark {
+
+    private static final int BATCH = 500;
+
+    @Param({"0", "50"})
+    private int duplicates;
+
+    private DuplicateHitFilter filter;
+    private List<EndpointHit> batch;
+    private int round;
+
+    @Setup
+    public void setUp() {
+        filter = new DuplicateHitFilter(new StatsMetrics(new SimpleMeterRegistry(), "direct"),
+                Duration.ofSeconds(10), 100_000);
+        batch = new ArrayList<>(BATCH);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < BATCH; i++) {
+            int visitor = i * 100 < BATCH * duplicates ? i / 2 : i;
+            batch.add(EndpointHit.builder()
+                    .app("ewm-main-service")
+                    .uri("/events/" + (visitor % 50))
+                    .ip(IpAddressUtils.toBytes("10.0." + (visitor >> 8) + "." + (visitor & 0xff)))
+                    .timestamp(now)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<EndpointHit> filterBatch() {
+        List<EndpointHit> hits = batch;
+        String app = "ewm-" + (round++ & 0xffff);
+        for (EndpointHit hit : hits) {
+            hit.setApp(app);
+        }
+        return filter.filter(hits);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.practicum.stats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Raw-table aggregation behind /stats at several table sizes, with and without distinct ips, as a Criteria query
+ * or as native SQL ({@code nativeSql}). With {@code uris} set every call filters on the first 1 to {@code uris}
+ * uris, cycling through the list lengths as real callers do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindStatsBenchmark {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 1, 1, 0, 0, 0);
+    private static final int SPREAD_SECONDS = 30 * 24 * 3600;
+
+    @Param({"10000", "100000", "500000"})
+    private int rows;
+
+    @Param({"false", "true"})
+    private boolean unique;
+
+    @Param({"false", "true"})
+    private boolean nativeSql;
+
+    @Param({"0", "100"})
+    private int uris;
+
+    private ConfigurableApplicationContext context;
+    private StatsRepository repository;
+    private List<Integer> uriIds;
+    private int round;
+
+    @Setup
+    public void setUp() {
+        context = StatsContext.start("stats.hot-window.enabled=false", "stats.query.native.enabled=" + nativeSql);
+        repository = context.getBean(StatsRepository.class);
+        StatsContext.load(context, StatsContext.hits(new Random(42), rows, 1000, 50_000, FROM, SPREAD_SECONDS));
+        uriIds = context.getBean(StatsDictionaryService.class).findUriIds(IntStream.range(0, uris)
+                .mapToObj(i -> "/events/" + i)
+                .toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<HitCount> findStatsByCriteria() {
+        List<Integer> filter = uris == 0 ? null : uriIds.subList(0, 1 + round++ % uriIds.size());
+        return repository.findStatsByCriteria(FROM.plusDays(5), FROM.plusDays(25), filter, unique);
+    }
+}
@@ -0,0 +1,86 @@
+package ru.practicum.stats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.dto.EndpointHitBatchAckDto;
+import ru.practicum.stats.dto.EndpointHitCreateDto;
+import ru.practicum.stats.service.StatsService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acknowledgement latency of {@link StatsService#saveHits} per ingest mode: direct commits every batch,
+ * buffered only enqueues it and wal waits for the local log to reach disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HitIngestionBenchmark {
+
+    @Param({"direct", "buffered", "wal"})
+    private String mode;
+
+    @Param({"1", "100", "1000"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private StatsService service;
+    private JdbcTemplate jdbcTemplate;
+    private List<EndpointHitCreateDto> batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path walDir = Files.createTempDirectory("stats-bench-wal");
+        // producers wait for buffer space instead of being rejected, so buffered measures sustained throughput
+        context = StatsContext.start("stats.ingest.mode=" + mode, "stats.ingest.wal.dir=" + walDir,
+                "stats.ingest.buffer.offer-timeout-ms=60000");
+        service = context.getBean(StatsService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Random random = new Random(42);
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0, 0);
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new EndpointHitCreateDto("ewm", "/events/" + random.nextInt(1000),
+                    "10.0." + random.nextInt(256) + "." + random.nextInt(256),
+                    from.plusSeconds(random.nextInt(30 * 24 * 3600))));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM stats_hit");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public EndpointHitBatchAckDto saveHits() {
+        return service.saveHits(batch);
+    }
+}
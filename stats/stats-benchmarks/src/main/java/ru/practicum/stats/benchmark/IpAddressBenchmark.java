@@ -0,0 +1,61 @@
+package ru.practicum.stats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the conversions between the textual ip in requests, the 16-byte form in memory and the UUID column.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IpAddressBenchmark {
+
+    @Param({"192.168.10.42", "2001:db8:85a3::8a2e:370:7334"})
+    private String ip;
+
+    private byte[] bytes;
+    private UUID uuid;
+
+    @Setup
+    public void setUp() {
+        bytes = IpAddressUtils.toBytes(ip);
+        uuid = IpAddressUtils.toUuid(bytes);
+    }
+
+    @Benchmark
+    public byte[] parseText() {
+        return IpAddressUtils.toBytes(ip);
+    }
+
+    @Benchmark
+    public String formatText() {
+        return IpAddressUtils.toString(bytes);
+    }
+
+    @Benchmark
+    public UUID toUuid() {
+        return IpAddressUtils.toUuid(bytes);
+    }
+
+    @Benchmark
+    public byte[] fromUuid() {
+        return IpAddressUtils.fromUuid(uuid);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.stats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * COUNT(DISTINCT ip) over the same addresses stored as text, as before the migration, and as UUID, as now. Runs on
+ * H2 by default and on PostgreSQL with {@code -Dbench.datasource.url}, see {@link StatsContext}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IpColumnBenchmark {
+
+    private static final int LOAD_BATCH = 10_000;
+
+    @Param({"100000", "1000000"})
+    private int rows;
+
+    @Param({"50000"})
+    private int ips;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private long round;
+
+    @Setup
+    public void setUp() {
+        context = StatsContext.start();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.execute("CREATE TABLE bench_ip_text (ip VARCHAR(45) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE bench_ip_uuid (ip UUID NOT NULL)");
+        Random random = new Random(42);
+        for (int loaded = 0; loaded < rows; loaded += LOAD_BATCH) {
+            List<byte[]> batch = StatsContext.hits(random, Math.min(LOAD_BATCH, rows - loaded), 1, ips,
+                            LocalDateTime.now(), 1).stream()
+                    .map(EndpointHit::getIp)
+                    .toList();
+            jdbcTemplate.batchUpdate("INSERT INTO bench_ip_text (ip) VALUES (?)", batch.stream()
+                    .map(ip -> new Object[]{IpAddressUtils.toString(ip)})
+                    .toList());
+            jdbcTemplate.batchUpdate("INSERT INTO bench_ip_uuid (ip) VALUES (?)", batch.stream()
+                    .map(ip -> new Object[]{IpAddressUtils.toUuid(ip)})
+                    .toList());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Excludes an address no row has, different on every call so H2 cannot answer from its query cache.
+     */
+    @Benchmark
+    public Long countDistinctText() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT ip) FROM bench_ip_text WHERE ip <> ?", Long.class,
+                "absent-" + round++);
+    }
+
+    @Benchmark
+    public Long countDistinctUuid() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT ip) FROM bench_ip_uuid WHERE ip <> ?", Long.class,
+                new UUID(-1, round++));
+    }
+}
@@ -0,0 +1,115 @@
+package ru.practicum.stats.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.StatsServer;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.service.ingest.HitPersister;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Starts the stats server without the web layer against a private in-memory H2 database and generates hits.
+ * With {@code -Dbench.datasource.url=jdbc:postgresql://...} (and {@code bench.datasource.username} and
+ * {@code bench.datasource.password}, stats_user/123456 by default) it runs against PostgreSQL instead, in a fresh
+ * schema that is dropped when the context closes.
+ */
+final class StatsContext {
+
+    private static final int LOAD_BATCH = 10_000;
+    private static final String POSTGRES_URL = System.getProperty("bench.datasource.url");
+    private static final String POSTGRES_USER = System.getProperty("bench.datasource.username", "stats_user");
+    private static final String POSTGRES_PASSWORD = System.getProperty("bench.datasource.password", "123456");
+
+    private StatsContext() {
+
+    }
+
+    /**
+     * Starts the server without the web layer on a fresh database. Properties are passed as command line
+     * arguments so they override application.properties.
+     */
+    static ConfigurableApplicationContext start(String... properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type=WARN"));
+        String schema = null;
+        if (POSTGRES_URL == null) {
+            args.add("--spring.datasource.url=jdbc:h2:mem:bench-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        } else {
+            schema = "bench_" + System.nanoTime();
+            execute("CREATE SCHEMA " + schema);
+            args.add("--spring.datasource.url=" + POSTGRES_URL + (POSTGRES_URL.contains("?") ? "&" : "?")
+                    + "currentSchema=" + schema);
+            args.add("--spring.datasource.username=" + POSTGRES_USER);
+            args.add("--spring.datasource.password=" + POSTGRES_PASSWORD);
+        }
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(StatsServer.class)
+                .web(WebApplicationType.NONE);
+        if (schema == null) {
+            builder.profiles("test");
+        }
+        ConfigurableApplicationContext context = builder.run(args.toArray(String[]::new));
+        if (schema != null) {
+            String dropped = schema;
+            context.addApplicationListener((ContextClosedEvent event) ->
+                    context.getBean(JdbcTemplate.class).execute("DROP SCHEMA " + dropped + " CASCADE"));
+        }
+        return context;
+    }
+
+    static List<EndpointHit> hits(Random random, int count, int uris, int ips, LocalDateTime from, int spreadSeconds) {
+        List<EndpointHit> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int ip = random.nextInt(ips);
+            hits.add(EndpointHit.builder()
+                    .app(i % 10 == 0 ? "other" : "ewm")
+                    .uri("/events/" + random.nextInt(uris))
+                    .ip(IpAddressUtils.toBytes("10." + (ip >> 16 & 0xff) + "." + (ip >> 8 & 0xff) + "." + (ip & 0xff)))
+                    .timestamp(from.plusSeconds(random.nextInt(spreadSeconds)))
+                    .build());
+        }
+        return hits;
+    }
+
+    /**
+     * Generates and loads {@code count} hits one batch at a time, so tens of millions never sit in memory at once.
+     */
+    static void load(ConfigurableApplicationContext context, Random random, int count, int uris, int ips,
+                     LocalDateTime from, int spreadSeconds) {
+        for (int loaded = 0; loaded < count; loaded += LOAD_BATCH) {
+            load(context, hits(random, Math.min(LOAD_BATCH, count - loaded), uris, ips, from, spreadSeconds));
+        }
+    }
+
+    static void load(ConfigurableApplicationContext context, List<EndpointHit> hits) {
+        HitPersister persister = context.getBean(HitPersister.class);
+        for (int i = 0; i < hits.size(); i += LOAD_BATCH) {
+            persister.persist(hits.subList(i, Math.min(hits.size(), i + LOAD_BATCH)));
+        }
+    }
+
+    private static void execute(String sql) {
+        try (Connection connection = DriverManager.getConnection(POSTGRES_URL, POSTGRES_USER, POSTGRES_PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not prepare the benchmark database: " + e.getMessage(), e);
+        }
+    }
+}
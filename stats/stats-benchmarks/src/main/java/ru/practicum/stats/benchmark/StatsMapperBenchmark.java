@@ -0,0 +1,50 @@
+package ru.practicum.stats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.stats.dto.EndpointHitCreateDto;
+import ru.practicum.stats.dto.EndpointHitResponseDto;
+import ru.practicum.stats.dto.mapper.StatsMapper;
+import ru.practicum.stats.dto.mapper.StatsMapperImpl;
+import ru.practicum.stats.entity.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsMapperBenchmark {
+
+    private final StatsMapper mapper = new StatsMapperImpl();
+    private EndpointHitCreateDto dto;
+    private EndpointHit entity;
+
+    @Setup
+    public void setUp() {
+        dto = new EndpointHitCreateDto("ewm-main-service", "/events/1024", "192.168.10.42",
+                LocalDateTime.of(2025, 1, 10, 12, 0, 0));
+        entity = mapper.toEntity(dto);
+    }
+
+    @Benchmark
+    public EndpointHit toEntity() {
+        return mapper.toEntity(dto);
+    }
+
+    @Benchmark
+    public EndpointHitResponseDto toDto() {
+        return mapper.toDto(entity);
+    }
+}
@@ -0,0 +1,104 @@
+package ru.practicum.stats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.service.hot.HotWindowService;
+import ru.practicum.stats.service.rollup.StatsRollupService;
+import ru.practicum.stats.service.sketch.StatsSketchService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same recent /stats window answered by each path the server has: the raw table, the minute/hour rollups,
+ * the hourly HyperLogLog sketches and the in-memory hot window.
+ *
+ * <p>The default sizes run on in-memory H2. The production scale of tens of millions of hits runs on PostgreSQL,
+ * see {@link StatsContext}; loading takes a while, and the hot window is held in memory, so give the fork a heap:
+ * {@code -Djmh.args="UniqueStatsBenchmark -p rows=20000000 -jvmArgsAppend
+ * '-Xmx8g -Dbench.datasource.url=jdbc:postgresql://localhost:5432/stats_db'"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UniqueStatsBenchmark {
+
+    @Param({"100000", "500000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private StatsRepository repository;
+    private StatsRollupService rollupService;
+    private StatsSketchService sketchService;
+    private HotWindowService hotWindowService;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @Setup
+    public void setUp() {
+        context = StatsContext.start();
+        repository = context.getBean(StatsRepository.class);
+        rollupService = context.getBean(StatsRollupService.class);
+        sketchService = context.getBean(StatsSketchService.class);
+        hotWindowService = context.getBean(HotWindowService.class);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        StatsContext.load(context, new Random(42), rows, 1000, 50_000, now.minusDays(3), 3 * 24 * 3600);
+        sketchService.flush();
+        start = now.minusDays(2).plusMinutes(17);
+        end = now.minusMinutes(5);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<HitCount> exactUnique() {
+        return repository.findStatsByCriteria(start, end, null, true);
+    }
+
+    @Benchmark
+    public List<HitCount> sketchUnique() {
+        return sketchService.estimateUnique(start, end, null);
+    }
+
+    @Benchmark
+    public List<HitCount> hotWindowUnique() {
+        return hotWindowService.findStats(start, end, null, true).orElseThrow();
+    }
+
+    @Benchmark
+    public List<HitCount> rawHits() {
+        return repository.findStatsByCriteria(start, end, null, false);
+    }
+
+    @Benchmark
+    public List<HitCount> rollupHits() {
+        return rollupService.findStats(start, end, null);
+    }
+
+    @Benchmark
+    public List<HitCount> hotWindowHits() {
+        return hotWindowService.findStats(start, end, null, false).orElseThrow();
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.stats.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.stats.dto.ViewStats;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewStatsJsonBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int size;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private ViewStats[] stats;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        writer = objectMapper.writerFor(ViewStats[].class);
+        reader = objectMapper.readerFor(ViewStats[].class);
+        stats = new ViewStats[size];
+        for (int i = 0; i < size; i++) {
+            stats[i] = new ViewStats("ewm-main-service", "/events/" + i, (long) (size - i) * 17);
+        }
+        json = writer.writeValueAsBytes(stats);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(stats);
+    }
+
+    @Benchmark
+    public ViewStats[] deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+}
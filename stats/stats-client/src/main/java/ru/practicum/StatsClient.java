@@ -1,58 +1,385 @@
 package ru.practicum;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
+import ru.practicum.stats.dto.EndpointHitBatchAckDto;
 import ru.practicum.stats.dto.EndpointHitCreateDto;
+import ru.practicum.stats.dto.StatsQueryWindowDto;
 import ru.practicum.stats.dto.ViewStats;
+import ru.practicum.stats.dto.ViewStatsDelta;
+import ru.practicum.stats.dto.ViewStatsSeries;
+import ru.practicum.stats.dto.ViewStatsWindow;
 import ru.practicum.stats.utils.DateTimeUtils;
+import ru.practicum.stats.utils.ShardUtils;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
+/**
+ * Talks to a single stats server ({@code stats-server.url}) or to shards ({@code stats-server.shards}, listed in
+ * shard index order). Each uri is owned by one shard, see {@link ShardUtils}: hits go to the owner, and queries
+ * go to the owners of the requested uris, or to every shard when no uris are given, in parallel. A uri never spans
+ * shards, so per-uri counts, unique ones included, are exact without merging anything but the lists.
+ */
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class StatsClient {
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
 
-    @Value("${stats-server.url}")
+    @Value("${stats-server.url:}")
     private String serverUrl;
 
+    @Value("${stats-server.shards:}")
+    private List<String> shardUrls;
+
+    @Value("${stats-server.query.max-windows:1000}")
+    private int maxQueryWindows;
+
+    @Value("${stats-server.hits.max-batch:10000}")
+    private int maxHitsBatch;
+
+    @Value("${stats-server.feed.retry-interval:5s}")
+    private Duration feedRetryInterval;
+
+    private List<String> servers;
+    private ExecutorService fanOut;
+
+    @PostConstruct
+    void init() {
+        if (shardUrls.isEmpty() && serverUrl.isBlank()) {
+            throw new IllegalStateException("Either stats-server.url or stats-server.shards must be set");
+        }
+        servers = shardUrls.isEmpty() ? List.of(serverUrl) : List.copyOf(shardUrls);
+        fanOut = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @PreDestroy
+    void close() {
+        fanOut.shutdownNow();
+    }
+
     public void sendHit(EndpointHitCreateDto hit) {
-        restTemplate.postForEntity(serverUrl + "/hit", hit, Void.class);
+        restTemplate.postForEntity(serverFor(hit.getUri()) + "/hit", hit, Void.class);
+    }
+
+    /**
+     * Sends hits to their owners in one request per {@code stats-server.hits.max-batch} hits of a server, which must
+     * not exceed that server's {@code stats.ingest.max-batch}; returns the number of hits accepted.
+     */
+    public int sendHits(List<EndpointHitCreateDto> hits) {
+        if (hits.isEmpty()) {
+            return 0;
+        }
+        Map<String, List<EndpointHitCreateDto>> byServer = new LinkedHashMap<>();
+        hits.forEach(hit -> byServer.computeIfAbsent(serverFor(hit.getUri()), s -> new ArrayList<>()).add(hit));
+        return scatter(byServer, (server, part) -> {
+            int accepted = 0;
+            for (int from = 0; from < part.size(); from += maxHitsBatch) {
+                EndpointHitBatchAckDto ack = restTemplate.postForObject(server + "/hits",
+                        part.subList(from, Math.min(part.size(), from + maxHitsBatch)), EndpointHitBatchAckDto.class);
+                accepted += ack == null ? 0 : ack.getAccepted();
+            }
+            return accepted;
+        }).stream().mapToInt(Integer::intValue).sum();
     }
 
     public List<ViewStats> getStats(LocalDateTime start,
                                     LocalDateTime end,
                                     List<String> uris,
                                     boolean unique) {
+        return getStats(start, end, uris, unique, false);
+    }
+
+    public List<ViewStats> getStats(LocalDateTime start,
+                                    LocalDateTime end,
+                                    List<String> uris,
+                                    boolean unique,
+                                    boolean approximate) {
+        List<List<ViewStats>> parts = scatter(targets(uris), (server, shardUris) -> {
+            ResponseEntity<ViewStats[]> response = restTemplate.getForEntity(
+                    statsUrl(server, start, end, shardUris, unique, approximate),
+                    ViewStats[].class
+            );
+            return Optional.ofNullable(response.getBody())
+                    .map(Arrays::asList)
+                    .orElse(List.of());
+        });
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        return parts.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(ViewStats::getHits).reversed())
+                .toList();
+    }
+
+    /**
+     * Evaluates every window over its own uri and range, in one request per {@code stats-server.query.max-windows}
+     * windows of a server, which must not exceed that server's {@code stats.query.max-windows}; results follow the
+     * order of windows.
+     */
+    public List<ViewStatsWindow> queryWindows(List<StatsQueryWindowDto> windows) {
+        if (windows.isEmpty()) {
+            return List.of();
+        }
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < windows.size(); i++) {
+            positions.computeIfAbsent(serverFor(windows.get(i).getUri()), s -> new ArrayList<>()).add(i);
+        }
+        Map<String, List<StatsQueryWindowDto>> byServer = new LinkedHashMap<>();
+        positions.forEach((server, indexes) -> byServer.put(server, indexes.stream().map(windows::get).toList()));
+        List<List<ViewStatsWindow>> parts = scatter(byServer, (server, part) -> {
+            List<ViewStatsWindow> answered = new ArrayList<>(part.size());
+            for (int from = 0; from < part.size(); from += maxQueryWindows) {
+                ViewStatsWindow[] response = restTemplate.postForObject(server + "/stats/query",
+                        part.subList(from, Math.min(part.size(), from + maxQueryWindows)), ViewStatsWindow[].class);
+                if (response != null) {
+                    answered.addAll(Arrays.asList(response));
+                }
+            }
+            return answered;
+        });
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        ViewStatsWindow[] result = new ViewStatsWindow[windows.size()];
+        int part = 0;
+        for (List<Integer> indexes : positions.values()) {
+            List<ViewStatsWindow> answered = parts.get(part++);
+            for (int i = 0; i < answered.size(); i++) {
+                result[indexes.get(i)] = answered.get(i);
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Returns per-bucket hit and unique counts for each uri, buckets of {@code bucket} width aligned to the epoch.
+     */
+    public List<ViewStatsSeries> getTimeSeries(LocalDateTime start,
+                                               LocalDateTime end,
+                                               List<String> uris,
+                                               Duration bucket) {
+        List<List<ViewStatsSeries>> parts = scatter(targets(uris), (server, shardUris) -> {
+            UriComponentsBuilder builder = UriComponentsBuilder
+                    .fromHttpUrl(server + "/stats/timeseries")
+                    .queryParam("start", start.format(DateTimeUtils.FORMATTER).replace(" ", "+"))
+                    .queryParam("end", end.format(DateTimeUtils.FORMATTER).replace(" ", "+"))
+                    .queryParam("bucket", bucket.toString());
+
+            if (shardUris != null && !shardUris.isEmpty()) {
+                shardUris.forEach(u -> builder.queryParam("uris", u));
+            }
 
+            ResponseEntity<ViewStatsSeries[]> response = restTemplate.getForEntity(
+                    builder.toUriString(),
+                    ViewStatsSeries[].class
+            );
 
+            return Optional.ofNullable(response.getBody())
+                    .map(Arrays::asList)
+                    .orElse(List.of());
+        });
+        return parts.size() == 1 ? parts.get(0) : parts.stream().flatMap(List::stream).toList();
+    }
+
+    /**
+     * Requests /stats as NDJSON and hands rows to the consumer while the response is still being read,
+     * so large results never have to fit in memory at once. Shards are read one after another, so rows are
+     * ordered by hits within each shard only.
+     */
+    public void streamStats(LocalDateTime start,
+                            LocalDateTime end,
+                            List<String> uris,
+                            boolean unique,
+                            boolean approximate,
+                            Consumer<ViewStats> consumer) {
+        targets(uris).forEach((server, shardUris) -> restTemplate.execute(
+                statsUrl(server, start, end, shardUris, unique, approximate),
+                HttpMethod.GET,
+                request -> request.getHeaders().setAccept(List.of(APPLICATION_NDJSON)),
+                response -> {
+                    try (MappingIterator<ViewStats> rows = objectMapper.readerFor(ViewStats.class)
+                            .readValues(response.getBody())) {
+                        rows.forEachRemaining(consumer);
+                    }
+                    return null;
+                }));
+    }
+
+    /**
+     * Follows the /stats/feed of every server for uris starting with {@code prefix} until the returned handle is
+     * closed. A stream closed by the server is reopened at once, a failed one after
+     * {@code stats-server.feed.retry-interval}.
+     */
+    public AutoCloseable subscribe(String prefix, StatsFeedListener listener) {
+        String query = UriComponentsBuilder.fromPath("/stats/feed")
+                .queryParam("prefix", prefix)
+                .toUriString();
+        List<Future<?>> feeds = servers.stream()
+                .<Future<?>>map(server -> fanOut.submit(() -> follow(server + query, listener)))
+                .toList();
+        return () -> feeds.forEach(feed -> feed.cancel(true));
+    }
+
+    private void follow(String url, StatsFeedListener listener) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                restTemplate.execute(url, HttpMethod.GET,
+                        request -> request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM)),
+                        response -> {
+                            listener.onResync();
+                            readEvents(new BufferedReader(new InputStreamReader(response.getBody(),
+                                    StandardCharsets.UTF_8)), listener);
+                            return null;
+                        });
+                continue;
+            } catch (RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                log.warn("Stats feed {} failed: {}", url, e.getMessage());
+            }
+            try {
+                Thread.sleep(feedRetryInterval.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads server-sent events until the stream ends, handing the data of each {@code deltas} event to the
+     * listener; comments are heartbeats.
+     */
+    private void readEvents(BufferedReader reader, StatsFeedListener listener) throws IOException {
+        String event = null;
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                if ("deltas".equals(event) && !data.isEmpty()) {
+                    listener.onDeltas(Arrays.asList(objectMapper.readValue(data.toString(), ViewStatsDelta[].class)));
+                }
+                event = null;
+                data.setLength(0);
+            } else if (line.startsWith("event:")) {
+                event = line.substring(6).trim();
+            } else if (line.startsWith("data:")) {
+                if (!data.isEmpty()) {
+                    data.append('\n');
+                }
+                data.append(line.substring(5).stripLeading());
+            }
+        }
+    }
+
+    private String serverFor(String uri) {
+        return servers.get(ShardUtils.shardOf(uri, servers.size()));
+    }
+
+    /**
+     * Servers to ask with the uris each of them owns; every server with the same {@code uris} when none are given.
+     */
+    private Map<String, List<String>> targets(List<String> uris) {
+        Map<String, List<String>> targets = new LinkedHashMap<>();
+        if (uris == null || uris.isEmpty()) {
+            servers.forEach(server -> targets.put(server, uris));
+        } else {
+            uris.forEach(uri -> targets.computeIfAbsent(serverFor(uri), s -> new ArrayList<>()).add(uri));
+        }
+        return targets;
+    }
+
+    /**
+     * Calls {@code call} for every server and returns the results in the order of {@code requests}; a single
+     * server is called on the current thread, several in parallel.
+     */
+    private <P, R> List<R> scatter(Map<String, P> requests, ShardCall<P, R> call) {
+        if (requests.size() == 1) {
+            Map.Entry<String, P> only = requests.entrySet().iterator().next();
+            return List.of(call.apply(only.getKey(), only.getValue()));
+        }
+        List<Future<R>> futures = new ArrayList<>(requests.size());
+        requests.forEach((server, request) ->
+                futures.add(fanOut.submit((Callable<R>) () -> call.apply(server, request))));
+        List<R> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while waiting for stats shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    @FunctionalInterface
+    private interface ShardCall<P, R> {
+        R apply(String server, P request);
+    }
+
+    private String statsUrl(String server,
+                            LocalDateTime start,
+                            LocalDateTime end,
+                            List<String> uris,
+                            boolean unique,
+                            boolean approximate) {
         UriComponentsBuilder builder = UriComponentsBuilder
-                .fromHttpUrl(serverUrl + "/stats")
+                .fromHttpUrl(server + "/stats")
                 .queryParam("start", start.format(DateTimeUtils.FORMATTER).replace(" ", "+")) //добавил сюда костыль(т.к. Spring MVC не умеет парсить пробел, парсим "+")
                 .queryParam("end", end.format(DateTimeUtils.FORMATTER).replace(" ", "+"))
                 .queryParam("unique", unique);
 
+        if (approximate) {
+            builder.queryParam("approximate", true);
+        }
+
         if (uris != null && !uris.isEmpty()) {
             uris.forEach(u -> builder.queryParam("uris", u));
         }
 
-        ResponseEntity<ViewStats[]> response = restTemplate.getForEntity(
-                builder.toUriString(),
-                ViewStats[].class
-        );
-
-        return Optional.ofNullable(response.getBody())
-                .map(Arrays::asList)
-                .orElse(List.of());
-
-
+        return builder.toUriString();
     }
 }
@@ -0,0 +1,21 @@
+package ru.practicum;
+
+import ru.practicum.stats.dto.ViewStatsDelta;
+
+import java.util.List;
+
+/**
+ * Receives counter deltas from {@link StatsClient#subscribe}. Calls come from one thread per stats server.
+ */
+public interface StatsFeedListener {
+
+    void onDeltas(List<ViewStatsDelta> deltas);
+
+    /**
+     * Called whenever the feed of a server is (re)connected, before its first update: deltas may have been missed
+     * since the previous connection, so counters derived from them should be reloaded from /stats.
+     */
+    default void onResync() {
+
+    }
+}
@@ -1,15 +1,37 @@
 package ru.practicum.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Stats calls go through the JDK {@link HttpClient}: it keeps a shared connection pool instead of the handful of
+ * keep-alive connections of {@code HttpURLConnection}, and a blocking send only parks the caller, so it is cheap
+ * on virtual threads.
+ */
 @Configuration
 public class RestTemplateConfig {
 
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder.build();
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     @Value("${stats-server.connect-timeout:5s}") Duration connectTimeout,
+                                     @Value("${stats-server.read-timeout:30s}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .build();
+        return builder
+                .requestFactory(() -> {
+                    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+                    requestFactory.setReadTimeout(readTimeout);
+                    return requestFactory;
+                })
+                .build();
     }
 }
@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import ru.practicum.stats.validation.IpAddress;
 
 
 import java.time.LocalDateTime;
@@ -22,6 +23,8 @@ public class EndpointHitCreateDto {
     @NotBlank
     private String uri;
 
+    @NotBlank
+    @IpAddress
     private String ip;
 
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
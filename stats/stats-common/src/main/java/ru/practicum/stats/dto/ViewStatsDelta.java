@@ -0,0 +1,25 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change of the counters of one app and uri since the previous feed update: {@code hits} new hits and
+ * {@code unique} ips that had never hit this app and uri before.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ViewStatsDelta {
+
+    private String app;
+
+    private String uri;
+
+    private long hits;
+
+    private long unique;
+}
@@ -0,0 +1,22 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ViewStatsSeries {
+
+    private String app;
+
+    private String uri;
+
+    private List<ViewStatsPoint> points;
+}
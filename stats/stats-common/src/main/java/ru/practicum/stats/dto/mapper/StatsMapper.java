@@ -1,16 +1,28 @@
 package ru.practicum.stats.dto.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 import ru.practicum.stats.dto.EndpointHitCreateDto;
 import ru.practicum.stats.dto.EndpointHitResponseDto;
 
 import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.utils.IpAddressUtils;
 
 @Mapper(componentModel = "spring")
 public interface StatsMapper {
 
+    @Mapping(target = "appId", ignore = true)
+    @Mapping(target = "uriId", ignore = true)
     EndpointHit toEntity(EndpointHitCreateDto dto);
 
     EndpointHitResponseDto toDto(EndpointHit entity);
+
+    default byte[] toIpBytes(String ip) {
+        return IpAddressUtils.toBytes(ip);
+    }
+
+    default String toIpString(byte[] ip) {
+        return IpAddressUtils.toString(ip);
+    }
 }
@@ -7,7 +7,7 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "stats")
+@Table(name = "stats_hit")
 @Getter
 @Setter
 @AllArgsConstructor
@@ -19,14 +19,21 @@ public class EndpointHit {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "app", nullable = false)
+    @Column(name = "app_id", nullable = false)
+    private Integer appId;
+
+    @Column(name = "uri_id", nullable = false)
+    private Integer uriId;
+
+    @Transient
     private String app;
 
-    @Column(name = "uri", nullable = false)
+    @Transient
     private String uri;
 
     @Column(name = "ip", nullable = false)
-    private String ip;
+    @Convert(converter = IpAddressConverter.class)
+    private byte[] ip;
 
     @Column(name = "created", nullable = false)
     private LocalDateTime timestamp;
@@ -0,0 +1,21 @@
+package ru.practicum.stats.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.util.UUID;
+
+@Converter
+public class IpAddressConverter implements AttributeConverter<byte[], UUID> {
+
+    @Override
+    public UUID convertToDatabaseColumn(byte[] attribute) {
+        return IpAddressUtils.toUuid(attribute);
+    }
+
+    @Override
+    public byte[] convertToEntityAttribute(UUID dbData) {
+        return IpAddressUtils.fromUuid(dbData);
+    }
+}
@@ -0,0 +1,148 @@
+package ru.practicum.stats.utils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Converts textual IPv4/IPv6 addresses to a fixed 16-byte form: IPv4 is stored as an IPv4-mapped IPv6 address,
+ * so both families compare, hash and count distinct as plain binary values.
+ * Only literals are accepted, host names are never resolved.
+ *
+ * <p>In the database the 16 bytes are stored in a {@code UUID} column: unlike text or {@code BYTEA} it is a
+ * fixed-width type without a length header, compared and hashed as raw bytes regardless of the database collation.
+ */
+public final class IpAddressUtils {
+
+    public static final int LENGTH = 16;
+
+    private IpAddressUtils() {
+
+    }
+
+    public static byte[] toBytes(String ip) {
+        if (ip == null || ip.isBlank()) {
+            throw new IllegalArgumentException("IP address is empty");
+        }
+        String value = ip.trim();
+        byte[] ipv4 = parseIpv4(value);
+        if (ipv4 != null) {
+            return mapIpv4(ipv4);
+        }
+        int zone = value.indexOf('%');
+        String literal = zone < 0 ? value : value.substring(0, zone);
+        if (!isIpv6Literal(literal)) {
+            throw new IllegalArgumentException("Not an IP address: " + ip);
+        }
+        try {
+            byte[] address = InetAddress.getByName(literal).getAddress();
+            return address.length == 4 ? mapIpv4(address) : address;
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Not an IP address: " + ip);
+        }
+    }
+
+    public static boolean isValid(String ip) {
+        try {
+            toBytes(ip);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public static String toString(byte[] ip) {
+        if (ip == null) {
+            return null;
+        }
+        if (ip.length != LENGTH) {
+            throw new IllegalArgumentException("Expected " + LENGTH + " bytes, got " + ip.length);
+        }
+        if (isIpv4Mapped(ip)) {
+            return (ip[12] & 0xff) + "." + (ip[13] & 0xff) + "." + (ip[14] & 0xff) + "." + (ip[15] & 0xff);
+        }
+        try {
+            return InetAddress.getByAddress(ip).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public static UUID toUuid(byte[] ip) {
+        if (ip == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(ip);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    public static byte[] fromUuid(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        return ByteBuffer.allocate(LENGTH)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    private static byte[] parseIpv4(String value) {
+        byte[] address = new byte[4];
+        int octet = 0;
+        int digits = 0;
+        int part = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                digits++;
+                if (octet > 255 || digits > 3) {
+                    return null;
+                }
+            } else if (c == '.' && digits > 0 && part < 3) {
+                address[part++] = (byte) octet;
+                octet = 0;
+                digits = 0;
+            } else {
+                return null;
+            }
+        }
+        if (part != 3 || digits == 0) {
+            return null;
+        }
+        address[3] = (byte) octet;
+        return address;
+    }
+
+    private static boolean isIpv6Literal(String value) {
+        if (value.isEmpty() || value.indexOf(':') < 0
+                || (Character.digit(value.charAt(0), 16) < 0 && value.charAt(0) != ':')) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != ':' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static byte[] mapIpv4(byte[] ipv4) {
+        byte[] mapped = new byte[LENGTH];
+        mapped[10] = (byte) 0xff;
+        mapped[11] = (byte) 0xff;
+        System.arraycopy(ipv4, 0, mapped, 12, 4);
+        return mapped;
+    }
+
+    public static boolean isIpv4Mapped(byte[] ip) {
+        for (int i = 0; i < 10; i++) {
+            if (ip[i] != 0) {
+                return false;
+            }
+        }
+        return ip[10] == (byte) 0xff && ip[11] == (byte) 0xff;
+    }
+}
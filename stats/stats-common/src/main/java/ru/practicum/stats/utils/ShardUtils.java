@@ -0,0 +1,41 @@
+package ru.practicum.stats.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Assigns uris to stats-server shards: the 32-bit hash space is cut into {@code shardCount} equal contiguous ranges
+ * and a uri belongs to the shard whose range contains its hash. Clients and servers must agree on the shard count,
+ * since every hit and every query for a uri goes to that one shard.
+ */
+public final class ShardUtils {
+
+    private ShardUtils() {
+
+    }
+
+    public static int shardOf(String uri, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        long hash = hash(uri) >>> 32;
+        return (int) ((hash * shardCount) >>> 32);
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes followed by a murmur finalizer, so the result does not depend on
+     * the JVM and similar uris such as {@code /events/1} and {@code /events/2} land far apart.
+     */
+    static long hash(String uri) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : uri.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.practicum.stats.validation;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+public class IpAddressValidator implements ConstraintValidator<IpAddress, String> {
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        return value == null || IpAddressUtils.isValid(value);
+    }
+}
@@ -0,0 +1,18 @@
+package ru.practicum.stats.collection;
+
+final class Hashing {
+
+    private Hashing() {
+
+    }
+
+    static int mix(int value) {
+        int h = value * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(long value) {
+        long h = value * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
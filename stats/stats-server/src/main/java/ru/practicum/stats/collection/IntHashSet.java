@@ -0,0 +1,96 @@
+package ru.practicum.stats.collection;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Open-addressing set of positive ints backed by a single {@code int[]}; {@code 0} marks an empty slot.
+ */
+public class IntHashSet {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] slots;
+    private int size;
+
+    public IntHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntHashSet(int expected) {
+        slots = new int[capacityFor(expected)];
+    }
+
+    public boolean add(int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Only positive values are supported: " + value);
+        }
+        int mask = slots.length - 1;
+        int i = Hashing.mix(value) & mask;
+        while (slots[i] != 0) {
+            if (slots[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = value;
+        if (++size * 4 > slots.length * 3) {
+            resize(slots.length * 2);
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        int mask = slots.length - 1;
+        int i = Hashing.mix(value) & mask;
+        while (slots[i] != 0) {
+            if (slots[i] == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public void addAll(IntHashSet other) {
+        for (int value : other.slots) {
+            if (value != 0) {
+                add(value);
+            }
+        }
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int value : slots) {
+            if (value != 0) {
+                action.accept(value);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void resize(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity];
+        size = 0;
+        for (int value : old) {
+            if (value != 0) {
+                add(value);
+            }
+        }
+    }
+
+    private static int capacityFor(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < expected * 4) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.stats.collection;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Assigns dense positive int ids to 16-byte IP addresses, so per-bucket unique sets can hold plain ints.
+ * Ids are reference counted: once the last holder releases an address its id is recycled,
+ * which keeps the index bounded by the addresses still referenced.
+ */
+public class IpIndex {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] slots = new int[MIN_CAPACITY];
+    private long[] high = new long[MIN_CAPACITY];
+    private long[] low = new long[MIN_CAPACITY];
+    private int[] refs = new int[MIN_CAPACITY];
+    private int[] free = new int[MIN_CAPACITY];
+    private int freeCount;
+    private int nextId = 1;
+    private int size;
+
+    public int acquire(byte[] ip) {
+        ByteBuffer buffer = ByteBuffer.wrap(ip);
+        return acquire(buffer.getLong(), buffer.getLong());
+    }
+
+    public int acquire(long hi, long lo) {
+        int mask = slots.length - 1;
+        int i = hash(hi, lo) & mask;
+        while (slots[i] != 0) {
+            int id = slots[i];
+            if (high[id] == hi && low[id] == lo) {
+                refs[id]++;
+                return id;
+            }
+            i = (i + 1) & mask;
+        }
+        int id = freeCount > 0 ? free[--freeCount] : nextId++;
+        if (id >= high.length) {
+            int capacity = high.length * 2;
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            refs = Arrays.copyOf(refs, capacity);
+        }
+        high[id] = hi;
+        low[id] = lo;
+        refs[id] = 1;
+        slots[i] = id;
+        if (++size * 4 > slots.length * 3) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    public void release(int id) {
+        if (--refs[id] > 0) {
+            return;
+        }
+        int mask = slots.length - 1;
+        int i = hash(high[id], low[id]) & mask;
+        while (slots[i] != id) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = 0;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (slots[j] == 0) {
+                break;
+            }
+            int ideal = hash(high[slots[j]], low[slots[j]]) & mask;
+            boolean stays = i <= j ? (i < ideal && ideal <= j) : (i < ideal || ideal <= j);
+            if (!stays) {
+                slots[i] = slots[j];
+                slots[j] = 0;
+                i = j;
+            }
+        }
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, free.length * 2);
+        }
+        free[freeCount++] = id;
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 1; id < nextId; id++) {
+            if (refs[id] > 0) {
+                int i = hash(high[id], low[id]) & mask;
+                while (slots[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = id;
+            }
+        }
+    }
+
+    private static int hash(long hi, long lo) {
+        return Hashing.mix(hi * 0x9e3779b97f4a7c15L ^ lo);
+    }
+}
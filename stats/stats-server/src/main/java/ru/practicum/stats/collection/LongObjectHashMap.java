@@ -0,0 +1,163 @@
+package ru.practicum.stats.collection;
+
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * Open-addressing map from primitive {@code long} keys to objects; a {@code null} value marks an empty slot.
+ */
+public class LongObjectHashMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    public LongObjectHashMap() {
+        keys = new long[MIN_CAPACITY];
+        values = new Object[MIN_CAPACITY];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int mask = keys.length - 1;
+        int i = Hashing.mix(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public void put(long key, V value) {
+        int mask = keys.length - 1;
+        int i = Hashing.mix(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes the key with backward-shift deletion, so no tombstones are left behind.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int mask = keys.length - 1;
+        int i = Hashing.mix(key) & mask;
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == null) {
+            return null;
+        }
+        V removed = (V) values[i];
+        values[i] = null;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null) {
+                break;
+            }
+            int ideal = Hashing.mix(keys[j]) & mask;
+            boolean stays = i <= j ? (i < ideal && ideal <= j) : (i < ideal || ideal <= j);
+            if (!stays) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = null;
+                i = j;
+            }
+        }
+        size--;
+        return removed;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        int mask = keys.length - 1;
+        int i = Hashing.mix(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        V value = factory.apply(key);
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Entry<V> action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Removes matching values by rebuilding the table, which keeps probing sequences intact without tombstones.
+     */
+    @SuppressWarnings("unchecked")
+    public void removeIf(Predicate<V> filter) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length];
+        values = new Object[oldValues.length];
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null && !filter.test((V) oldValues[i])) {
+                long key = oldKeys[i];
+                V value = (V) oldValues[i];
+                computeIfAbsent(key, k -> value);
+            }
+        }
+    }
+
+    public void clear() {
+        keys = new long[MIN_CAPACITY];
+        values = new Object[MIN_CAPACITY];
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                long key = oldKeys[i];
+                V value = (V) oldValues[i];
+                computeIfAbsent(key, k -> value);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Entry<V> {
+        void accept(long key, V value);
+    }
+}
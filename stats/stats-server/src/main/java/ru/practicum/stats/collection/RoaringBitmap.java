@@ -0,0 +1,325 @@
+package ru.practicum.stats.collection;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compressed set of ints in the Roaring layout: values are grouped by their upper 16 bits, and each group holds
+ * its lower 16 bits either as a sorted {@code char[]} while it has at most 4096 values or as a 65536-bit bitmap
+ * once it is denser. Sparse and dense groups thus both stay within two bytes per value or less.
+ *
+ * <p>{@link #or} never modifies the containers of its argument, so bitmaps handed out by a cache can be
+ * unioned into a fresh accumulator without copying them first.
+ */
+public class RoaringBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+    private static final byte ARRAY = 1;
+    private static final byte BITMAP = 2;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    public boolean add(int value) {
+        char key = (char) (value >>> 16);
+        int i = indexOf(key);
+        if (i < 0) {
+            i = -i - 1;
+            insert(i, key, new ArrayContainer(new char[4], 0));
+        }
+        Container container = containers[i];
+        int before = container.cardinality();
+        containers[i] = container.add((char) value);
+        return containers[i].cardinality() > before;
+    }
+
+    public boolean contains(int value) {
+        int i = indexOf((char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds every value of {@code other} to this bitmap.
+     */
+    public void or(RoaringBitmap other) {
+        for (int j = 0; j < other.size; j++) {
+            int i = indexOf(other.keys[j]);
+            if (i >= 0) {
+                containers[i] = containers[i].or(other.containers[j]);
+            } else {
+                insert(-i - 1, other.keys[j], other.containers[j].copy());
+            }
+        }
+    }
+
+    public RoaringBitmap copy() {
+        RoaringBitmap copy = new RoaringBitmap();
+        copy.or(this);
+        return copy;
+    }
+
+    public byte[] toBytes() {
+        int length = 4;
+        for (int i = 0; i < size; i++) {
+            length += 2 + containers[i].serializedSize();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putChar(keys[i]);
+            containers[i].write(buffer);
+        }
+        return buffer.array();
+    }
+
+    public static RoaringBitmap fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int count = buffer.getInt();
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.keys = new char[Math.max(count, 4)];
+        bitmap.containers = new Container[Math.max(count, 4)];
+        for (int i = 0; i < count; i++) {
+            bitmap.keys[i] = buffer.getChar();
+            byte type = buffer.get();
+            if (type == ARRAY) {
+                int cardinality = Short.toUnsignedInt(buffer.getShort()) + 1;
+                char[] values = new char[cardinality];
+                buffer.asCharBuffer().get(values);
+                buffer.position(buffer.position() + cardinality * 2);
+                bitmap.containers[i] = new ArrayContainer(values, cardinality);
+            } else if (type == BITMAP) {
+                long[] words = new long[WORDS];
+                buffer.asLongBuffer().get(words);
+                buffer.position(buffer.position() + WORDS * 8);
+                bitmap.containers[i] = new BitmapContainer(words);
+            } else {
+                throw new IllegalArgumentException("Unknown container type: " + type);
+            }
+        }
+        bitmap.size = count;
+        return bitmap;
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int i, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = container;
+        size++;
+    }
+
+    private sealed interface Container permits ArrayContainer, BitmapContainer {
+
+        /**
+         * Returns the container now holding the value: this one, or a bitmap once the array is full.
+         */
+        Container add(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        /**
+         * Returns the union as a new container, leaving both operands untouched.
+         */
+        Container or(Container other);
+
+        Container copy();
+
+        int serializedSize();
+
+        void write(ByteBuffer buffer);
+    }
+
+    private static final class ArrayContainer implements Container {
+
+        private char[] values;
+        private int cardinality;
+
+        private ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                BitmapContainer bitmap = toBitmap();
+                bitmap.add(value);
+                return bitmap;
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container or(Container other) {
+            if (other instanceof BitmapContainer bitmap) {
+                return bitmap.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] merged = new char[cardinality + array.cardinality];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < cardinality && j < array.cardinality) {
+                char a = values[i];
+                char b = array.values[j];
+                if (a == b) {
+                    merged[k++] = a;
+                    i++;
+                    j++;
+                } else if (a < b) {
+                    merged[k++] = a;
+                    i++;
+                } else {
+                    merged[k++] = b;
+                    j++;
+                }
+            }
+            while (i < cardinality) {
+                merged[k++] = values[i++];
+            }
+            while (j < array.cardinality) {
+                merged[k++] = array.values[j++];
+            }
+            ArrayContainer union = new ArrayContainer(merged, k);
+            return k > ARRAY_MAX ? union.toBitmap() : union;
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        @Override
+        public int serializedSize() {
+            return 3 + cardinality * 2;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer) {
+            buffer.put(ARRAY).putShort((short) (cardinality - 1));
+            for (int i = 0; i < cardinality; i++) {
+                buffer.putChar(values[i]);
+            }
+        }
+
+        private BitmapContainer toBitmap() {
+            long[] words = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return new BitmapContainer(words);
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        private BitmapContainer(long[] words) {
+            this.words = words;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+        }
+
+        @Override
+        public Container add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container or(Container other) {
+            long[] union = words.clone();
+            if (other instanceof BitmapContainer bitmap) {
+                for (int i = 0; i < WORDS; i++) {
+                    union[i] |= bitmap.words[i];
+                }
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    union[array.values[i] >>> 6] |= 1L << array.values[i];
+                }
+            }
+            return new BitmapContainer(union);
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(words.clone());
+        }
+
+        @Override
+        public int serializedSize() {
+            return 1 + WORDS * 8;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer) {
+            buffer.put(BITMAP);
+            for (long word : words) {
+                buffer.putLong(word);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.stats.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.stats.repository.dialect.SqlDialect;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class StatsStorageConfig {
+
+    @Bean
+    public SqlDialect sqlDialect(DataSource dataSource) {
+        return SqlDialect.detect(dataSource);
+    }
+}
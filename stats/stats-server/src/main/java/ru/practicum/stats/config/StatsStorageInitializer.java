@@ -0,0 +1,54 @@
+package ru.practicum.stats.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.service.bitmap.StatsBitmapService;
+import ru.practicum.stats.service.compaction.StatsCompactionService;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+import ru.practicum.stats.service.hot.HotWindowService;
+import ru.practicum.stats.service.migration.LegacyHitMigrationService;
+import ru.practicum.stats.service.partition.StatsPartitionService;
+import ru.practicum.stats.service.rollup.StatsRollupService;
+import ru.practicum.stats.service.sketch.StatsSketchService;
+import ru.practicum.stats.service.top.StatsTopService;
+
+@Component
+@RequiredArgsConstructor
+public class StatsStorageInitializer implements SmartInitializingSingleton {
+
+    private final StatsPartitionService partitionService;
+    private final StatsDictionaryService dictionaryService;
+    private final LegacyHitMigrationService migrationService;
+    private final StatsRollupService rollupService;
+    private final StatsSketchService sketchService;
+    private final StatsTopService topService;
+    private final StatsBitmapService bitmapService;
+    private final HotWindowService hotWindowService;
+    private final StatsCompactionService compactionService;
+
+    @Value("${stats.storage.scan-fetch-size:10000}")
+    private int scanFetchSize;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        partitionService.maintain();
+        dictionaryService.preload();
+        migrationService.migrateIfPresent();
+        rebuildDerived();
+    }
+
+    /**
+     * Fills empty rollup, sketch, top and bitmap tables from raw hits and reloads the in-memory views; also run
+     * after a snapshot restore has loaded raw hits behind the ingest listeners' back.
+     */
+    public void rebuildDerived() {
+        rollupService.backfillIfEmpty();
+        sketchService.backfillIfEmpty(scanFetchSize);
+        topService.backfillIfEmpty(scanFetchSize);
+        hotWindowService.rebuild();
+        compactionService.refresh();
+        bitmapService.backfillIfEmpty();
+    }
+}
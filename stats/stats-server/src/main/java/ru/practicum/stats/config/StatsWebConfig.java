@@ -0,0 +1,47 @@
+package ru.practicum.stats.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.practicum.stats.controller.AdmissionInterceptor;
+import ru.practicum.stats.service.admission.AdmissionLimiter;
+import ru.practicum.stats.service.metrics.StatsMetrics;
+
+import java.time.Duration;
+
+/**
+ * Registers admission control for the ingest endpoints as the write lane and the query endpoints as the read lane;
+ * fixed caps apply per lane, not per endpoint.
+ */
+@Configuration
+public class StatsWebConfig implements WebMvcConfigurer {
+
+    private final AdmissionLimiter limiter;
+    private final StatsMetrics metrics;
+    private final boolean admissionEnabled;
+    private final long retryAfterSeconds;
+
+    public StatsWebConfig(AdmissionLimiter limiter,
+                          StatsMetrics metrics,
+                          @Value("${stats.admission.enabled:true}") boolean admissionEnabled,
+                          @Value("${stats.admission.retry-after:1s}") Duration retryAfter) {
+        this.limiter = limiter;
+        this.metrics = metrics;
+        this.admissionEnabled = admissionEnabled;
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!admissionEnabled) {
+            return;
+        }
+        registry.addInterceptor(new AdmissionInterceptor(limiter, AdmissionLimiter.Lane.WRITE, metrics,
+                        retryAfterSeconds))
+                .addPathPatterns("/hit", "/hits");
+        registry.addInterceptor(new AdmissionInterceptor(limiter, AdmissionLimiter.Lane.READ, metrics,
+                        retryAfterSeconds))
+                .addPathPatterns("/stats", "/stats/top", "/stats/timeseries", "/stats/query");
+    }
+}
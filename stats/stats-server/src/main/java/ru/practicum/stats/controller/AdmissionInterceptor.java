@@ -0,0 +1,66 @@
+package ru.practicum.stats.controller;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import ru.practicum.stats.exception.TooManyRequestsException;
+import ru.practicum.stats.service.admission.AdmissionLimiter;
+import ru.practicum.stats.service.metrics.StatsMetrics;
+
+/**
+ * Admits requests of one lane through the {@link AdmissionLimiter}, answering 429 with {@code Retry-After} when
+ * shed. A streamed response returns its permit once streaming starts, without a latency sample.
+ */
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String STARTED = AdmissionInterceptor.class.getName() + ".started";
+
+    private final AdmissionLimiter limiter;
+    private final AdmissionLimiter.Lane lane;
+    private final String laneTag;
+    private final StatsMetrics metrics;
+    private final long retryAfterSeconds;
+
+    public AdmissionInterceptor(AdmissionLimiter limiter, AdmissionLimiter.Lane lane, StatsMetrics metrics,
+                                long retryAfterSeconds) {
+        this.limiter = limiter;
+        this.lane = lane;
+        this.laneTag = lane.name().toLowerCase();
+        this.metrics = metrics;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        AdmissionLimiter.Outcome outcome = limiter.tryAcquire(lane);
+        metrics.recordAdmission(laneTag, outcome.tag());
+        if (outcome != AdmissionLimiter.Outcome.ADMITTED) {
+            throw new TooManyRequestsException("Too many concurrent requests, " + laneTag + " shed by "
+                    + outcome.tag(), retryAfterSeconds);
+        }
+        request.setAttribute(STARTED, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        if (request.getAttribute(STARTED) != null) {
+            request.removeAttribute(STARTED);
+            limiter.release(lane, -1, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(STARTED) instanceof Long started) {
+            request.removeAttribute(STARTED);
+            limiter.release(lane, started, System.nanoTime());
+        }
+    }
+}
@@ -1,25 +1,63 @@
 package ru.practicum.stats.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.stats.dto.EndpointHitBatchAckDto;
 import ru.practicum.stats.dto.EndpointHitCreateDto;
 import ru.practicum.stats.dto.EndpointHitResponseDto;
+import ru.practicum.stats.dto.StatsQueryWindowDto;
 import ru.practicum.stats.dto.ViewStats;
+import ru.practicum.stats.dto.ViewStatsDelta;
+import ru.practicum.stats.dto.ViewStatsSeries;
+import ru.practicum.stats.dto.ViewStatsWindow;
+import ru.practicum.stats.exception.BadRequestException;
 import ru.practicum.stats.service.StatsService;
+import ru.practicum.stats.service.StatsStream;
+import ru.practicum.stats.service.feed.StatsFeedService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping
 @RequiredArgsConstructor
 public class StatsController {
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final StatsService service;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final StatsFeedService feedService;
+
+    @Value("${stats.feed.timeout:30m}")
+    private Duration feedTimeout;
+
+    @Value("${stats.ingest.max-batch:10000}")
+    private int maxBatch;
 
     @PostMapping("/hit")
     public ResponseEntity<EndpointHitResponseDto> savedHit(@RequestBody @Valid EndpointHitCreateDto create) {
@@ -27,6 +65,34 @@ public class StatsController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<EndpointHitBatchAckDto> saveHits(@RequestBody List<EndpointHitCreateDto> hits) {
+        if (hits.size() > maxBatch) {
+            throw tooLargeBatch();
+        }
+        validateAll("Hit", hits);
+        return ResponseEntity.status(HttpStatus.CREATED).body(service.saveHits(hits));
+    }
+
+    @PostMapping(value = "/hits", consumes = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<EndpointHitBatchAckDto> saveHitsNdjson(InputStream body) throws IOException {
+        List<EndpointHitCreateDto> hits = new ArrayList<>();
+        try (MappingIterator<EndpointHitCreateDto> iterator = objectMapper
+                .readerFor(EndpointHitCreateDto.class)
+                .readValues(body)) {
+            while (iterator.hasNextValue()) {
+                if (hits.size() == maxBatch) {
+                    throw tooLargeBatch();
+                }
+                hits.add(iterator.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Malformed NDJSON body: " + e.getOriginalMessage());
+        }
+        validateAll("Hit", hits);
+        return ResponseEntity.status(HttpStatus.CREATED).body(service.saveHits(hits));
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<List<ViewStats>> getStats(@RequestParam("start")
                                                                  @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
@@ -38,9 +104,135 @@ public class StatsController {
                                                                  List<String> uris,
 
                                                     @RequestParam(value = "unique", defaultValue = "false")
-                                                                 boolean unique) {
-        List<ViewStats> result = service.getStats(start, end, uris, unique);
+                                                                 boolean unique,
+                                                    @RequestParam(value = "approximate", defaultValue = "false")
+                                                                 boolean approximate) {
+        List<ViewStats> result = service.getStats(start, end, uris, unique, approximate);
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping("/stats/top")
+    public ResponseEntity<List<ViewStats>> getTop(@RequestParam("start")
+                                                  @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                  LocalDateTime start,
+                                                  @RequestParam("end")
+                                                  @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                  LocalDateTime end,
+                                                  @RequestParam(value = "k", defaultValue = "10")
+                                                  int k) {
+        return ResponseEntity.ok(service.getTop(start, end, k));
+    }
+
+    @GetMapping("/stats/timeseries")
+    public ResponseEntity<List<ViewStatsSeries>> getTimeSeries(@RequestParam("start")
+                                                               @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                               LocalDateTime start,
+                                                               @RequestParam("end")
+                                                               @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                               LocalDateTime end,
+                                                               @RequestParam(value = "uris", required = false)
+                                                               List<String> uris,
+                                                               @RequestParam("bucket")
+                                                               String bucket) {
+        return ResponseEntity.ok(service.getTimeSeries(start, end, uris, parseBucket(bucket)));
+    }
+
+    @PostMapping("/stats/query")
+    public ResponseEntity<List<ViewStatsWindow>> queryWindows(@RequestBody List<StatsQueryWindowDto> windows) {
+        validateAll("Window", windows);
+        return ResponseEntity.ok(service.queryWindows(windows));
+    }
+
+    @GetMapping(value = "/stats", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStats(@RequestParam("start")
+                                                             @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                             LocalDateTime start,
+                                                             @RequestParam("end")
+                                                             @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                             LocalDateTime end,
+                                                             @RequestParam(value = "uris", required = false)
+                                                             List<String> uris,
+                                                             @RequestParam(value = "unique", defaultValue = "false")
+                                                             boolean unique,
+                                                             @RequestParam(value = "approximate", defaultValue = "false")
+                                                             boolean approximate) {
+        StatsStream stream = service.streamStats(start, end, uris, unique, approximate);
+        ObjectWriter writer = objectMapper.writerFor(ViewStats.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                stream.forEach(stats -> writeLine(writer, generator, stats));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
+    /**
+     * Server-sent events with per app/uri hit and unique-ip deltas for uris starting with {@code prefix}: one
+     * {@code deltas} event with a JSON array per update, a comment as heartbeat. The stream ends after
+     * {@code stats.feed.timeout}; updates missed while reconnecting are not replayed.
+     */
+    @GetMapping(value = "/stats/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam(value = "prefix", defaultValue = "/") String prefix) throws IOException {
+        if (!prefix.startsWith("/")) {
+            throw new BadRequestException("Prefix must start with /");
+        }
+        SseEmitter emitter = new SseEmitter(feedTimeout.toMillis());
+        StatsFeedService.Subscription subscription = feedService.subscribe(prefix,
+                deltas -> sendDeltas(emitter, deltas), emitter::complete);
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscription.cancel());
+        emitter.send(SseEmitter.event().comment("subscribed " + prefix));
+        return emitter;
+    }
+
+    private static void sendDeltas(SseEmitter emitter, List<ViewStatsDelta> deltas) throws IOException {
+        if (deltas.isEmpty()) {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        } else {
+            emitter.send(SseEmitter.event().name("deltas").data(deltas, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private static void writeLine(ObjectWriter writer, JsonGenerator generator, ViewStats stats) {
+        try {
+            writer.writeValue(generator, stats);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Accepts both the short form such as {@code 15m}, {@code 1h} or {@code 1d} and ISO-8601 such as {@code PT1H}.
+     */
+    private static Duration parseBucket(String bucket) {
+        try {
+            return DurationStyle.detectAndParse(bucket);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Malformed bucket width: " + bucket);
+        }
+    }
+
+    private BadRequestException tooLargeBatch() {
+        return new BadRequestException("At most " + maxBatch + " hits are allowed per batch");
+    }
+
+    private <T> void validateAll(String name, List<T> items) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) == null) {
+                throw new BadRequestException(name + " #" + i + ": must not be null");
+            }
+            Set<ConstraintViolation<T>> violations = validator.validate(items.get(i));
+            if (!violations.isEmpty()) {
+                ConstraintViolation<T> violation = violations.iterator().next();
+                throw new BadRequestException(name + " #" + i + ": " + violation.getPropertyPath() + " " + violation.getMessage());
+            }
+        }
+    }
+
 }
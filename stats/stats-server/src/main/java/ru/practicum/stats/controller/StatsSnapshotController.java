@@ -0,0 +1,61 @@
+package ru.practicum.stats.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.stats.dto.EndpointHitBatchAckDto;
+import ru.practicum.stats.service.snapshot.StatsSnapshotService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Admin endpoints to export raw hits as a binary snapshot and to seed an empty store from one, e.g.
+ * {@code curl -o hits.ewms '.../admin/snapshot?start=...&end=...'} and
+ * {@code curl --data-binary @hits.ewms -H 'Content-Type: application/octet-stream' .../admin/snapshot}.
+ */
+@RestController
+@RequestMapping("/admin/snapshot")
+@RequiredArgsConstructor
+public class StatsSnapshotController {
+
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final StatsSnapshotService service;
+
+    @GetMapping(produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportSnapshot(@RequestParam("start")
+                                                                @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                                LocalDateTime start,
+                                                                @RequestParam("end")
+                                                                @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                                LocalDateTime end) {
+        StreamingResponseBody body = out -> service.export(start, end, out);
+        String fileName = "stats-" + FILE_DATE.format(start) + "-" + FILE_DATE.format(end) + ".ewms";
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName)
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<EndpointHitBatchAckDto> restoreSnapshot(InputStream body) throws IOException {
+        long restored = service.restore(body);
+        return ResponseEntity.status(HttpStatus.CREATED).body(new EndpointHitBatchAckDto(Math.toIntExact(restored)));
+    }
+}
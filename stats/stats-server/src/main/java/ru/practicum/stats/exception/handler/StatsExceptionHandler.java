@@ -2,12 +2,15 @@ package ru.practicum.stats.exception.handler;
 
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.practicum.stats.exception.ApiError;
 import ru.practicum.stats.exception.BadRequestException;
+import ru.practicum.stats.exception.TooManyRequestsException;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -29,8 +32,17 @@ public class StatsExceptionHandler {
     @ExceptionHandler(BadRequestException.class)
     public ResponseEntity<ApiError> handleBadRequest(BadRequestException ex) {
         log.warn("400 Bad Request: {}", ex.getMessage());
-        return new ResponseEntity<>(
-                buildError(HttpStatus.BAD_REQUEST, "Invalid data", ex.getMessage(), null),
-                HttpStatus.BAD_REQUEST);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(buildError(HttpStatus.BAD_REQUEST, "Invalid data", ex.getMessage(), null));
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiError> handleTooManyRequests(TooManyRequestsException ex) {
+        log.warn("429 Too Many Requests: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(buildError(HttpStatus.TOO_MANY_REQUESTS, "Server overloaded", ex.getMessage(), null));
     }
 }
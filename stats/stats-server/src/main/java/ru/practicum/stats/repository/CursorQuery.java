@@ -0,0 +1,36 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.PreparedStatement;
+
+/**
+ * Runs a named-parameter query as a forward-only cursor with a per-statement fetch size, so rows reach the
+ * handler as the driver pages them in. PostgreSQL only honours the fetch size inside a transaction.
+ */
+final class CursorQuery {
+
+    private CursorQuery() {
+
+    }
+
+    static void query(JdbcOperations jdbc, String sql, SqlParameterSource params, int fetchSize,
+                      RowCallbackHandler handler) {
+        ParsedSql parsed = NamedParameterUtils.parseSqlStatement(sql);
+        String jdbcSql = NamedParameterUtils.substituteNamedParameters(parsed, params);
+        Object[] args = NamedParameterUtils.buildValueArray(parsed, params, null);
+        PreparedStatementCreator creator = new PreparedStatementCreatorFactory(jdbcSql,
+                NamedParameterUtils.buildSqlParameterList(parsed, params)).newPreparedStatementCreator(args);
+        jdbc.query(con -> {
+            PreparedStatement ps = creator.createPreparedStatement(con);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+}
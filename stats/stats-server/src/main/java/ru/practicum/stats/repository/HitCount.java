@@ -0,0 +1,7 @@
+package ru.practicum.stats.repository;
+
+/**
+ * Aggregated hits keyed by dictionary ids; names are resolved only for the final result.
+ */
+public record HitCount(int appId, int uriId, long hits) {
+}
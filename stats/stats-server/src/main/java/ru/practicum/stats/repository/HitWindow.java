@@ -0,0 +1,6 @@
+package ru.practicum.stats.repository;
+
+import java.time.LocalDateTime;
+
+public record HitWindow(int uriId, LocalDateTime start, LocalDateTime end) {
+}
@@ -0,0 +1,33 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.repository.dialect.SqlDialect;
+
+import java.util.List;
+
+@Repository
+public class IngestCheckpointRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+
+    public IngestCheckpointRepository(JdbcTemplate jdbcTemplate, SqlDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    public long find(String name) {
+        List<Long> positions = jdbcTemplate.queryForList(
+                "SELECT position FROM stats_ingest_checkpoint WHERE name = ?", Long.class, name);
+        return positions.isEmpty() ? 0 : positions.get(0);
+    }
+
+    public void save(String name, long position) {
+        String sql = dialect == SqlDialect.POSTGRESQL
+                ? "INSERT INTO stats_ingest_checkpoint (name, position) VALUES (?, ?) "
+                + "ON CONFLICT (name) DO UPDATE SET position = EXCLUDED.position"
+                : "MERGE INTO stats_ingest_checkpoint (name, position) KEY (name) VALUES (?, ?)";
+        jdbcTemplate.update(sql, name, position);
+    }
+}
@@ -0,0 +1,38 @@
+package ru.practicum.stats.repository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Splits an inclusive [start, end] window into raw edges, whole minutes and whole hours.
+ *
+ * <p>Raw rows cover [start, minuteStart) and [minuteEnd, end], minute buckets cover
+ * [minuteStart, hourStart) and [hourEnd, minuteEnd), hour buckets cover [hourStart, hourEnd).
+ */
+public record RollupRange(LocalDateTime start,
+                          LocalDateTime minuteStart,
+                          LocalDateTime hourStart,
+                          LocalDateTime hourEnd,
+                          LocalDateTime minuteEnd,
+                          LocalDateTime end) {
+
+    public static RollupRange of(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime minuteStart = ceil(start, ChronoUnit.MINUTES);
+        LocalDateTime minuteEnd = end.truncatedTo(ChronoUnit.MINUTES);
+        if (!minuteStart.isBefore(minuteEnd)) {
+            return new RollupRange(start, start, start, start, start, end);
+        }
+        LocalDateTime hourStart = ceil(minuteStart, ChronoUnit.HOURS);
+        LocalDateTime hourEnd = minuteEnd.truncatedTo(ChronoUnit.HOURS);
+        if (!hourStart.isBefore(hourEnd)) {
+            hourStart = minuteStart;
+            hourEnd = minuteStart;
+        }
+        return new RollupRange(start, minuteStart, hourStart, hourEnd, minuteEnd, end);
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime truncated = time.truncatedTo(unit);
+        return truncated.equals(time) ? time : truncated.plus(1, unit);
+    }
+}
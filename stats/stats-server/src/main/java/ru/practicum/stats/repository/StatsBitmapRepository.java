@@ -0,0 +1,183 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.collection.RoaringBitmap;
+import ru.practicum.stats.repository.dialect.SqlDialect;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Visitor dictionary mapping IPs to dense int ids, and per app/uri daily bitmaps of those ids.
+ */
+@Repository
+public class StatsBitmapRepository {
+
+    public static final String VISITOR_TABLE = "stats_visitor";
+    public static final String DAY_TABLE = "stats_bitmap_day";
+
+    private static final int LOOKUP_CHUNK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final SqlDialect dialect;
+
+    public StatsBitmapRepository(JdbcTemplate jdbcTemplate,
+                                 NamedParameterJdbcTemplate namedJdbcTemplate,
+                                 SqlDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    public void insertVisitorsIfAbsent(Collection<UUID> ips) {
+        String sql = dialect == SqlDialect.POSTGRESQL
+                ? "INSERT INTO " + VISITOR_TABLE + " (ip) VALUES (?) ON CONFLICT (ip) DO NOTHING"
+                : "MERGE INTO " + VISITOR_TABLE + " (ip) KEY (ip) VALUES (?)";
+        List<Object[]> args = ips.stream().map(ip -> new Object[]{ip}).toList();
+        jdbcTemplate.batchUpdate(sql, args);
+    }
+
+    public void findVisitorIds(Collection<UUID> ips, VisitorHandler handler) {
+        List<UUID> all = new ArrayList<>(ips);
+        for (int from = 0; from < all.size(); from += LOOKUP_CHUNK) {
+            List<UUID> chunk = all.subList(from, Math.min(all.size(), from + LOOKUP_CHUNK));
+            namedJdbcTemplate.query("SELECT id, ip FROM " + VISITOR_TABLE + " WHERE ip IN (:ips)",
+                    new MapSqlParameterSource("ips", chunk),
+                    (RowCallbackHandler) rs -> handler.accept(rs.getObject("ip", UUID.class), rs.getInt("id")));
+        }
+    }
+
+    public void merge(DayKey key, RoaringBitmap visitors) {
+        List<byte[]> existing = jdbcTemplate.query(
+                "SELECT visitors FROM " + DAY_TABLE + " WHERE uri_id = ? AND app_id = ? AND bucket = ? FOR UPDATE",
+                (rs, rowNum) -> rs.getBytes("visitors"),
+                key.uriId(), key.appId(), Timestamp.valueOf(key.day()));
+        if (existing.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO " + DAY_TABLE + " (app_id, uri_id, bucket, visitors) VALUES (?, ?, ?, ?)",
+                    key.appId(), key.uriId(), Timestamp.valueOf(key.day()), visitors.toBytes());
+            return;
+        }
+        RoaringBitmap merged = RoaringBitmap.fromBytes(existing.get(0));
+        merged.or(visitors);
+        jdbcTemplate.update("UPDATE " + DAY_TABLE + " SET visitors = ? WHERE uri_id = ? AND app_id = ? AND bucket = ?",
+                merged.toBytes(), key.uriId(), key.appId(), Timestamp.valueOf(key.day()));
+    }
+
+    /**
+     * Reads the bitmaps of days in [from, to), of all uris when {@code uriIds} is {@code null}.
+     */
+    public void findBitmaps(LocalDateTime from, LocalDateTime to, Collection<Integer> uriIds, int fetchSize,
+                            BitmapHandler handler) {
+        String sql = "SELECT app_id, uri_id, bucket, visitors FROM " + DAY_TABLE
+                + " WHERE bucket >= :from AND bucket < :to"
+                + (uriIds != null ? " AND uri_id IN (:uriIds)" : "");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        if (uriIds != null) {
+            params.addValue("uriIds", uriIds);
+        }
+        CursorQuery.query(jdbcTemplate, sql, params, fetchSize, rs -> handler.accept(
+                new DayKey(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getTimestamp("bucket").toLocalDateTime()),
+                RoaringBitmap.fromBytes(rs.getBytes("visitors"))));
+    }
+
+    /**
+     * Reads the distinct visitor IPs of raw hits in [start, firstDay) and [lastDay, end], the partial days at
+     * both ends of a range that bitmaps of whole days do not cover.
+     */
+    public void findEdgeIps(LocalDateTime start, LocalDateTime firstDay, LocalDateTime lastDay, LocalDateTime end,
+                            Collection<Integer> uriIds, IpHandler handler) {
+        String sql = "SELECT DISTINCT app_id, uri_id, ip FROM stats_hit "
+                + "WHERE ((created >= :start AND created < :firstDay) OR (created >= :lastDay AND created <= :end))"
+                + (uriIds != null ? " AND uri_id IN (:uriIds)" : "");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("firstDay", Timestamp.valueOf(firstDay))
+                .addValue("lastDay", Timestamp.valueOf(lastDay))
+                .addValue("end", Timestamp.valueOf(end));
+        if (uriIds != null) {
+            params.addValue("uriIds", uriIds);
+        }
+        namedJdbcTemplate.query(sql, params, (RowCallbackHandler) rs ->
+                handler.accept(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getObject("ip", UUID.class)));
+    }
+
+    public void scanDailyIps(int fetchSize, DailyIpHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT app_id, uri_id, DATE_TRUNC('day', created) AS bucket, ip "
+                    + "FROM stats_hit ORDER BY bucket");
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> handler.accept(
+                new DayKey(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getTimestamp("bucket").toLocalDateTime()),
+                rs.getObject("ip", UUID.class)));
+    }
+
+    /**
+     * Reads every stored bitmap, of all days and uris.
+     */
+    public void scanBitmaps(int fetchSize, Consumer<RoaringBitmap> handler) {
+        CursorQuery.query(jdbcTemplate, "SELECT visitors FROM " + DAY_TABLE, new MapSqlParameterSource(), fetchSize,
+                rs -> handler.accept(RoaringBitmap.fromBytes(rs.getBytes("visitors"))));
+    }
+
+    public void scanVisitorIds(int fetchSize, IntConsumer handler) {
+        CursorQuery.query(jdbcTemplate, "SELECT id FROM " + VISITOR_TABLE, new MapSqlParameterSource(), fetchSize,
+                rs -> handler.accept(rs.getInt("id")));
+    }
+
+    public void deleteVisitors(List<Integer> ids) {
+        jdbcTemplate.batchUpdate("DELETE FROM " + VISITOR_TABLE + " WHERE id = ?",
+                ids.stream().map(id -> new Object[]{id}).toList());
+    }
+
+    public void deleteBefore(LocalDateTime cutoff) {
+        jdbcTemplate.update("DELETE FROM " + DAY_TABLE + " WHERE bucket < ?", Timestamp.valueOf(cutoff));
+    }
+
+    public boolean isEmpty() {
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM " + DAY_TABLE + " FETCH FIRST 1 ROWS ONLY) t", Integer.class);
+        return rows == null || rows == 0;
+    }
+
+    public void deleteAll() {
+        jdbcTemplate.update("DELETE FROM " + DAY_TABLE);
+    }
+
+    public record DayKey(int appId, int uriId, LocalDateTime day) {
+    }
+
+    @FunctionalInterface
+    public interface VisitorHandler {
+        void accept(UUID ip, int id);
+    }
+
+    @FunctionalInterface
+    public interface BitmapHandler {
+        void accept(DayKey key, RoaringBitmap visitors);
+    }
+
+    @FunctionalInterface
+    public interface IpHandler {
+        void accept(int appId, int uriId, UUID ip);
+    }
+
+    @FunctionalInterface
+    public interface DailyIpHandler {
+        void accept(DayKey key, UUID ip);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.dialect.SqlDialect;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Raw-hit writes for bulk restores: multi-row inserts and dropping the secondary indexes of {@code stats_hit}
+ * for the duration of a load, so they are built once from sorted data instead of maintained row by row.
+ */
+@Repository
+public class StatsBulkLoadRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO stats_hit (app_id, uri_id, ip, created) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?)";
+
+    /**
+     * The secondary indexes of {@code stats_hit} as declared in {@code schema.sql}, by name.
+     */
+    private static final Map<String, String> SECONDARY_INDEXES = new LinkedHashMap<>();
+
+    static {
+        SECONDARY_INDEXES.put("stats_hit_created_idx", "(created)");
+        SECONDARY_INDEXES.put("stats_hit_uri_created_idx", "(uri_id, created)");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+
+    public StatsBulkLoadRepository(JdbcTemplate jdbcTemplate, SqlDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    public boolean isEmpty() {
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM stats_hit FETCH FIRST 1 ROWS ONLY) t", Integer.class);
+        return rows == null || rows == 0;
+    }
+
+    /**
+     * Inserts encoded hits with one multi-row statement.
+     */
+    public void insertRows(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        String sql = INSERT_SQL + String.join(", ", Collections.nCopies(hits.size(), ROW));
+        jdbcTemplate.update(sql, ps -> {
+            int i = 1;
+            for (EndpointHit hit : hits) {
+                ps.setInt(i++, hit.getAppId());
+                ps.setInt(i++, hit.getUriId());
+                ps.setObject(i++, IpAddressUtils.toUuid(hit.getIp()));
+                ps.setTimestamp(i++, Timestamp.valueOf(hit.getTimestamp()));
+            }
+        });
+    }
+
+    public void dropSecondaryIndexes() {
+        SECONDARY_INDEXES.keySet().forEach(name -> jdbcTemplate.execute("DROP INDEX IF EXISTS " + name));
+    }
+
+    public void createSecondaryIndexes() {
+        SECONDARY_INDEXES.forEach((name, columns) ->
+                jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + name + " ON stats_hit " + columns));
+    }
+
+    /**
+     * Refreshes planner statistics, which are stale right after a bulk load.
+     */
+    public void analyze() {
+        jdbcTemplate.execute(dialect == SqlDialect.POSTGRESQL ? "ANALYZE stats_hit" : "ANALYZE TABLE stats_hit");
+    }
+}
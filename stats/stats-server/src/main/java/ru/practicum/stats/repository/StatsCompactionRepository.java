@@ -0,0 +1,182 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.repository.dialect.SqlDialect;
+import ru.practicum.stats.sketch.HyperLogLog;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Raw-hit side and aggregate side of compaction: raw hits are removed and returned in chunks, and folded into
+ * per app/uri daily rows that keep the hit count and a unique-ip sketch.
+ */
+@Repository
+public class StatsCompactionRepository {
+
+    public static final String DAILY_TABLE = "stats_hit_daily";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+
+    public StatsCompactionRepository(JdbcTemplate jdbcTemplate, SqlDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Deletes up to {@code chunkSize} raw hits created before {@code cutoff} and hands each deleted row to the
+     * handler, so the caller can fold exactly what was removed within the same transaction.
+     */
+    public int drainBefore(LocalDateTime cutoff, int chunkSize, DrainedHitHandler handler) {
+        String delete = "DELETE FROM stats_hit WHERE id IN (SELECT id FROM stats_hit WHERE created < ? "
+                + "FETCH FIRST " + chunkSize + " ROWS ONLY)";
+        String sql = dialect == SqlDialect.POSTGRESQL
+                ? delete + " RETURNING app_id, uri_id, ip, created"
+                : "SELECT app_id, uri_id, ip, created FROM OLD TABLE (" + delete + ")";
+        int[] drained = new int[1];
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            handler.accept(
+                    rs.getInt("app_id"),
+                    rs.getInt("uri_id"),
+                    IpAddressUtils.fromUuid(rs.getObject("ip", UUID.class)),
+                    rs.getTimestamp("created").toLocalDateTime());
+            drained[0]++;
+        }, Timestamp.valueOf(cutoff));
+        return drained[0];
+    }
+
+    public void merge(int appId, int uriId, LocalDateTime day, long hits, HyperLogLog sketch) {
+        List<byte[]> existing = jdbcTemplate.query(
+                "SELECT sketch FROM " + DAILY_TABLE + " WHERE uri_id = ? AND app_id = ? AND bucket = ? FOR UPDATE",
+                (rs, rowNum) -> rs.getBytes("sketch"),
+                uriId, appId, Timestamp.valueOf(day));
+        if (existing.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO " + DAILY_TABLE + " (app_id, uri_id, bucket, hits, sketch) "
+                    + "VALUES (?, ?, ?, ?, ?)", appId, uriId, Timestamp.valueOf(day), hits, sketch.toBytes());
+            return;
+        }
+        HyperLogLog merged = HyperLogLog.fromBytes(existing.get(0));
+        merged.merge(sketch);
+        jdbcTemplate.update("UPDATE " + DAILY_TABLE + " SET hits = hits + ?, sketch = ? "
+                        + "WHERE uri_id = ? AND app_id = ? AND bucket = ?",
+                hits, merged.toBytes(), uriId, appId, Timestamp.valueOf(day));
+    }
+
+    /**
+     * Returns the most recent compacted day, or {@code null} if nothing was compacted yet.
+     */
+    public LocalDateTime findLastDay() {
+        Timestamp last = jdbcTemplate.queryForObject("SELECT MAX(bucket) FROM " + DAILY_TABLE, Timestamp.class);
+        return last == null ? null : last.toLocalDateTime();
+    }
+
+    /**
+     * Streams daily rows of the days in [fromDay, toDay).
+     */
+    public void findDaily(LocalDateTime fromDay, LocalDateTime toDay, List<Integer> uriIds, int fetchSize,
+                          DailyHandler handler) {
+        boolean filterUris = uriIds != null && !uriIds.isEmpty();
+        String sql = "SELECT app_id, uri_id, bucket, hits, sketch FROM " + DAILY_TABLE
+                + " WHERE bucket >= :fromDay AND bucket < :toDay"
+                + (filterUris ? " AND uri_id IN (:uriIds)" : "");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("fromDay", Timestamp.valueOf(fromDay))
+                .addValue("toDay", Timestamp.valueOf(toDay));
+        if (filterUris) {
+            params.addValue("uriIds", uriIds);
+        }
+        CursorQuery.query(jdbcTemplate, sql, params, fetchSize, rs -> handler.accept(
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                rs.getTimestamp("bucket").toLocalDateTime(),
+                rs.getLong("hits"),
+                HyperLogLog.fromBytes(rs.getBytes("sketch"))));
+    }
+
+    /**
+     * Streams the daily rows of every window's uri for the days in [start, end) of that window, keyed by window
+     * index; the bounds are expected to be day-aligned.
+     */
+    public void findWindowDaily(List<HitWindow> windows, WindowDailyHandler handler) {
+        WindowValues values = WindowValues.of(windows);
+        String sql = "SELECT w.idx, d.hits, d.sketch FROM " + values.table()
+                + " JOIN " + DAILY_TABLE + " d ON d.uri_id = w.uri_id"
+                + " AND d.bucket >= w.start_at AND d.bucket < w.end_at";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> handler.accept(
+                rs.getInt("idx"),
+                rs.getLong("hits"),
+                HyperLogLog.fromBytes(rs.getBytes("sketch"))), values.args());
+    }
+
+    /**
+     * Streams distinct app/uri/ip triples of raw hits in [start, end].
+     */
+    public void scanIps(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, int fetchSize,
+                        IpHandler handler) {
+        boolean filterUris = uriIds != null && !uriIds.isEmpty();
+        String sql = "SELECT DISTINCT app_id, uri_id, ip FROM stats_hit WHERE created BETWEEN :start AND :end"
+                + (filterUris ? " AND uri_id IN (:uriIds)" : "");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        if (filterUris) {
+            params.addValue("uriIds", uriIds);
+        }
+        CursorQuery.query(jdbcTemplate, sql, params, fetchSize, rs -> handler.accept(
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                IpAddressUtils.fromUuid(rs.getObject("ip", UUID.class))));
+    }
+
+    /**
+     * Streams distinct ips of raw hits inside each window, keyed by window index.
+     */
+    public void findWindowIps(List<HitWindow> windows, WindowIpHandler handler) {
+        WindowValues values = WindowValues.of(windows);
+        String sql = "SELECT DISTINCT w.idx, h.ip FROM " + values.table()
+                + " JOIN stats_hit h ON h.uri_id = w.uri_id AND h.created BETWEEN w.start_at AND w.end_at";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> handler.accept(
+                rs.getInt("idx"),
+                IpAddressUtils.fromUuid(rs.getObject("ip", UUID.class))), values.args());
+    }
+
+    public void deleteBefore(LocalDateTime cutoff) {
+        jdbcTemplate.update("DELETE FROM " + DAILY_TABLE + " WHERE bucket < ?", Timestamp.valueOf(cutoff));
+    }
+
+    public void deleteAll() {
+        jdbcTemplate.update("DELETE FROM " + DAILY_TABLE);
+    }
+
+    @FunctionalInterface
+    public interface DrainedHitHandler {
+        void accept(int appId, int uriId, byte[] ip, LocalDateTime created);
+    }
+
+    @FunctionalInterface
+    public interface DailyHandler {
+        void accept(int appId, int uriId, LocalDateTime day, long hits, HyperLogLog sketch);
+    }
+
+    @FunctionalInterface
+    public interface WindowDailyHandler {
+        void accept(int index, long hits, HyperLogLog sketch);
+    }
+
+    @FunctionalInterface
+    public interface IpHandler {
+        void accept(int appId, int uriId, byte[] ip);
+    }
+
+    @FunctionalInterface
+    public interface WindowIpHandler {
+        void accept(int index, byte[] ip);
+    }
+}
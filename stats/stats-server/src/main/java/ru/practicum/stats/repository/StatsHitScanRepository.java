@@ -0,0 +1,164 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.repository.dialect.SqlDialect;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+@Repository
+public class StatsHitScanRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+
+    public StatsHitScanRepository(JdbcTemplate jdbcTemplate, SqlDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Streams per app/uri hit counts over raw hits in [start, end], largest first, from a forward-only cursor.
+     */
+    public void streamCounts(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, boolean unique,
+                             int fetchSize, Consumer<HitCount> consumer) {
+        boolean filterUris = uriIds != null && !uriIds.isEmpty();
+        String sql = "SELECT app_id, uri_id, " + (unique ? "COUNT(DISTINCT ip)" : "COUNT(*)") + " AS hits "
+                + "FROM stats_hit WHERE created BETWEEN :start AND :end"
+                + (filterUris ? " AND uri_id IN (:uriIds)" : "")
+                + " GROUP BY app_id, uri_id ORDER BY hits DESC";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        if (filterUris) {
+            params.addValue("uriIds", uriIds);
+        }
+        CursorQuery.query(jdbcTemplate, sql, params, fetchSize, rs -> consumer.accept(
+                new HitCount(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits"))));
+    }
+
+    /**
+     * Streams hit and unique-ip counts of raw hits in [start, end] per app/uri and per bucket of
+     * {@code bucketSeconds}, in one pass and ordered by app, uri and bucket. Buckets are numbered from the epoch,
+     * so bucket {@code n} starts at {@code n * bucketSeconds} seconds; buckets without hits are not returned.
+     */
+    public void streamSeries(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, long bucketSeconds,
+                             int fetchSize, BucketHandler handler) {
+        boolean filterUris = uriIds != null && !uriIds.isEmpty();
+        String epochSeconds = dialect == SqlDialect.POSTGRESQL
+                ? "EXTRACT(EPOCH FROM created)"
+                : "DATEDIFF('SECOND', TIMESTAMP '1970-01-01 00:00:00', created)";
+        String sql = "SELECT app_id, uri_id, bucket, COUNT(*) AS hits, COUNT(DISTINCT ip) AS uniq FROM ("
+                + "SELECT app_id, uri_id, ip, CAST(FLOOR(" + epochSeconds + " / " + bucketSeconds + ") AS BIGINT) AS bucket "
+                + "FROM stats_hit WHERE created BETWEEN :start AND :end"
+                + (filterUris ? " AND uri_id IN (:uriIds)" : "")
+                + ") h GROUP BY app_id, uri_id, bucket ORDER BY app_id, uri_id, bucket";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        if (filterUris) {
+            params.addValue("uriIds", uriIds);
+        }
+        CursorQuery.query(jdbcTemplate, sql, params, fetchSize, rs -> handler.accept(
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                rs.getLong("bucket"),
+                rs.getLong("hits"),
+                rs.getLong("uniq")));
+    }
+
+    /**
+     * Counts hits and unique ips for every window in one statement: the windows are joined to raw hits as an
+     * inline table, so each one becomes a bounded range over the (uri, created) index. Handles results by window
+     * index; windows without hits are not reported.
+     */
+    public void countWindows(List<HitWindow> windows, WindowHandler handler) {
+        if (windows.isEmpty()) {
+            return;
+        }
+        WindowValues values = WindowValues.of(windows);
+        String sql = "SELECT w.idx, COUNT(*) AS hits, COUNT(DISTINCT h.ip) AS uniq FROM " + values.table()
+                + " JOIN stats_hit h ON h.uri_id = w.uri_id AND h.created BETWEEN w.start_at AND w.end_at"
+                + " GROUP BY w.idx";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> handler.accept(
+                rs.getInt("idx"),
+                rs.getLong("hits"),
+                rs.getLong("uniq")), values.args());
+    }
+
+    /**
+     * Streams hits created at or after {@code from} in time order; must run inside a transaction
+     * for the fetch size to take effect on PostgreSQL.
+     */
+    public void scanSince(LocalDateTime from, int fetchSize, HitHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT app_id, uri_id, ip, created FROM stats_hit "
+                    + "WHERE created >= ? ORDER BY created");
+            ps.setTimestamp(1, Timestamp.valueOf(from));
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> handler.accept(
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                IpAddressUtils.fromUuid(rs.getObject("ip", UUID.class)),
+                rs.getTimestamp("created").toLocalDateTime()));
+    }
+
+    /**
+     * Streams hits created in [start, end] in creation order from a forward-only cursor; must run inside a
+     * transaction for the fetch size to take effect on PostgreSQL.
+     */
+    public void scanRange(LocalDateTime start, LocalDateTime end, int fetchSize, HitHandler handler) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        CursorQuery.query(jdbcTemplate, "SELECT app_id, uri_id, ip, created FROM stats_hit "
+                + "WHERE created BETWEEN :start AND :end ORDER BY created, id", params, fetchSize, rs -> handler.accept(
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                IpAddressUtils.fromUuid(rs.getObject("ip", UUID.class)),
+                rs.getTimestamp("created").toLocalDateTime()));
+    }
+
+    /**
+     * Streams the hit count of every ip per app for the given uris, least recently seen ips first; must run inside a
+     * transaction for the fetch size to take effect on PostgreSQL.
+     */
+    public void countIps(List<Integer> uriIds, int fetchSize, IpCountHandler handler) {
+        MapSqlParameterSource params = new MapSqlParameterSource("uriIds", uriIds);
+        CursorQuery.query(jdbcTemplate, "SELECT app_id, uri_id, ip, COUNT(*) AS hits FROM stats_hit "
+                + "WHERE uri_id IN (:uriIds) GROUP BY app_id, uri_id, ip ORDER BY MAX(created)", params, fetchSize, rs -> handler.accept(
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                rs.getObject("ip", UUID.class),
+                rs.getLong("hits")));
+    }
+
+    @FunctionalInterface
+    public interface BucketHandler {
+        void accept(int appId, int uriId, long bucket, long hits, long unique);
+    }
+
+    @FunctionalInterface
+    public interface WindowHandler {
+        void accept(int index, long hits, long unique);
+    }
+
+    @FunctionalInterface
+    public interface HitHandler {
+        void accept(int appId, int uriId, byte[] ip, LocalDateTime created);
+    }
+
+    @FunctionalInterface
+    public interface IpCountHandler {
+        void accept(int appId, int uriId, UUID ip, long hits);
+    }
+}
@@ -0,0 +1,50 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Raw-hit aggregation as prepared native SQL: the uri filter is bound as a single array with
+ * {@code uri_id = ANY(?)}, so there are only four statement shapes however many uris are requested, and the driver
+ * and the database can reuse their plans. Rows are mapped straight to {@link HitCount}.
+ */
+@Repository
+public class StatsNativeQueryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    public StatsNativeQueryRepository(JdbcTemplate jdbcTemplate,
+                                      @Value("${stats.query.native.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    public List<HitCount> findStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, boolean unique) {
+        boolean filterUris = uriIds != null && !uriIds.isEmpty();
+        String sql = "SELECT app_id, uri_id, " + (unique ? "COUNT(DISTINCT ip)" : "COUNT(*)") + " AS hits "
+                + "FROM stats_hit WHERE created BETWEEN ? AND ?"
+                + (filterUris ? " AND uri_id = ANY(?)" : "")
+                + " GROUP BY app_id, uri_id ORDER BY hits DESC";
+        List<HitCount> counts = new ArrayList<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setTimestamp(1, Timestamp.valueOf(start));
+            ps.setTimestamp(2, Timestamp.valueOf(end));
+            if (filterUris) {
+                ps.setArray(3, con.createArrayOf("INTEGER", uriIds.toArray()));
+            }
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> counts.add(new HitCount(rs.getInt(1), rs.getInt(2), rs.getLong(3))));
+        return counts;
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.stats.repository;
+
+import ru.practicum.stats.entity.EndpointHit;
+
+import java.util.List;
+
+
+public interface StatsRepositoryBatch {
+    int batchInsert(List<EndpointHit> hits);
+
+}
@@ -0,0 +1,39 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public class StatsRepositoryBatchImpl implements StatsRepositoryBatch {
+
+    private static final String INSERT_SQL = "INSERT INTO stats_hit (app_id, uri_id, ip, created) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public StatsRepositoryBatchImpl(JdbcTemplate jdbcTemplate,
+                                    @Value("${stats.ingest.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public int batchInsert(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, hits, batchSize, (ps, hit) -> {
+            ps.setInt(1, hit.getAppId());
+            ps.setInt(2, hit.getUriId());
+            ps.setObject(3, IpAddressUtils.toUuid(hit.getIp()));
+            ps.setTimestamp(4, hit.getTimestamp() == null ? null : Timestamp.valueOf(hit.getTimestamp()));
+        });
+        return hits.size();
+    }
+}
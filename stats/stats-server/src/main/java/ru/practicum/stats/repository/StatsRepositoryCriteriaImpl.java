@@ -3,8 +3,8 @@ package ru.practicum.stats.repository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.criteria.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
-import ru.practicum.stats.dto.ViewStats;
 import ru.practicum.stats.entity.EndpointHit;
 
 import java.time.LocalDateTime;
@@ -17,32 +17,48 @@ public class StatsRepositoryCriteriaImpl implements StatsRepositoryCriteria {
     @PersistenceContext
     private EntityManager em;
 
+    private final StatsNativeQueryRepository nativeQueryRepository;
+    private final boolean nativeQueries;
+
+    public StatsRepositoryCriteriaImpl(StatsNativeQueryRepository nativeQueryRepository,
+                                       @Value("${stats.query.native.enabled:false}") boolean nativeQueries) {
+        this.nativeQueryRepository = nativeQueryRepository;
+        this.nativeQueries = nativeQueries;
+    }
+
+    /**
+     * Runs on {@link StatsNativeQueryRepository} when {@code stats.query.native.enabled} is set, otherwise as a
+     * Criteria query.
+     */
     @Override
-    public List<ViewStats> findStatsByCriteria(LocalDateTime start,
-                                               LocalDateTime end,
-                                               List<String> uris,
-                                               boolean unique) {
+    public List<HitCount> findStatsByCriteria(LocalDateTime start,
+                                              LocalDateTime end,
+                                              List<Integer> uriIds,
+                                              boolean unique) {
+        if (nativeQueries) {
+            return nativeQueryRepository.findStats(start, end, uriIds, unique);
+        }
         CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<ViewStats> dataQuery = cb.createQuery(ViewStats.class);
+        CriteriaQuery<HitCount> dataQuery = cb.createQuery(HitCount.class);
 
         Root<EndpointHit> root = dataQuery.from(EndpointHit.class);
         Expression<Long> hitCount = unique ? cb.countDistinct(root.get("ip")) : cb.count(root.get("id"));
 
         dataQuery.select(cb.construct(
-                ViewStats.class,
-                root.get("app"),
-                root.get("uri"),
+                HitCount.class,
+                root.get("appId"),
+                root.get("uriId"),
                 hitCount
         ));
 
         List<Predicate> predicates = new ArrayList<>();
         predicates.add(cb.between(root.get("timestamp"), start, end));
 
-        if (uris != null && !uris.isEmpty()) {
-            predicates.add(root.get("uri").in(uris));
+        if (uriIds != null && !uriIds.isEmpty()) {
+            predicates.add(root.get("uriId").in(uriIds));
         }
         dataQuery.where(predicates.toArray(new Predicate[0]));
-        dataQuery.groupBy(root.get("app"), root.get("uri"));
+        dataQuery.groupBy(root.get("appId"), root.get("uriId"));
         dataQuery.orderBy(cb.desc(hitCount));
 
         return em.createQuery(dataQuery).getResultList();
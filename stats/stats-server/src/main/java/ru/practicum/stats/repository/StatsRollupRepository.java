@@ -0,0 +1,130 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.repository.dialect.SqlDialect;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+public class StatsRollupRepository {
+
+    public static final String MINUTE_TABLE = "stats_rollup_minute";
+    public static final String HOUR_TABLE = "stats_rollup_hour";
+
+    private static final String POSTGRES_UPSERT = "INSERT INTO %s AS r (app_id, uri_id, bucket, hits) VALUES (?, ?, ?, ?) "
+            + "ON CONFLICT (uri_id, app_id, bucket) DO UPDATE SET hits = r.hits + EXCLUDED.hits";
+
+    private static final String H2_UPSERT = "MERGE INTO %s r "
+            + "USING (VALUES (CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS TIMESTAMP), CAST(? AS BIGINT))) "
+            + "AS v(app_id, uri_id, bucket, hits) "
+            + "ON r.uri_id = v.uri_id AND r.app_id = v.app_id AND r.bucket = v.bucket "
+            + "WHEN MATCHED THEN UPDATE SET hits = r.hits + v.hits "
+            + "WHEN NOT MATCHED THEN INSERT (app_id, uri_id, bucket, hits) VALUES (v.app_id, v.uri_id, v.bucket, v.hits)";
+
+    private static final String BACKFILL = "INSERT INTO %s (app_id, uri_id, bucket, hits) "
+            + "SELECT app_id, uri_id, DATE_TRUNC('%s', created), COUNT(*) FROM stats_hit "
+            + "GROUP BY app_id, uri_id, DATE_TRUNC('%s', created)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final SqlDialect dialect;
+
+    public StatsRollupRepository(JdbcTemplate jdbcTemplate,
+                                 NamedParameterJdbcTemplate namedJdbcTemplate,
+                                 SqlDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    public void increment(String table, List<RollupIncrement> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+        String sql = String.format(dialect == SqlDialect.POSTGRESQL ? POSTGRES_UPSERT : H2_UPSERT, table);
+        jdbcTemplate.batchUpdate(sql, increments, increments.size(), (ps, increment) -> {
+            ps.setInt(1, increment.appId());
+            ps.setInt(2, increment.uriId());
+            ps.setTimestamp(3, Timestamp.valueOf(increment.bucket()));
+            ps.setLong(4, increment.hits());
+        });
+    }
+
+    public boolean isEmpty() {
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM " + MINUTE_TABLE + " FETCH FIRST 1 ROWS ONLY) t", Integer.class);
+        return rows == null || rows == 0;
+    }
+
+    public void backfill() {
+        jdbcTemplate.update(String.format(BACKFILL, MINUTE_TABLE, "minute", "minute"));
+        jdbcTemplate.update(String.format(BACKFILL, HOUR_TABLE, "hour", "hour"));
+    }
+
+    public void deleteBefore(LocalDateTime cutoff) {
+        jdbcTemplate.update("DELETE FROM " + MINUTE_TABLE + " WHERE bucket < ?", toTimestamp(cutoff));
+        jdbcTemplate.update("DELETE FROM " + HOUR_TABLE + " WHERE bucket < ?", toTimestamp(cutoff));
+    }
+
+    public List<HitCount> findStats(RollupRange range, List<Integer> uriIds) {
+        return namedJdbcTemplate.query(statsSql(uriIds), statsParams(range, uriIds), (rs, rowNum) -> toHitCount(rs));
+    }
+
+    /**
+     * Same as {@link #findStats} but hands rows over one by one from a forward-only cursor.
+     */
+    public void streamStats(RollupRange range, List<Integer> uriIds, int fetchSize, Consumer<HitCount> consumer) {
+        CursorQuery.query(jdbcTemplate, statsSql(uriIds), statsParams(range, uriIds), fetchSize,
+                rs -> consumer.accept(toHitCount(rs)));
+    }
+
+    private static String statsSql(List<Integer> uriIds) {
+        String uriFilter = uriIds != null && !uriIds.isEmpty() ? " AND uri_id IN (:uriIds)" : "";
+        return "SELECT app_id, uri_id, SUM(hits) AS hits FROM ("
+                + "SELECT app_id, uri_id, COUNT(*) AS hits FROM stats_hit "
+                + "WHERE ((created >= :start AND created < :minuteStart) OR (created >= :minuteEnd AND created <= :end))"
+                + uriFilter + " GROUP BY app_id, uri_id "
+                + "UNION ALL "
+                + "SELECT app_id, uri_id, SUM(hits) AS hits FROM " + MINUTE_TABLE + " "
+                + "WHERE ((bucket >= :minuteStart AND bucket < :hourStart) OR (bucket >= :hourEnd AND bucket < :minuteEnd))"
+                + uriFilter + " GROUP BY app_id, uri_id "
+                + "UNION ALL "
+                + "SELECT app_id, uri_id, SUM(hits) AS hits FROM " + HOUR_TABLE + " "
+                + "WHERE bucket >= :hourStart AND bucket < :hourEnd"
+                + uriFilter + " GROUP BY app_id, uri_id"
+                + ") t GROUP BY app_id, uri_id ORDER BY hits DESC";
+    }
+
+    private static MapSqlParameterSource statsParams(RollupRange range, List<Integer> uriIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", toTimestamp(range.start()))
+                .addValue("minuteStart", toTimestamp(range.minuteStart()))
+                .addValue("hourStart", toTimestamp(range.hourStart()))
+                .addValue("hourEnd", toTimestamp(range.hourEnd()))
+                .addValue("minuteEnd", toTimestamp(range.minuteEnd()))
+                .addValue("end", toTimestamp(range.end()));
+        if (uriIds != null && !uriIds.isEmpty()) {
+            params.addValue("uriIds", uriIds);
+        }
+        return params;
+    }
+
+    private static HitCount toHitCount(ResultSet rs) throws SQLException {
+        return new HitCount(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits"));
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime time) {
+        return Timestamp.valueOf(time);
+    }
+
+    public record RollupIncrement(int appId, int uriId, LocalDateTime bucket, long hits) {
+    }
+}
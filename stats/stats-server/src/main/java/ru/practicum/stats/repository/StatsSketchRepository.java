@@ -0,0 +1,127 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.sketch.HyperLogLog;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public class StatsSketchRepository {
+
+    public static final String HOUR_TABLE = "stats_hll_hour";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public StatsSketchRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+    }
+
+    public void merge(SketchKey key, HyperLogLog sketch) {
+        List<byte[]> existing = jdbcTemplate.query(
+                "SELECT sketch FROM " + HOUR_TABLE + " WHERE uri_id = ? AND app_id = ? AND bucket = ? FOR UPDATE",
+                (rs, rowNum) -> rs.getBytes("sketch"),
+                key.uriId(), key.appId(), Timestamp.valueOf(key.bucket()));
+        if (existing.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO " + HOUR_TABLE + " (app_id, uri_id, bucket, sketch) VALUES (?, ?, ?, ?)",
+                    key.appId(), key.uriId(), Timestamp.valueOf(key.bucket()), sketch.toBytes());
+            return;
+        }
+        HyperLogLog merged = HyperLogLog.fromBytes(existing.get(0));
+        merged.merge(sketch);
+        jdbcTemplate.update("UPDATE " + HOUR_TABLE + " SET sketch = ? WHERE uri_id = ? AND app_id = ? AND bucket = ?",
+                merged.toBytes(), key.uriId(), key.appId(), Timestamp.valueOf(key.bucket()));
+    }
+
+    public void findSketches(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, SketchHandler handler) {
+        boolean filterUris = uriIds != null && !uriIds.isEmpty();
+        String sql = "SELECT app_id, uri_id, bucket, sketch FROM " + HOUR_TABLE
+                + " WHERE bucket >= :from AND bucket < :to"
+                + (filterUris ? " AND uri_id IN (:uriIds)" : "");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        if (filterUris) {
+            params.addValue("uriIds", uriIds);
+        }
+        namedJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> handler.accept(
+                new SketchKey(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getTimestamp("bucket").toLocalDateTime()),
+                HyperLogLog.fromBytes(rs.getBytes("sketch"))));
+    }
+
+    public void findEdgeIps(RollupRange range, List<Integer> uriIds, IpHandler handler) {
+        boolean filterUris = uriIds != null && !uriIds.isEmpty();
+        String sql = "SELECT DISTINCT app_id, uri_id, ip FROM stats_hit "
+                + "WHERE ((created >= :start AND created < :hourStart) OR (created >= :hourEnd AND created <= :end))"
+                + (filterUris ? " AND uri_id IN (:uriIds)" : "");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(range.start()))
+                .addValue("hourStart", Timestamp.valueOf(range.hourStart()))
+                .addValue("hourEnd", Timestamp.valueOf(range.hourEnd()))
+                .addValue("end", Timestamp.valueOf(range.end()));
+        if (filterUris) {
+            params.addValue("uriIds", uriIds);
+        }
+        namedJdbcTemplate.query(sql, params, (RowCallbackHandler) rs ->
+                handler.accept(rs.getInt("app_id"), rs.getInt("uri_id"), toIp(rs)));
+    }
+
+    public void deleteBefore(LocalDateTime cutoff) {
+        jdbcTemplate.update("DELETE FROM " + HOUR_TABLE + " WHERE bucket < ?", Timestamp.valueOf(cutoff));
+    }
+
+    public void deleteAll() {
+        jdbcTemplate.update("DELETE FROM " + HOUR_TABLE);
+    }
+
+    public boolean isEmpty() {
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM " + HOUR_TABLE + " FETCH FIRST 1 ROWS ONLY) t", Integer.class);
+        return rows == null || rows == 0;
+    }
+
+    public void scanHourlyIps(int fetchSize, HourlyIpHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT app_id, uri_id, DATE_TRUNC('hour', created) AS bucket, ip FROM stats_hit "
+                    + "ORDER BY bucket");
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> handler.accept(
+                new SketchKey(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getTimestamp("bucket").toLocalDateTime()),
+                toIp(rs)));
+    }
+
+    private static byte[] toIp(ResultSet rs) throws SQLException {
+        return IpAddressUtils.fromUuid(rs.getObject("ip", UUID.class));
+    }
+
+    public record SketchKey(int appId, int uriId, LocalDateTime bucket) {
+    }
+
+    @FunctionalInterface
+    public interface SketchHandler {
+        void accept(SketchKey key, HyperLogLog sketch);
+    }
+
+    @FunctionalInterface
+    public interface IpHandler {
+        void accept(int appId, int uriId, byte[] ip);
+    }
+
+    @FunctionalInterface
+    public interface HourlyIpHandler {
+        void accept(SketchKey key, byte[] ip);
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.sketch.SpaceSaving;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public class StatsTopRepository {
+
+    public static final String HOUR_TABLE = "stats_top_hour";
+    public static final String DAY_TABLE = "stats_top_day";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatsTopRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void merge(String table, LocalDateTime bucket, SpaceSaving summary) {
+        List<byte[]> existing = jdbcTemplate.query(
+                "SELECT summary FROM " + table + " WHERE bucket = ? FOR UPDATE",
+                (rs, rowNum) -> rs.getBytes("summary"),
+                Timestamp.valueOf(bucket));
+        if (existing.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO " + table + " (bucket, summary) VALUES (?, ?)",
+                    Timestamp.valueOf(bucket), summary.toBytes());
+            return;
+        }
+        SpaceSaving merged = SpaceSaving.fromBytes(existing.get(0));
+        merged.merge(summary);
+        jdbcTemplate.update("UPDATE " + table + " SET summary = ? WHERE bucket = ?",
+                merged.toBytes(), Timestamp.valueOf(bucket));
+    }
+
+    public void findSummaries(String table, LocalDateTime from, LocalDateTime to, SummaryHandler handler) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        jdbcTemplate.query("SELECT bucket, summary FROM " + table + " WHERE bucket >= ? AND bucket < ?",
+                (RowCallbackHandler) rs -> handler.accept(rs.getTimestamp("bucket").toLocalDateTime(),
+                        SpaceSaving.fromBytes(rs.getBytes("summary"))),
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Streams hourly rollup counts bucket by bucket, the source for backfilling summaries.
+     */
+    public void scanHourlyCounts(int fetchSize, HourlyCountHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT bucket, app_id, uri_id, hits FROM "
+                    + StatsRollupRepository.HOUR_TABLE + " ORDER BY bucket");
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> handler.accept(rs.getTimestamp("bucket").toLocalDateTime(),
+                new HitCount(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits"))));
+    }
+
+    public boolean isEmpty() {
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM " + HOUR_TABLE + " FETCH FIRST 1 ROWS ONLY) t", Integer.class);
+        return rows == null || rows == 0;
+    }
+
+    public void deleteBefore(LocalDateTime cutoff) {
+        jdbcTemplate.update("DELETE FROM " + HOUR_TABLE + " WHERE bucket < ?", Timestamp.valueOf(cutoff));
+        jdbcTemplate.update("DELETE FROM " + DAY_TABLE + " WHERE bucket < ?", Timestamp.valueOf(cutoff));
+    }
+
+    public void deleteAll() {
+        jdbcTemplate.update("DELETE FROM " + HOUR_TABLE);
+        jdbcTemplate.update("DELETE FROM " + DAY_TABLE);
+    }
+
+    @FunctionalInterface
+    public interface SummaryHandler {
+        void accept(LocalDateTime bucket, SpaceSaving summary);
+    }
+
+    @FunctionalInterface
+    public interface HourlyCountHandler {
+        void accept(LocalDateTime bucket, HitCount count);
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.stats.repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Renders hit windows as an inline table {@code w (idx, uri_id, start_at, end_at)} with its bind arguments,
+ * so a list of windows can be joined to hit or aggregate tables in a single statement.
+ */
+final class WindowValues {
+
+    private final String table;
+    private final Object[] args;
+
+    private WindowValues(String table, Object[] args) {
+        this.table = table;
+        this.args = args;
+    }
+
+    static WindowValues of(List<HitWindow> windows) {
+        StringJoiner values = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(windows.size() * 4);
+        for (int i = 0; i < windows.size(); i++) {
+            HitWindow window = windows.get(i);
+            values.add("(CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP))");
+            args.add(i);
+            args.add(window.uriId());
+            args.add(Timestamp.valueOf(window.start()));
+            args.add(Timestamp.valueOf(window.end()));
+        }
+        return new WindowValues("(VALUES " + values + ") AS w (idx, uri_id, start_at, end_at)", args.toArray());
+    }
+
+    String table() {
+        return table;
+    }
+
+    Object[] args() {
+        return args;
+    }
+}
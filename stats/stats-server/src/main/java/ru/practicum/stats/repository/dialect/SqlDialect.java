@@ -0,0 +1,25 @@
+package ru.practicum.stats.repository.dialect;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public enum SqlDialect {
+    POSTGRESQL,
+    H2;
+
+    public static SqlDialect detect(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            if ("H2".equalsIgnoreCase(product)) {
+                return H2;
+            }
+            if ("PostgreSQL".equalsIgnoreCase(product)) {
+                return POSTGRESQL;
+            }
+            throw new IllegalStateException("Unsupported stats database: " + product);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot detect stats database dialect", e);
+        }
+    }
+}
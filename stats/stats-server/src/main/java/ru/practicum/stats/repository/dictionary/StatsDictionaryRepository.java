@@ -0,0 +1,64 @@
+package ru.practicum.stats.repository.dictionary;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.repository.dialect.SqlDialect;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class StatsDictionaryRepository {
+
+    public static final String APP_TABLE = "stats_app";
+    public static final String URI_TABLE = "stats_uri";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final SqlDialect dialect;
+
+    public StatsDictionaryRepository(JdbcTemplate jdbcTemplate,
+                                     NamedParameterJdbcTemplate namedJdbcTemplate,
+                                     SqlDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    public void insertIfAbsent(String table, String name) {
+        String sql = dialect == SqlDialect.POSTGRESQL
+                ? "INSERT INTO " + table + " (name) VALUES (?) ON CONFLICT (name) DO NOTHING"
+                : "MERGE INTO " + table + " (name) KEY (name) VALUES (?)";
+        jdbcTemplate.update(sql, name);
+    }
+
+    public Integer findId(String table, String name) {
+        List<Integer> ids = jdbcTemplate.queryForList("SELECT id FROM " + table + " WHERE name = ?", Integer.class, name);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    public Map<String, Integer> findIds(String table, Collection<String> names) {
+        Map<String, Integer> ids = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, name FROM " + table + " WHERE name IN (:names)",
+                new MapSqlParameterSource("names", names),
+                (RowCallbackHandler) rs -> ids.put(rs.getString("name"), rs.getInt("id")));
+        return ids;
+    }
+
+    public String findName(String table, int id) {
+        List<String> names = jdbcTemplate.queryForList("SELECT name FROM " + table + " WHERE id = ?", String.class, id);
+        return names.isEmpty() ? null : names.get(0);
+    }
+
+    public Map<String, Integer> findAll(String table) {
+        Map<String, Integer> ids = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM " + table,
+                (RowCallbackHandler) rs -> ids.put(rs.getString("name"), rs.getInt("id")));
+        return ids;
+    }
+}
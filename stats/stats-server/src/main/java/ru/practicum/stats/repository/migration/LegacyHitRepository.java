@@ -0,0 +1,102 @@
+package ru.practicum.stats.repository.migration;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.stats.repository.dialect.SqlDialect;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Access to hit rows in older storage formats: the pre-dictionary {@code stats} table that stored app and uri
+ * as strings, and {@code stats_hit} tables whose ip column is still text.
+ */
+@Repository
+public class LegacyHitRepository {
+
+    public static final String LEGACY_TABLE = "stats";
+    public static final String HIT_TABLE = "stats_hit";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlDialect dialect;
+
+    public LegacyHitRepository(JdbcTemplate jdbcTemplate, SqlDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    public boolean exists() {
+        return columnType(LEGACY_TABLE, "uri") != null;
+    }
+
+    public List<LegacyHit> findChunk(int chunkSize) {
+        return jdbcTemplate.query("SELECT id, app, uri, ip, created FROM " + LEGACY_TABLE
+                        + " ORDER BY id FETCH FIRST " + chunkSize + " ROWS ONLY",
+                (rs, rowNum) -> new LegacyHit(
+                        rs.getLong("id"),
+                        rs.getString("app"),
+                        rs.getString("uri"),
+                        rs.getString("ip"),
+                        rs.getTimestamp("created").toLocalDateTime()));
+    }
+
+    public int deleteUpTo(long id) {
+        return jdbcTemplate.update("DELETE FROM " + LEGACY_TABLE + " WHERE id <= ?", id);
+    }
+
+    public void drop() {
+        jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+    }
+
+    public boolean hasTextIp() {
+        String type = columnType(HIT_TABLE, "ip");
+        return type != null && type.startsWith("character");
+    }
+
+    public void addBinaryIpColumn() {
+        jdbcTemplate.execute("ALTER TABLE " + HIT_TABLE + " ADD COLUMN IF NOT EXISTS ip_bin UUID");
+    }
+
+    public List<TextIp> findTextIps(long afterId, int chunkSize) {
+        return jdbcTemplate.query("SELECT id, created, ip FROM " + HIT_TABLE
+                        + " WHERE id > ? AND ip_bin IS NULL ORDER BY id FETCH FIRST " + chunkSize + " ROWS ONLY",
+                (rs, rowNum) -> new TextIp(rs.getLong("id"), rs.getTimestamp("created").toLocalDateTime(),
+                        rs.getString("ip")),
+                afterId);
+    }
+
+    public void updateBinaryIps(List<BinaryIp> rows) {
+        jdbcTemplate.batchUpdate("UPDATE " + HIT_TABLE + " SET ip_bin = ? WHERE id = ? AND created = ?",
+                rows, rows.size(), (ps, row) -> {
+                    ps.setObject(1, IpAddressUtils.toUuid(row.ip()));
+                    ps.setLong(2, row.id());
+                    ps.setTimestamp(3, Timestamp.valueOf(row.created()));
+                });
+    }
+
+    public void replaceTextIpColumn() {
+        jdbcTemplate.execute("ALTER TABLE " + HIT_TABLE + " DROP COLUMN ip");
+        jdbcTemplate.execute(dialect == SqlDialect.POSTGRESQL
+                ? "ALTER TABLE " + HIT_TABLE + " RENAME COLUMN ip_bin TO ip"
+                : "ALTER TABLE " + HIT_TABLE + " ALTER COLUMN ip_bin RENAME TO ip");
+        jdbcTemplate.execute("ALTER TABLE " + HIT_TABLE + " ALTER COLUMN ip SET NOT NULL");
+    }
+
+    private String columnType(String table, String column) {
+        List<String> types = jdbcTemplate.queryForList("SELECT LOWER(data_type) FROM information_schema.columns "
+                        + "WHERE LOWER(table_name) = ? AND LOWER(column_name) = ? AND table_schema = CURRENT_SCHEMA",
+                String.class, table, column);
+        return types.isEmpty() ? null : types.get(0);
+    }
+
+    public record LegacyHit(long id, String app, String uri, String ip, LocalDateTime created) {
+    }
+
+    public record TextIp(long id, LocalDateTime created, String ip) {
+    }
+
+    public record BinaryIp(long id, LocalDateTime created, byte[] ip) {
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.stats.repository.partition;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+public enum PartitionGranularity {
+    DAY(ChronoUnit.DAYS, DateTimeFormatter.ofPattern("yyyyMMdd")),
+    MONTH(ChronoUnit.MONTHS, DateTimeFormatter.ofPattern("yyyyMM"));
+
+    private final ChronoUnit unit;
+    private final DateTimeFormatter suffixFormat;
+
+    PartitionGranularity(ChronoUnit unit, DateTimeFormatter suffixFormat) {
+        this.unit = unit;
+        this.suffixFormat = suffixFormat;
+    }
+
+    public LocalDate floor(LocalDate date) {
+        return this == MONTH ? date.with(TemporalAdjusters.firstDayOfMonth()) : date;
+    }
+
+    public LocalDate next(LocalDate start) {
+        return start.plus(1, unit);
+    }
+
+    public String partitionName(String table, LocalDate start) {
+        return table + "_p" + suffixFormat.format(start);
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.stats.repository.partition;
+
+import java.time.LocalDate;
+
+public record PartitionRange(String name, LocalDate from, LocalDate to) {
+
+    public boolean overlaps(LocalDate otherFrom, LocalDate otherTo) {
+        return from.isBefore(otherTo) && otherFrom.isBefore(to);
+    }
+}
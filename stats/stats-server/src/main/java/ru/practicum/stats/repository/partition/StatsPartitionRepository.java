@@ -0,0 +1,88 @@
+package ru.practicum.stats.repository.partition;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Repository
+public class StatsPartitionRepository {
+
+    private static final Pattern BOUNDS = Pattern.compile(
+            "FROM \\('(\\d{4}-\\d{2}-\\d{2})[^']*'\\) TO \\('(\\d{4}-\\d{2}-\\d{2})[^']*'\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatsPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isPartitioned(String table) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid "
+                        + "WHERE c.relname = ? AND pg_table_is_visible(c.oid)",
+                Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    public List<PartitionRange> findPartitions(String table) {
+        return jdbcTemplate.query(
+                        "SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound "
+                                + "FROM pg_inherits i "
+                                + "JOIN pg_class c ON c.oid = i.inhrelid "
+                                + "JOIN pg_class p ON p.oid = i.inhparent "
+                                + "WHERE p.relname = ? AND pg_table_is_visible(p.oid)",
+                        (rs, rowNum) -> toRange(rs.getString("name"), rs.getString("bound")),
+                        table)
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public void createDefaultPartition(String table) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + "_default PARTITION OF " + table + " DEFAULT");
+    }
+
+    /**
+     * Creates the partition detached, moves matching rows out of the default partition and only then attaches it,
+     * so hits that landed in the default partition before the range existed do not block the attach.
+     */
+    public int createPartition(String table, PartitionRange range) {
+        Timestamp from = Timestamp.valueOf(range.from().atStartOfDay());
+        Timestamp to = Timestamp.valueOf(range.to().atStartOfDay());
+        jdbcTemplate.execute("CREATE TABLE " + range.name() + " (LIKE " + table
+                + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + table + "_default "
+                + "WHERE created >= ? AND created < ? RETURNING *) "
+                + "INSERT INTO " + range.name() + " SELECT * FROM moved", from, to);
+        jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + range.name()
+                + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        return moved;
+    }
+
+    public void dropPartition(String name) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+    }
+
+    public int deleteBefore(String table, LocalDateTime cutoff, int chunkSize) {
+        return jdbcTemplate.update("DELETE FROM " + table + " WHERE id IN (SELECT id FROM " + table
+                + " WHERE created < ? FETCH FIRST " + chunkSize + " ROWS ONLY)", Timestamp.valueOf(cutoff));
+    }
+
+    private static PartitionRange toRange(String name, String bound) {
+        if (bound == null) {
+            return null;
+        }
+        Matcher matcher = BOUNDS.matcher(bound);
+        if (!matcher.find()) {
+            return null;
+        }
+        return new PartitionRange(name, LocalDate.parse(matcher.group(1)), LocalDate.parse(matcher.group(2)));
+    }
+}
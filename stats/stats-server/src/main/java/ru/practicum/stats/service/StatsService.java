@@ -1,9 +1,14 @@
 package ru.practicum.stats.service;
 
+import ru.practicum.stats.dto.EndpointHitBatchAckDto;
 import ru.practicum.stats.dto.EndpointHitCreateDto;
 import ru.practicum.stats.dto.EndpointHitResponseDto;
+import ru.practicum.stats.dto.StatsQueryWindowDto;
 import ru.practicum.stats.dto.ViewStats;
+import ru.practicum.stats.dto.ViewStatsSeries;
+import ru.practicum.stats.dto.ViewStatsWindow;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -11,5 +16,22 @@ public interface StatsService {
 
     EndpointHitResponseDto saveHit(EndpointHitCreateDto create);
 
-    List<ViewStats> getStats(LocalDateTime from, LocalDateTime to, List<String> uris, boolean unique);
+    EndpointHitBatchAckDto saveHits(List<EndpointHitCreateDto> hits);
+
+    List<ViewStats> getStats(LocalDateTime from, LocalDateTime to, List<String> uris, boolean unique, boolean approximate);
+
+    List<ViewStats> getTop(LocalDateTime from, LocalDateTime to, int k);
+
+    List<ViewStatsSeries> getTimeSeries(LocalDateTime from, LocalDateTime to, List<String> uris, Duration bucket);
+
+    /**
+     * Counts hits of each window's uri over all apps within that window's own range; results follow request order.
+     */
+    List<ViewStatsWindow> queryWindows(List<StatsQueryWindowDto> windows);
+
+    /**
+     * Validates the request up front and returns a stream that runs the query only when consumed,
+     * handing rows over as the database cursor produces them.
+     */
+    StatsStream streamStats(LocalDateTime from, LocalDateTime to, List<String> uris, boolean unique, boolean approximate);
 }
@@ -1,20 +1,48 @@
 package ru.practicum.stats.service;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.dto.EndpointHitBatchAckDto;
 import ru.practicum.stats.dto.EndpointHitCreateDto;
 import ru.practicum.stats.dto.EndpointHitResponseDto;
+import ru.practicum.stats.dto.StatsQueryWindowDto;
 import ru.practicum.stats.dto.ViewStats;
+import ru.practicum.stats.dto.ViewStatsSeries;
+import ru.practicum.stats.dto.ViewStatsWindow;
 import ru.practicum.stats.dto.mapper.StatsMapper;
 import ru.practicum.stats.entity.EndpointHit;
 import ru.practicum.stats.exception.BadRequestException;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.HitWindow;
+import ru.practicum.stats.repository.StatsHitScanRepository;
 import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.service.bitmap.StatsBitmapService;
+import ru.practicum.stats.service.compaction.StatsCompactionService;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+import ru.practicum.stats.service.hot.HotWindowService;
+import ru.practicum.stats.service.ingest.DuplicateHitFilter;
+import ru.practicum.stats.service.ingest.HitWriter;
+import ru.practicum.stats.service.metrics.StatsMetrics;
+import ru.practicum.stats.service.rollup.StatsRollupService;
+import ru.practicum.stats.service.sketch.StatsSketchService;
+import ru.practicum.stats.service.timeseries.StatsTimeSeriesService;
+import ru.practicum.stats.service.top.StatsTopService;
+import ru.practicum.stats.utils.ShardUtils;
 
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -24,14 +52,57 @@ public class StatsServiceImpl implements StatsService {
 
     private final StatsRepository repository;
     private final StatsMapper mapper;
+    private final HitWriter hitWriter;
+    private final DuplicateHitFilter duplicateFilter;
+    private final StatsRollupService rollupService;
+    private final StatsSketchService sketchService;
+    private final StatsBitmapService bitmapService;
+    private final StatsTopService topService;
+    private final StatsTimeSeriesService timeSeriesService;
+    private final StatsCompactionService compactionService;
+    private final StatsDictionaryService dictionary;
+    private final HotWindowService hotWindow;
+    private final StatsHitScanRepository scanRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsMetrics metrics;
+
+    @Value("${stats.storage.scan-fetch-size:10000}")
+    private int fetchSize;
+
+    @Value("${stats.query.max-windows:1000}")
+    private int maxWindows;
+
+    @Value("${stats.shard.index:0}")
+    private int shardIndex;
+
+    @Value("${stats.shard.count:1}")
+    private int shardCount;
 
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public EndpointHitResponseDto saveHit(EndpointHitCreateDto create) {
+        requireOwned(List.of(create));
+        Timer.Sample sample = metrics.start();
         EndpointHit entity = mapper.toEntity(create);
-        EndpointHit saved = repository.save(entity);
-        log.info("Hit={} saved", saved);
-        return mapper.toDto(saved);
+        write("hit", List.of(entity));
+        metrics.recordIngest(sample, "hit", 1);
+        log.debug("Hit app={}, uri={} accepted", entity.getApp(), entity.getUri());
+        return mapper.toDto(entity);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public EndpointHitBatchAckDto saveHits(List<EndpointHitCreateDto> hits) {
+        requireOwned(hits);
+        Timer.Sample sample = metrics.start();
+        List<EndpointHit> entities = hits.stream()
+                .map(mapper::toEntity)
+                .toList();
+        write("hits", entities);
+        metrics.recordIngest(sample, "hits", entities.size());
+        log.info("Batch of {} hits accepted", entities.size());
+        return new EndpointHitBatchAckDto(entities.size());
     }
 
     @Override
@@ -39,11 +110,177 @@ public class StatsServiceImpl implements StatsService {
     public List<ViewStats> getStats(LocalDateTime start,
                                     LocalDateTime end,
                                     List<String> uris,
-                                    boolean unique) {
+                                    boolean unique,
+                                    boolean approximate) {
+        validateRange(start, end);
+        Timer.Sample sample = metrics.start();
+        List<Integer> uriIds = dictionary.findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            metrics.recordQuery(sample, "dictionary", unique, approximate, uris, 0);
+            return List.of();
+        }
+        Optional<List<HitCount>> hot = hotWindow.covers(start, end)
+                ? hotWindow.findStats(start, end, uriIds, unique)
+                : Optional.empty();
+        List<HitCount> counts;
+        String source;
+        if (hot.isPresent()) {
+            source = "hot";
+            counts = hot.get();
+        } else if (!unique) {
+            source = "rollup";
+            counts = rollupService.findStats(start, end, uriIds);
+        } else if (approximate) {
+            source = "sketch";
+            counts = sketchService.estimateUnique(start, end, uriIds);
+        } else if (bitmapService.isEnabled()) {
+            source = "bitmap";
+            counts = bitmapService.countUnique(start, end, uriIds);
+        } else if (compactionService.covers(start)) {
+            source = "compacted";
+            counts = compactionService.estimateUnique(start, end, uriIds);
+        } else {
+            source = "scan";
+            counts = metrics.recordCriteria(true, () -> repository.findStatsByCriteria(start, end, uriIds, true));
+        }
+        List<ViewStats> stats = dictionary.decode(counts);
+        metrics.recordQuery(sample, source, unique, approximate, uris, stats.size());
+        return stats;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<ViewStats> getTop(LocalDateTime start, LocalDateTime end, int k) {
+        validateRange(start, end);
+        if (k < 1 || k > topService.getCapacity()) {
+            throw new BadRequestException("k must be between 1 and " + topService.getCapacity());
+        }
+        return dictionary.decode(topService.findTop(start, end, k));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewStatsSeries> getTimeSeries(LocalDateTime start,
+                                               LocalDateTime end,
+                                               List<String> uris,
+                                               Duration bucket) {
+        validateRange(start, end);
+        List<Integer> uriIds = dictionary.findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+        return timeSeriesService.findSeries(start, end, uriIds, bucket);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewStatsWindow> queryWindows(List<StatsQueryWindowDto> windows) {
+        if (windows.size() > maxWindows) {
+            throw new BadRequestException("At most " + maxWindows + " windows are allowed per query");
+        }
+        windows.forEach(window -> validateRange(window.getStart(), window.getEnd()));
+        Map<String, Integer> uriIds = dictionary.lookupUriIds(windows.stream()
+                .map(StatsQueryWindowDto::getUri)
+                .toList());
+        List<HitWindow> known = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < windows.size(); i++) {
+            StatsQueryWindowDto window = windows.get(i);
+            Integer uriId = uriIds.get(window.getUri());
+            if (uriId != null) {
+                known.add(new HitWindow(uriId, window.getStart(), window.getEnd()));
+                positions.add(i);
+            }
+        }
+        long[] hits = new long[windows.size()];
+        compactionService.countWindows(known, (index, total, unique) -> {
+            int position = positions.get(index);
+            hits[position] = windows.get(position).isUnique() ? unique : total;
+        });
+        List<ViewStatsWindow> result = new ArrayList<>(windows.size());
+        for (int i = 0; i < windows.size(); i++) {
+            StatsQueryWindowDto window = windows.get(i);
+            result.add(new ViewStatsWindow(window.getUri(), window.getStart(), window.getEnd(), window.isUnique(), hits[i]));
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public StatsStream streamStats(LocalDateTime start,
+                                   LocalDateTime end,
+                                   List<String> uris,
+                                   boolean unique,
+                                   boolean approximate) {
+        validateRange(start, end);
+        List<Integer> uriIds = dictionary.findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return consumer -> {
+            };
+        }
+        return consumer -> transactionTemplate.executeWithoutResult(status -> {
+            Consumer<HitCount> decoding = count -> consumer.accept(dictionary.decode(count));
+            Optional<List<HitCount>> hot = hotWindow.covers(start, end)
+                    ? hotWindow.findStats(start, end, uriIds, unique)
+                    : Optional.empty();
+            if (hot.isPresent()) {
+                hot.get().forEach(decoding);
+            } else if (!unique) {
+                rollupService.streamStats(start, end, uriIds, fetchSize, decoding);
+            } else if (approximate) {
+                sketchService.estimateUnique(start, end, uriIds).forEach(decoding);
+            } else if (bitmapService.isEnabled()) {
+                bitmapService.countUnique(start, end, uriIds).forEach(decoding);
+            } else if (compactionService.covers(start)) {
+                compactionService.estimateUnique(start, end, uriIds).forEach(decoding);
+            } else {
+                scanRepository.streamCounts(start, end, uriIds, true, fetchSize, decoding);
+            }
+        });
+    }
+
+    /**
+     * Duplicates within the deduplication window are acknowledged like any other hit but never written. Hits the
+     * writer rejects or fails are forgotten again, so the client's retry is stored rather than suppressed.
+     */
+    private void write(String endpoint, List<EndpointHit> hits) {
+        List<EndpointHit> unique = duplicateFilter.filter(hits);
+        if (unique.size() < hits.size()) {
+            metrics.recordDuplicates(endpoint, hits.size() - unique.size());
+        }
+        if (unique.isEmpty()) {
+            return;
+        }
+        try {
+            hitWriter.write(unique);
+        } catch (RuntimeException e) {
+            duplicateFilter.forget(unique);
+            throw e;
+        }
+    }
+
+    /**
+     * Hits of a uri owned by another shard are rejected rather than stored: queries for that uri only reach its
+     * owner, so the hit would never be counted.
+     */
+    private void requireOwned(List<EndpointHitCreateDto> hits) {
+        if (shardCount == 1) {
+            return;
+        }
+        for (int i = 0; i < hits.size(); i++) {
+            String uri = hits.get(i).getUri();
+            int owner = ShardUtils.shardOf(uri, shardCount);
+            if (owner != shardIndex) {
+                throw new BadRequestException("Hit #" + i + ": uri " + uri + " belongs to shard " + owner
+                        + " of " + shardCount + ", this is shard " + shardIndex);
+            }
+        }
+    }
+
+    private void validateRange(LocalDateTime start, LocalDateTime end) {
         if (start.isAfter(end)) {
             log.warn("Start date={} is after end date={}", start, end);
             throw new BadRequestException("Start date must be before end date");
         }
-        return repository.findStatsByCriteria(start, end, uris, unique);
     }
 }
@@ -0,0 +1,11 @@
+package ru.practicum.stats.service;
+
+import ru.practicum.stats.dto.ViewStats;
+
+import java.util.function.Consumer;
+
+@FunctionalInterface
+public interface StatsStream {
+
+    void forEach(Consumer<ViewStats> consumer);
+}
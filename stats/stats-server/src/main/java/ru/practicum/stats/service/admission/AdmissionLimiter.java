@@ -0,0 +1,178 @@
+package ru.practicum.stats.service.admission;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.service.metrics.StatsMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit shared by {@code /hit} writes and {@code /stats} reads, adapted to their latency so requests
+ * are turned away while the database is slow instead of piling up in Tomcat.
+ *
+ * <p>Latencies are averaged per {@code stats.admission.window} and compared with a slowly moving baseline: within
+ * {@code tolerance} times the baseline the limit grows by about half its square root per window, beyond it the limit
+ * shrinks in proportion to the excess, by at most a quarter per window, between {@code min-limit} and
+ * {@code max-limit}; it does not grow while less than half of it is in use. The baseline follows lower latencies at
+ * once and higher ones slowly, so a lasting slowdown eventually becomes the new normal. Writes may only fill
+ * {@code write-share} of the limit, so the rest stays reserved for reads, and each lane also has a fixed cap.
+ */
+@Component
+@Slf4j
+public class AdmissionLimiter {
+
+    private static final double SMOOTHING = 0.5;
+    private static final double BASELINE_DRIFT = 0.01;
+
+    public enum Lane {
+        READ, WRITE
+    }
+
+    /**
+     * Result of {@link #tryAcquire}: admitted or the reason the request was shed, used as metric tag.
+     */
+    public enum Outcome {
+        ADMITTED("admitted"),
+        LANE_FULL("lane"),
+        RESERVED("priority"),
+        LIMITED("limit");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final double minLimit;
+    private final double maxLimit;
+    private final double writeShare;
+    private final double tolerance;
+    private final long windowNanos;
+    private final int[] laneLimits = new int[Lane.values().length];
+    private final Lock lock = new ReentrantLock();
+
+    private double limit;
+    private int inFlight;
+    private final int[] laneInFlight = new int[Lane.values().length];
+    private double baselineNanos;
+    private long windowStart = Long.MIN_VALUE;
+    private long windowSum;
+    private int windowCount;
+    private int windowPeak;
+
+    public AdmissionLimiter(StatsMetrics metrics,
+                            @Value("${stats.admission.initial-limit:20}") int initialLimit,
+                            @Value("${stats.admission.min-limit:4}") int minLimit,
+                            @Value("${stats.admission.max-limit:200}") int maxLimit,
+                            @Value("${stats.admission.write-share:0.75}") double writeShare,
+                            @Value("${stats.admission.tolerance:2.0}") double tolerance,
+                            @Value("${stats.admission.window:1s}") Duration window,
+                            @Value("${stats.admission.read.max-concurrency:100}") int readMaxConcurrency,
+                            @Value("${stats.admission.write.max-concurrency:100}") int writeMaxConcurrency) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.writeShare = writeShare;
+        this.tolerance = tolerance;
+        this.windowNanos = window.toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.laneLimits[Lane.READ.ordinal()] = readMaxConcurrency;
+        this.laneLimits[Lane.WRITE.ordinal()] = writeMaxConcurrency;
+        metrics.registerAdmissionGauges(this::getLimit, this::getInFlight);
+    }
+
+    public Outcome tryAcquire(Lane lane) {
+        lock.lock();
+        try {
+            if (laneInFlight[lane.ordinal()] >= laneLimits[lane.ordinal()]) {
+                return Outcome.LANE_FULL;
+            }
+            int allowed = (int) limit;
+            if (inFlight >= allowed) {
+                return Outcome.LIMITED;
+            }
+            if (lane == Lane.WRITE && inFlight >= Math.max(1, (int) (allowed * writeShare))) {
+                return Outcome.RESERVED;
+            }
+            inFlight++;
+            laneInFlight[lane.ordinal()]++;
+            windowPeak = Math.max(windowPeak, inFlight);
+            return Outcome.ADMITTED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the permit of an admitted request and, unless {@code startNanos} is negative, records how long it took.
+     */
+    public void release(Lane lane, long startNanos, long endNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            laneInFlight[lane.ordinal()]--;
+            if (startNanos < 0) {
+                return;
+            }
+            if (windowStart == Long.MIN_VALUE) {
+                windowStart = endNanos;
+            }
+            windowSum += endNanos - startNanos;
+            windowCount++;
+            if (endNanos - windowStart >= windowNanos) {
+                adapt();
+                windowStart = endNanos;
+                windowSum = 0;
+                windowCount = 0;
+                windowPeak = inFlight;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adapt() {
+        double latency = Math.max(1, (double) windowSum / windowCount);
+        if (baselineNanos == 0 || latency < baselineNanos) {
+            baselineNanos = latency;
+        } else {
+            baselineNanos += (latency - baselineNanos) * BASELINE_DRIFT;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineNanos / latency));
+        if (gradient >= 1.0 && windowPeak < limit / 2) {
+            return;
+        }
+        double target = limit * gradient + Math.sqrt(limit);
+        double previous = limit;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+        if ((int) limit != (int) previous) {
+            log.debug("Admission limit {} -> {}, latency {} ms, baseline {} ms", (int) previous, (int) limit,
+                    latency / 1e6, baselineNanos / 1e6);
+        }
+    }
+}
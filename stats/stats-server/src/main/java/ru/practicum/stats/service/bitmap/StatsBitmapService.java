@@ -0,0 +1,395 @@
+package ru.practicum.stats.service.bitmap;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.collection.RoaringBitmap;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.StatsBitmapRepository;
+import ru.practicum.stats.repository.StatsBitmapRepository.BitmapHandler;
+import ru.practicum.stats.repository.StatsBitmapRepository.DayKey;
+import ru.practicum.stats.service.ingest.HitCommitListener;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Exact unique-visitor counts from per app/uri daily bitmaps of visitor ids, enabled by {@code stats.bitmap.enabled}.
+ * IPs of committed hits are buffered per day; a periodic flush registers them in the visitor dictionary and ORs
+ * their ids into the stored bitmaps. A query ORs the bitmaps of the whole days in its range with the unflushed IPs
+ * and the raw IPs of the partial days at both ends, so no raw row of a whole day is read.
+ *
+ * <p>Bitmaps of queries naming uris are loaded lazily into an LRU cache of uri-days, which a flush invalidates for
+ * the days it touched. Bitmaps only cover hits ingested or backfilled while the feature was enabled, and outlive
+ * compaction; the partial days at both ends are read from raw hits, so compacted ones are left out there.
+ */
+@Service
+@Slf4j
+public class StatsBitmapService implements HitCommitListener {
+
+    private static final Comparator<DayKey> LOCK_ORDER = Comparator
+            .comparingInt(DayKey::uriId)
+            .thenComparingInt(DayKey::appId)
+            .thenComparing(DayKey::day);
+
+    private final StatsBitmapRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransaction;
+    private final boolean enabled;
+    private final int cacheSize;
+    private final int fetchSize;
+    private final boolean backfillOnStartup;
+
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Lock flushLock = new ReentrantLock();
+    private volatile Map<DayKey, Set<UUID>> pending = new ConcurrentHashMap<>();
+    private volatile Map<DayKey, Set<UUID>> flushing = Map.of();
+
+    private final Map<UUID, Integer> visitors;
+    private final Map<UriDay, Map<Integer, RoaringBitmap>> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public StatsBitmapService(StatsBitmapRepository repository,
+                              TransactionTemplate transactionTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${stats.bitmap.enabled:false}") boolean enabled,
+                              @Value("${stats.bitmap.cache-size:10000}") int cacheSize,
+                              @Value("${stats.bitmap.visitor-cache-size:1000000}") int visitorCacheSize,
+                              @Value("${stats.storage.scan-fetch-size:10000}") int fetchSize,
+                              @Value("${stats.bitmap.backfill-on-startup:true}") boolean backfillOnStartup) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.cacheSize = cacheSize;
+        this.fetchSize = fetchSize;
+        this.backfillOnStartup = backfillOnStartup;
+        this.visitors = Collections.synchronizedMap(lru(visitorCacheSize));
+        this.cache = Collections.synchronizedMap(lru(cacheSize));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void onHitsCommitted(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+        swapLock.readLock().lock();
+        try {
+            for (EndpointHit hit : hits) {
+                DayKey key = new DayKey(hit.getAppId(), hit.getUriId(), hit.getTimestamp().truncatedTo(ChronoUnit.DAYS));
+                pending.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(IpAddressUtils.toUuid(hit.getIp()));
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${stats.bitmap.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            swapLock.writeLock().lock();
+            try {
+                flushing = pending;
+                pending = new ConcurrentHashMap<>();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            writeFlushing();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Counts distinct visitors per app/uri in [start, end]; {@code uriIds} is {@code null} for all uris.
+     * Unflushed IPs are read before the stored bitmaps, so a day leaving {@code flushing} is always visible in
+     * one of the two.
+     */
+    public List<HitCount> countUnique(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        LocalDateTime startDay = start.truncatedTo(ChronoUnit.DAYS);
+        LocalDateTime firstDay = startDay.equals(start) ? startDay : startDay.plusDays(1);
+        LocalDateTime lastDay = end.truncatedTo(ChronoUnit.DAYS);
+        if (!firstDay.isBefore(lastDay)) {
+            firstDay = start;
+            lastDay = start;
+        }
+        LocalDateTime from = firstDay;
+        LocalDateTime to = lastDay;
+        Set<Integer> uriFilter = uriIds == null ? null : Set.copyOf(uriIds);
+
+        Map<Long, Set<UUID>> ips = new HashMap<>();
+        swapLock.readLock().lock();
+        try {
+            collectUnflushed(ips, flushing, from, to, uriFilter);
+            collectUnflushed(ips, pending, from, to, uriFilter);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        Map<Long, RoaringBitmap> merged = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (from.isBefore(to)) {
+                loadBitmaps(from, to, uriFilter, (key, bitmap) ->
+                        merged.computeIfAbsent(key(key.appId(), key.uriId()), k -> new RoaringBitmap()).or(bitmap));
+            }
+            repository.findEdgeIps(start, from, to, end, uriFilter, (appId, uriId, ip) ->
+                    ips.computeIfAbsent(key(appId, uriId), k -> new HashSet<>()).add(ip));
+        });
+
+        Set<UUID> all = new HashSet<>();
+        ips.values().forEach(all::addAll);
+        Map<UUID, Integer> ids = visitorIds(all, false);
+        Map<Long, Long> unregistered = new HashMap<>();
+        ips.forEach((key, keyIps) -> {
+            RoaringBitmap bitmap = merged.computeIfAbsent(key, k -> new RoaringBitmap());
+            for (UUID ip : keyIps) {
+                Integer id = ids.get(ip);
+                if (id == null) {
+                    unregistered.merge(key, 1L, Long::sum);
+                } else {
+                    bitmap.add(id);
+                }
+            }
+        });
+        return merged.entrySet().stream()
+                .map(e -> new HitCount((int) (e.getKey() >>> 32), (int) (long) e.getKey(),
+                        e.getValue().cardinality() + unregistered.getOrDefault(e.getKey(), 0L)))
+                .sorted(Comparator.comparingLong(HitCount::hits).reversed())
+                .toList();
+    }
+
+    /**
+     * Drops the bitmaps of days before {@code cutoff} and the visitors no remaining bitmap refers to, then forgets
+     * cached bitmaps and ids. Flushes are held off meanwhile, so a visitor a flush has just registered cannot be
+     * removed before its bitmap is written. Returns the number of visitors removed.
+     */
+    public long deleteBefore(LocalDateTime cutoff) {
+        flushLock.lock();
+        try {
+            Long removed = transactionTemplate.execute(status -> {
+                repository.deleteBefore(cutoff);
+                RoaringBitmap referenced = new RoaringBitmap();
+                repository.scanBitmaps(fetchSize, referenced::or);
+                List<Integer> unreferenced = new ArrayList<>();
+                long[] count = new long[1];
+                repository.scanVisitorIds(fetchSize, id -> {
+                    if (!referenced.contains(id)) {
+                        unreferenced.add(id);
+                        count[0]++;
+                        if (unreferenced.size() == fetchSize) {
+                            repository.deleteVisitors(unreferenced);
+                            unreferenced.clear();
+                        }
+                    }
+                });
+                repository.deleteVisitors(unreferenced);
+                return count[0];
+            });
+            generation.incrementAndGet();
+            cache.clear();
+            visitors.clear();
+            return removed == null ? 0 : removed;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public void backfillIfEmpty() {
+        if (!enabled || !backfillOnStartup || !repository.isEmpty()) {
+            return;
+        }
+        log.info("Visitor bitmap table is empty, backfilling from raw hits");
+        Map<DayKey, Set<UUID>> day = new HashMap<>();
+        LocalDateTime[] currentDay = new LocalDateTime[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.scanDailyIps(fetchSize, (key, ip) -> {
+                if (currentDay[0] != null && !currentDay[0].equals(key.day())) {
+                    writeDays(day);
+                    day.clear();
+                }
+                currentDay[0] = key.day();
+                day.computeIfAbsent(key, k -> new HashSet<>()).add(ip);
+            });
+            writeDays(day);
+        });
+    }
+
+    private void writeFlushing() {
+        Map<DayKey, Set<UUID>> batch = flushing;
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeDays(batch));
+            generation.incrementAndGet();
+            batch.keySet().forEach(key -> cache.remove(new UriDay(key.uriId(), key.day())));
+            log.debug("Flushed {} visitor bitmaps", batch.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} visitor bitmaps, keeping them for the next attempt: {}", batch.size(),
+                    e.getMessage());
+            swapLock.readLock().lock();
+            try {
+                batch.forEach((key, ips) -> pending.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).addAll(ips));
+            } finally {
+                swapLock.readLock().unlock();
+            }
+        } finally {
+            flushing = Map.of();
+        }
+    }
+
+    private void writeDays(Map<DayKey, Set<UUID>> days) {
+        Set<UUID> all = new HashSet<>();
+        days.values().forEach(all::addAll);
+        Map<UUID, Integer> ids = visitorIds(all, true);
+        List<DayKey> keys = new ArrayList<>(days.keySet());
+        keys.sort(LOCK_ORDER);
+        for (DayKey key : keys) {
+            RoaringBitmap bitmap = new RoaringBitmap();
+            days.get(key).forEach(ip -> bitmap.add(ids.get(ip)));
+            repository.merge(key, bitmap);
+        }
+    }
+
+    /**
+     * Resolves visitor ids through the cache and the dictionary; with {@code register} unknown IPs are added to
+     * the dictionary in a transaction of their own first, so a cached id always exists in the database.
+     */
+    private Map<UUID, Integer> visitorIds(Collection<UUID> ips, boolean register) {
+        Map<UUID, Integer> ids = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID ip : ips) {
+            Integer id = visitors.get(ip);
+            if (id != null) {
+                ids.put(ip, id);
+            } else {
+                missing.add(ip);
+            }
+        }
+        if (missing.isEmpty()) {
+            return ids;
+        }
+        StatsBitmapRepository.VisitorHandler found = (ip, id) -> {
+            visitors.put(ip, id);
+            ids.put(ip, id);
+        };
+        if (register) {
+            newTransaction.executeWithoutResult(status -> {
+                repository.insertVisitorsIfAbsent(missing);
+                repository.findVisitorIds(missing, found);
+            });
+        } else {
+            repository.findVisitorIds(missing, found);
+        }
+        return ids;
+    }
+
+    /**
+     * Bitmaps of named uris come from the cache, and uris missing any day are read and cached for the whole range,
+     * unless that would not fit the cache. A flush between the read and the store discards the read for caching.
+     */
+    private void loadBitmaps(LocalDateTime from, LocalDateTime to, Set<Integer> uriIds, BitmapHandler handler) {
+        List<LocalDateTime> days = new ArrayList<>();
+        for (LocalDateTime day = from; day.isBefore(to); day = day.plusDays(1)) {
+            days.add(day);
+        }
+        if (uriIds == null || (long) uriIds.size() * days.size() > cacheSize) {
+            repository.findBitmaps(from, to, uriIds, fetchSize, handler);
+            return;
+        }
+        Set<Integer> missing = new HashSet<>();
+        Map<UriDay, Map<Integer, RoaringBitmap>> hits = new HashMap<>();
+        for (int uriId : uriIds) {
+            for (LocalDateTime day : days) {
+                UriDay uriDay = new UriDay(uriId, day);
+                Map<Integer, RoaringBitmap> cached = cache.get(uriDay);
+                if (cached == null) {
+                    missing.add(uriId);
+                    break;
+                }
+                hits.put(uriDay, cached);
+            }
+        }
+        hits.forEach((uriDay, byApp) -> {
+            if (!missing.contains(uriDay.uriId())) {
+                byApp.forEach((appId, bitmap) -> handler.accept(new DayKey(appId, uriDay.uriId(), uriDay.day()), bitmap));
+            }
+        });
+        if (missing.isEmpty()) {
+            return;
+        }
+        long readAt = generation.get();
+        Map<UriDay, Map<Integer, RoaringBitmap>> loaded = new HashMap<>();
+        for (int uriId : missing) {
+            days.forEach(day -> loaded.put(new UriDay(uriId, day), new HashMap<>()));
+        }
+        repository.findBitmaps(from, to, missing, fetchSize, (key, bitmap) -> {
+            loaded.get(new UriDay(key.uriId(), key.day())).put(key.appId(), bitmap);
+            handler.accept(key, bitmap);
+        });
+        synchronized (cache) {
+            if (generation.get() == readAt) {
+                cache.putAll(loaded);
+            }
+        }
+    }
+
+    private void collectUnflushed(Map<Long, Set<UUID>> ips,
+                                  Map<DayKey, Set<UUID>> unflushed,
+                                  LocalDateTime from,
+                                  LocalDateTime to,
+                                  Set<Integer> uriFilter) {
+        unflushed.forEach((key, keyIps) -> {
+            boolean inWholeDays = !key.day().isBefore(from) && key.day().isBefore(to);
+            if (inWholeDays && (uriFilter == null || uriFilter.contains(key.uriId()))) {
+                ips.computeIfAbsent(key(key.appId(), key.uriId()), k -> new HashSet<>()).addAll(keyIps);
+            }
+        });
+    }
+
+    private static long key(int appId, int uriId) {
+        return ((long) appId << 32) | (uriId & 0xffffffffL);
+    }
+
+    private static <K, V> Map<K, V> lru(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    private record UriDay(int uriId, LocalDateTime day) {
+    }
+}
@@ -0,0 +1,264 @@
+package ru.practicum.stats.service.compaction;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.HitWindow;
+import ru.practicum.stats.repository.StatsCompactionRepository;
+import ru.practicum.stats.repository.StatsCompactionRepository.DailyHandler;
+import ru.practicum.stats.repository.StatsHitScanRepository;
+import ru.practicum.stats.repository.StatsHitScanRepository.WindowHandler;
+import ru.practicum.stats.sketch.HyperLogLog;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Folds raw hits older than {@code stats.compaction.age-days} into daily per app/uri rows holding the hit count
+ * and a unique-ip sketch. Every chunk deletes raw rows and merges exactly those rows into the daily table in one
+ * short transaction, so each hit is in exactly one of the two tables at any commit point.
+ *
+ * <p>Queries whose range reaches into compacted days read both tables. Compacted days have day resolution, so
+ * only those lying wholly within the range are counted: a range starting or ending inside a compacted day leaves
+ * that day's hits out rather than counting them all. Unique counts over compacted days are estimates, which is
+ * why compaction is off unless {@code age-days} is set. The scheduled job runs on its own thread so that a long
+ * compaction does not hold up the other scheduled flushes.
+ */
+@Service
+@Slf4j
+public class StatsCompactionService {
+
+    private static final Comparator<DailyKey> LOCK_ORDER = Comparator
+            .comparingInt(DailyKey::uriId)
+            .thenComparingInt(DailyKey::appId)
+            .thenComparing(DailyKey::day);
+
+    private final StatsCompactionRepository repository;
+    private final StatsHitScanRepository scanRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int ageDays;
+    private final int chunkSize;
+    private final int precision;
+    private final int fetchSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stats-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile LocalDateTime compactedUntil;
+
+    public StatsCompactionService(StatsCompactionRepository repository,
+                                  StatsHitScanRepository scanRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${stats.compaction.age-days:0}") int ageDays,
+                                  @Value("${stats.compaction.chunk-size:5000}") int chunkSize,
+                                  @Value("${stats.sketch.precision:12}") int precision,
+                                  @Value("${stats.storage.scan-fetch-size:10000}") int fetchSize) {
+        this.repository = repository;
+        this.scanRepository = scanRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.ageDays = ageDays;
+        this.chunkSize = chunkSize;
+        this.precision = precision;
+        this.fetchSize = fetchSize;
+    }
+
+    public void refresh() {
+        LocalDateTime lastDay = repository.findLastDay();
+        compactedUntil = lastDay == null ? null : lastDay.plusDays(1);
+    }
+
+    @Scheduled(cron = "${stats.compaction.cron:0 30 0 * * *}")
+    public void compact() {
+        if (ageDays <= 0 || !running.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                compactBefore(LocalDate.now().minusDays(ageDays).atStartOfDay());
+            } catch (RuntimeException e) {
+                log.error("Compaction failed", e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Compacts all raw hits created before {@code cutoff} and returns how many were folded.
+     */
+    public long compactBefore(LocalDateTime cutoff) {
+        long total = 0;
+        int drained;
+        do {
+            Integer chunk = transactionTemplate.execute(status -> compactChunk(cutoff));
+            drained = chunk == null ? 0 : chunk;
+            total += drained;
+        } while (drained == chunkSize);
+        refresh();
+        if (total > 0) {
+            log.info("Compacted {} raw hits created before {} into daily aggregates", total, cutoff);
+        }
+        return total;
+    }
+
+    /**
+     * Whether a range starting at {@code start} may include compacted days.
+     */
+    public boolean covers(LocalDateTime start) {
+        LocalDateTime until = compactedUntil;
+        return until != null && start.isBefore(until);
+    }
+
+    /**
+     * Estimates unique ips per app/uri by merging the sketches of the compacted days within [start, end] with the
+     * raw ips still in it.
+     */
+    public List<HitCount> estimateUnique(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        Map<Long, HyperLogLog> merged = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.findDaily(firstWholeDay(start), endOfWholeDays(end), uriIds, fetchSize,
+                    (appId, uriId, day, hits, sketch) ->
+                    merged.computeIfAbsent(key(appId, uriId), k -> new HyperLogLog(sketch.getPrecision()))
+                            .merge(sketch));
+            repository.scanIps(start, end, uriIds, fetchSize, (appId, uriId, ip) ->
+                    merged.computeIfAbsent(key(appId, uriId), k -> new HyperLogLog(precision)).add(ip));
+        });
+        return merged.entrySet().stream()
+                .map(e -> new HitCount((int) (e.getKey() >>> 32), (int) (long) e.getKey(), e.getValue().estimate()))
+                .sorted(Comparator.comparingLong(HitCount::hits).reversed())
+                .toList();
+    }
+
+    /**
+     * Streams the compacted days lying wholly within [start, end].
+     */
+    public void findDaily(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, DailyHandler handler) {
+        repository.findDaily(firstWholeDay(start), endOfWholeDays(end), uriIds, fetchSize, handler);
+    }
+
+    /**
+     * Counts raw hits of every window and adds the compacted days lying wholly within windows that reach into
+     * them; unique counts of those windows become estimates.
+     */
+    public void countWindows(List<HitWindow> windows, WindowHandler handler) {
+        List<HitWindow> compacted = new ArrayList<>();
+        List<HitWindow> wholeDays = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < windows.size(); i++) {
+            HitWindow window = windows.get(i);
+            if (covers(window.start())) {
+                compacted.add(window);
+                wholeDays.add(new HitWindow(window.uriId(), firstWholeDay(window.start()),
+                        endOfWholeDays(window.end())));
+                positions.add(i);
+            }
+        }
+        if (compacted.isEmpty()) {
+            scanRepository.countWindows(windows, handler);
+            return;
+        }
+        long[] hits = new long[windows.size()];
+        long[] unique = new long[windows.size()];
+        scanRepository.countWindows(windows, (index, total, distinct) -> {
+            hits[index] = total;
+            unique[index] = distinct;
+        });
+        HyperLogLog[] sketches = new HyperLogLog[compacted.size()];
+        repository.findWindowDaily(wholeDays, (index, dailyHits, sketch) -> {
+            hits[positions.get(index)] += dailyHits;
+            sketchOf(sketches, index).merge(sketch);
+        });
+        repository.findWindowIps(compacted, (index, ip) -> sketchOf(sketches, index).add(ip));
+        for (int i = 0; i < compacted.size(); i++) {
+            if (sketches[i] != null) {
+                unique[positions.get(i)] = sketches[i].estimate();
+            }
+        }
+        for (int i = 0; i < windows.size(); i++) {
+            if (hits[i] > 0) {
+                handler.accept(i, hits[i], unique[i]);
+            }
+        }
+    }
+
+    private Integer compactChunk(LocalDateTime cutoff) {
+        Map<DailyKey, DailyAggregate> days = new HashMap<>();
+        int drained = repository.drainBefore(cutoff, chunkSize, (appId, uriId, ip, created) ->
+                days.computeIfAbsent(new DailyKey(appId, uriId, created.truncatedTo(ChronoUnit.DAYS)),
+                        k -> new DailyAggregate(new HyperLogLog(precision))).add(ip));
+        List<DailyKey> keys = new ArrayList<>(days.keySet());
+        keys.sort(LOCK_ORDER);
+        for (DailyKey key : keys) {
+            DailyAggregate aggregate = days.get(key);
+            repository.merge(key.appId(), key.uriId(), key.day(), aggregate.hits, aggregate.sketch);
+        }
+        return drained;
+    }
+
+    private HyperLogLog sketchOf(HyperLogLog[] sketches, int index) {
+        if (sketches[index] == null) {
+            sketches[index] = new HyperLogLog(precision);
+        }
+        return sketches[index];
+    }
+
+    /**
+     * First day starting at or after {@code start}.
+     */
+    static LocalDateTime firstWholeDay(LocalDateTime start) {
+        LocalDateTime day = start.truncatedTo(ChronoUnit.DAYS);
+        return day.equals(start) ? day : day.plusDays(1);
+    }
+
+    /**
+     * End, exclusive, of the last day ending within {@code end}; ranges are inclusive to the second, so a range
+     * ending at 23:59:59 takes in that day.
+     */
+    static LocalDateTime endOfWholeDays(LocalDateTime end) {
+        return end.plusSeconds(1).truncatedTo(ChronoUnit.DAYS);
+    }
+
+    private static long key(int appId, int uriId) {
+        return ((long) appId << 32) | (uriId & 0xffffffffL);
+    }
+
+    private record DailyKey(int appId, int uriId, LocalDateTime day) {
+    }
+
+    private static final class DailyAggregate {
+
+        private final HyperLogLog sketch;
+        private long hits;
+
+        private DailyAggregate(HyperLogLog sketch) {
+            this.sketch = sketch;
+        }
+
+        private void add(byte[] ip) {
+            sketch.add(ip);
+            hits++;
+        }
+    }
+}
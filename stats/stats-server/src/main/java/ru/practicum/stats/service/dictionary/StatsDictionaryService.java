@@ -0,0 +1,173 @@
+package ru.practicum.stats.service.dictionary;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.dto.ViewStats;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.dictionary.StatsDictionaryRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps app names and uris to the small integer ids stored in hit, rollup and sketch rows.
+ * Both directions are cached in-process; dictionaries only grow, so cached entries never go stale.
+ */
+@Service
+@Slf4j
+public class StatsDictionaryService {
+
+    private final StatsDictionaryRepository repository;
+    private final TransactionTemplate newTransaction;
+    private final Dictionary apps = new Dictionary(StatsDictionaryRepository.APP_TABLE);
+    private final Dictionary uris = new Dictionary(StatsDictionaryRepository.URI_TABLE);
+
+    public StatsDictionaryService(StatsDictionaryRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void preload() {
+        apps.preload();
+        uris.preload();
+        log.info("Loaded {} apps and {} uris into the dictionary cache", apps.size(), uris.size());
+    }
+
+    public void encode(List<EndpointHit> hits) {
+        for (EndpointHit hit : hits) {
+            hit.setAppId(apps.idOf(hit.getApp()));
+            hit.setUriId(uris.idOf(hit.getUri()));
+        }
+    }
+
+    public int appId(String app) {
+        return apps.idOf(app);
+    }
+
+    public int uriId(String uri) {
+        return uris.idOf(uri);
+    }
+
+    /**
+     * Returns {@code null} when no uri filter is requested and an empty list when none of the uris was ever hit.
+     */
+    public List<Integer> findUriIds(List<String> names) {
+        if (names == null || names.isEmpty()) {
+            return null;
+        }
+        return uris.find(names);
+    }
+
+    /**
+     * Returns the ids of the uris that were ever hit, keyed by uri; uris never hit are absent.
+     */
+    public Map<String, Integer> lookupUriIds(Collection<String> names) {
+        return uris.lookup(names);
+    }
+
+    public List<ViewStats> decode(List<HitCount> counts) {
+        return counts.stream()
+                .map(this::decode)
+                .toList();
+    }
+
+    public String appName(int id) {
+        return apps.nameOf(id);
+    }
+
+    public String uriName(int id) {
+        return uris.nameOf(id);
+    }
+
+    public ViewStats decode(HitCount count) {
+        return new ViewStats(apps.nameOf(count.appId()), uris.nameOf(count.uriId()), count.hits());
+    }
+
+    private final class Dictionary {
+
+        private final String table;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+        private Dictionary(String table) {
+            this.table = table;
+        }
+
+        void preload() {
+            repository.findAll(table).forEach(this::cache);
+        }
+
+        int size() {
+            return ids.size();
+        }
+
+        int idOf(String name) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            id = newTransaction.execute(status -> {
+                repository.insertIfAbsent(table, name);
+                return repository.findId(table, name);
+            });
+            if (id == null) {
+                throw new IllegalStateException("Failed to register " + name + " in " + table);
+            }
+            cache(name, id);
+            log.debug("Registered {} as {} in {}", name, id, table);
+            return id;
+        }
+
+        List<Integer> find(List<String> requested) {
+            return new ArrayList<>(lookup(requested).values());
+        }
+
+        Map<String, Integer> lookup(Collection<String> requested) {
+            Map<String, Integer> found = new HashMap<>();
+            Set<String> missing = new HashSet<>();
+            for (String name : requested) {
+                Integer id = ids.get(name);
+                if (id != null) {
+                    found.put(name, id);
+                } else {
+                    missing.add(name);
+                }
+            }
+            if (!missing.isEmpty()) {
+                repository.findIds(table, missing).forEach((name, id) -> {
+                    cache(name, id);
+                    found.put(name, id);
+                });
+            }
+            return found;
+        }
+
+        String nameOf(int id) {
+            String name = names.get(id);
+            if (name == null) {
+                name = repository.findName(table, id);
+                if (name == null) {
+                    throw new IllegalStateException("Unknown id " + id + " in " + table);
+                }
+                cache(name, id);
+            }
+            return name;
+        }
+
+        private void cache(String name, int id) {
+            ids.put(name, id);
+            names.put(id, name);
+        }
+    }
+}
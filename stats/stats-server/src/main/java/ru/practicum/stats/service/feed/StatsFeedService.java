@@ -0,0 +1,392 @@
+package ru.practicum.stats.service.feed;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.dto.ViewStatsDelta;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.StatsHitScanRepository;
+import ru.practicum.stats.service.ingest.HitCommitListener;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes per app/uri counter deltas to subscribers of a uri prefix every {@code stats.feed.interval-ms}, so clients
+ * keep local view counters current instead of polling /stats.
+ *
+ * <p>While anyone is subscribed, committed hits under a subscribed prefix are collected per app/uri. Each update
+ * reports their number and how many of their ips had never hit that app/uri before. The ips seen so far are kept
+ * per app/uri in an LRU of {@code stats.feed.tracked-uris} entries, seeded from raw hits when an app/uri first shows
+ * up: an ip counts as new if all its stored hits are from the current update. Each app/uri keeps only its
+ * {@code stats.feed.max-visitors-per-uri} most recently seen ips, so an ip returning after that many others counts
+ * as new again; beyond that many visitors unique deltas overcount. A first visit followed by a repeat
+ * committed between an update and its seeding query is counted as not new, so races undercount. Raw hits removed
+ * by compaction are not seen by the seed, so with compaction enabled a visitor returning after all their earlier
+ * hits were compacted counts as new. When a subscription ends, only the app/uris no remaining prefix covers are
+ * forgotten, as their hits stopped being collected.
+ *
+ * <p>Updates are built on a dedicated thread and each subscriber is sent its own queue of updates on a virtual
+ * thread, so neither seeding queries nor a slow client hold up the shared scheduler or other subscribers. A
+ * subscriber falling {@code stats.feed.max-queued-updates} updates behind is dropped and closed, and resyncs on
+ * reconnect. Subscribers that got nothing for {@code stats.feed.heartbeat} receive an empty update, which is how
+ * broken connections are noticed.
+ */
+@Service
+@Slf4j
+public class StatsFeedService implements HitCommitListener {
+
+    private static final Comparator<ViewStatsDelta> ORDER = Comparator
+            .comparing(ViewStatsDelta::getUri)
+            .thenComparing(ViewStatsDelta::getApp);
+
+    private final StatsHitScanRepository scanRepository;
+    private final TransactionTemplate readTransaction;
+    private final int fetchSize;
+    private final long heartbeatNanos;
+    private final long intervalMs;
+    private final int maxQueuedUpdates;
+    private final int maxVisitorsPerUri;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Lock pendingLock = new ReentrantLock();
+    private final Lock updateLock = new ReentrantLock();
+    private Map<Long, PendingUri> pending = new HashMap<>();
+    private final Map<Long, TrackedUri> visitors;
+    private volatile boolean invalidated;
+
+    private final ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stats-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    public StatsFeedService(StatsHitScanRepository scanRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${stats.storage.scan-fetch-size:10000}") int fetchSize,
+                            @Value("${stats.feed.tracked-uris:10000}") int trackedUris,
+                            @Value("${stats.feed.heartbeat:15s}") Duration heartbeat,
+                            @Value("${stats.feed.interval-ms:2000}") long intervalMs,
+                            @Value("${stats.feed.max-queued-updates:32}") int maxQueuedUpdates,
+                            @Value("${stats.feed.max-visitors-per-uri:10000}") int maxVisitorsPerUri) {
+        this.scanRepository = scanRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+        this.heartbeatNanos = heartbeat.toNanos();
+        this.intervalMs = intervalMs;
+        this.maxQueuedUpdates = maxQueuedUpdates;
+        this.maxVisitorsPerUri = maxVisitorsPerUri;
+        this.visitors = lru(trackedUris);
+    }
+
+    @PostConstruct
+    void start() {
+        publisher.scheduleWithFixedDelay(() -> {
+            try {
+                publish();
+            } catch (RuntimeException e) {
+                log.error("Failed to publish feed updates", e);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        publisher.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    /**
+     * Registers {@code sink} for updates of uris starting with {@code prefix} until the returned subscription is
+     * cancelled or the sink fails; {@code onDropped} is called when the service drops a subscriber that fell too far
+     * behind or whose sink failed, so the caller can close the connection.
+     */
+    public Subscription subscribe(String prefix, FeedSink sink, Runnable onDropped) {
+        Subscription subscription = new Subscription(prefix, sink, onDropped);
+        subscriptions.add(subscription);
+        log.info("Feed subscription for {} opened, {} active", prefix, subscriptions.size());
+        return subscription;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void onHitsCommitted(List<EndpointHit> hits) {
+        List<Subscription> active = subscriptions;
+        if (active.isEmpty()) {
+            return;
+        }
+        pendingLock.lock();
+        try {
+            for (EndpointHit hit : hits) {
+                if (!matchesAny(active, hit.getUri())) {
+                    continue;
+                }
+                long key = key(hit.getAppId(), hit.getUriId());
+                pending.computeIfAbsent(key, k -> new PendingUri(hit.getApp(), hit.getUri(), hit.getUriId()))
+                        .add(IpAddressUtils.toUuid(hit.getIp()));
+            }
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /**
+     * Sends the hits collected since the previous update; runs every {@code stats.feed.interval-ms}.
+     */
+    public void publish() {
+        updateLock.lock();
+        try {
+            if (invalidated) {
+                invalidated = false;
+                visitors.values().removeIf(tracked -> !matchesAny(subscriptions, tracked.uri()));
+            }
+            Map<Long, PendingUri> batch;
+            pendingLock.lock();
+            try {
+                batch = pending;
+                pending = new HashMap<>();
+            } finally {
+                pendingLock.unlock();
+            }
+            List<ViewStatsDelta> deltas = batch.isEmpty() ? List.of() : toDeltas(batch);
+            long now = System.nanoTime();
+            for (Subscription subscription : subscriptions) {
+                subscription.deliver(deltas, now);
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private List<ViewStatsDelta> toDeltas(Map<Long, PendingUri> batch) {
+        Map<Long, SeededUri> seeded = seed(batch);
+        Map<Long, Set<UUID>> tracked = new HashMap<>();
+        batch.keySet().forEach(key -> {
+            if (!seeded.containsKey(key)) {
+                tracked.put(key, visitors.get(key).ips());
+            }
+        });
+        List<ViewStatsDelta> deltas = new ArrayList<>(batch.size());
+        batch.forEach((key, uri) -> {
+            long unique = 0;
+            SeededUri seed = seeded.get(key);
+            if (seed != null) {
+                for (Map.Entry<UUID, Integer> ip : uri.ips.entrySet()) {
+                    if (seed.stored().getOrDefault(ip.getKey(), 0L) <= ip.getValue()) {
+                        unique++;
+                    }
+                }
+                seed.seen().addAll(uri.ips.keySet());
+                visitors.put(key, new TrackedUri(uri.uri, seed.seen()));
+            } else {
+                Set<UUID> seen = tracked.get(key);
+                for (UUID ip : uri.ips.keySet()) {
+                    if (seen.add(ip)) {
+                        unique++;
+                    }
+                }
+            }
+            deltas.add(new ViewStatsDelta(uri.app, uri.uri, uri.hits, unique));
+        });
+        deltas.sort(ORDER);
+        return deltas;
+    }
+
+    /**
+     * Loads the ips of the app/uris in {@code batch} that are not tracked yet, with the stored hit counts of the
+     * ips in the batch.
+     */
+    private Map<Long, SeededUri> seed(Map<Long, PendingUri> batch) {
+        Map<Long, SeededUri> seeded = new HashMap<>();
+        Set<Integer> uriIds = new HashSet<>();
+        batch.forEach((key, uri) -> {
+            if (!visitors.containsKey(key)) {
+                seeded.put(key, new SeededUri(uri.ips, new HashMap<>(), visitorSet()));
+                uriIds.add(uri.uriId);
+            }
+        });
+        if (!uriIds.isEmpty()) {
+            readTransaction.executeWithoutResult(status -> scanRepository.countIps(new ArrayList<>(uriIds), fetchSize,
+                    (appId, uriId, ip, hits) -> {
+                        SeededUri seed = seeded.get(key(appId, uriId));
+                        if (seed != null) {
+                            seed.seen().add(ip);
+                            if (seed.pending().containsKey(ip)) {
+                                seed.stored().put(ip, hits);
+                            }
+                        }
+                    }));
+        }
+        return seeded;
+    }
+
+    private Set<UUID> visitorSet() {
+        return Collections.newSetFromMap(lru(maxVisitorsPerUri));
+    }
+
+    private static boolean matchesAny(List<Subscription> subscriptions, String uri) {
+        for (Subscription subscription : subscriptions) {
+            if (uri.startsWith(subscription.prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long key(int appId, int uriId) {
+        return (long) appId << 32 | (uriId & 0xffffffffL);
+    }
+
+    private static <K, V> Map<K, V> lru(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @FunctionalInterface
+    public interface FeedSink {
+        /**
+         * Sends one update; an empty list is a heartbeat.
+         */
+        void send(List<ViewStatsDelta> deltas) throws IOException;
+    }
+
+    public final class Subscription {
+
+        private final String prefix;
+        private final FeedSink sink;
+        private final Runnable onDropped;
+        private final Lock queueLock = new ReentrantLock();
+        private final Deque<List<ViewStatsDelta>> queued = new ArrayDeque<>();
+        private boolean sending;
+        private long lastQueued = System.nanoTime();
+
+        private Subscription(String prefix, FeedSink sink, Runnable onDropped) {
+            this.prefix = prefix;
+            this.sink = sink;
+            this.onDropped = onDropped;
+        }
+
+        /**
+         * Stops updates; uris tracked for this prefix alone go stale, so their tracking restarts on the next update.
+         */
+        public void cancel() {
+            if (subscriptions.remove(this)) {
+                invalidated = true;
+                log.info("Feed subscription for {} closed, {} active", prefix, subscriptions.size());
+            }
+        }
+
+        private void deliver(List<ViewStatsDelta> deltas, long now) {
+            List<ViewStatsDelta> matching = deltas.stream()
+                    .filter(delta -> delta.getUri().startsWith(prefix))
+                    .toList();
+            if (matching.isEmpty() && now - lastQueued < heartbeatNanos) {
+                return;
+            }
+            lastQueued = now;
+            queueLock.lock();
+            try {
+                if (queued.size() >= maxQueuedUpdates) {
+                    queued.clear();
+                    drop("fell " + maxQueuedUpdates + " updates behind");
+                    return;
+                }
+                queued.add(matching);
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            } finally {
+                queueLock.unlock();
+            }
+            senders.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                List<ViewStatsDelta> next;
+                queueLock.lock();
+                try {
+                    next = queued.poll();
+                    if (next == null) {
+                        sending = false;
+                        return;
+                    }
+                } finally {
+                    queueLock.unlock();
+                }
+                try {
+                    sink.send(next);
+                } catch (IOException | RuntimeException e) {
+                    drop("is gone: " + e.getMessage());
+                    return;
+                }
+            }
+        }
+
+        private void drop(String reason) {
+            log.debug("Feed subscriber for {} {}", prefix, reason);
+            cancel();
+            onDropped.run();
+        }
+    }
+
+    private record TrackedUri(String uri, Set<UUID> ips) {
+    }
+
+    private record SeededUri(Map<UUID, Integer> pending, Map<UUID, Long> stored, Set<UUID> seen) {
+    }
+
+    private static final class PendingUri {
+
+        private final String app;
+        private final String uri;
+        private final int uriId;
+        private final Map<UUID, Integer> ips = new HashMap<>();
+        private long hits;
+
+        private PendingUri(String app, String uri, int uriId) {
+            this.app = app;
+            this.uri = uri;
+            this.uriId = uriId;
+        }
+
+        private void add(UUID ip) {
+            ips.merge(ip, 1, Integer::sum);
+            hits++;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package ru.practicum.stats.service.hot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.collection.IntHashSet;
+import ru.practicum.stats.collection.IpIndex;
+import ru.practicum.stats.collection.LongObjectHashMap;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.StatsHitScanRepository;
+import ru.practicum.stats.service.ingest.HitCommitListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the last {@code stats.hot-window.days} of hits in memory and answers /stats queries that start inside
+ * that window without touching the database. The window is rebuilt from the database on startup and then
+ * follows committed hits; hits older than the window are evicted hour by hour.
+ */
+@Service
+@Slf4j
+public class HotWindowService implements HitCommitListener {
+
+    private final StatsHitScanRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int days;
+    private final int fetchSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongObjectHashMap<UriWindow> windows = new LongObjectHashMap<>();
+    private IpIndex ips = new IpIndex();
+    private long baseEpochSecond;
+    private volatile int windowStart;
+    private volatile boolean ready;
+
+    public HotWindowService(StatsHitScanRepository repository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${stats.hot-window.enabled:true}") boolean enabled,
+                            @Value("${stats.hot-window.days:7}") int days,
+                            @Value("${stats.partition.retention-days:0}") int retentionDays,
+                            @Value("${stats.storage.scan-fetch-size:10000}") int fetchSize) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled && days > 0;
+        this.days = retentionDays > 0 ? Math.min(days, retentionDays) : days;
+        this.fetchSize = fetchSize;
+    }
+
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime base = windowStartAt(LocalDateTime.now());
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            windows.clear();
+            ips = new IpIndex();
+            baseEpochSecond = base.toEpochSecond(ZoneOffset.UTC);
+            windowStart = 0;
+            long[] loaded = new long[1];
+            transactionTemplate.executeWithoutResult(status ->
+                    repository.scanSince(base, fetchSize, (appId, uriId, ip, created) -> {
+                        add(appId, uriId, ip, created);
+                        loaded[0]++;
+                    }));
+            ready = true;
+            log.info("Hot window from {} rebuilt: {} hits, {} uris, {} distinct ips", base, loaded[0],
+                    windows.size(), ips.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onHitsCommitted(List<EndpointHit> hits) {
+        if (!ready) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (EndpointHit hit : hits) {
+                add(hit.getAppId(), hit.getUriId(), hit.getIp(), hit.getTimestamp());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean covers(LocalDateTime start, LocalDateTime end) {
+        if (!ready) {
+            return false;
+        }
+        long from = toOffset(start);
+        return from >= windowStart && toOffset(end) < Integer.MAX_VALUE;
+    }
+
+    /**
+     * Counts hits per uri from memory, or returns empty when the window no longer covers the range, for instance
+     * because it moved on after {@link #covers} was checked, so the caller falls back to the database.
+     */
+    public Optional<List<HitCount>> findStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                              boolean unique) {
+        IntHashSet uriFilter = null;
+        if (uriIds != null && !uriIds.isEmpty()) {
+            uriFilter = new IntHashSet(uriIds.size());
+            for (int uriId : uriIds) {
+                uriFilter.add(uriId);
+            }
+        }
+        IntHashSet filter = uriFilter;
+        List<HitCount> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (!covers(start, end)) {
+                return Optional.empty();
+            }
+            int from = (int) toOffset(start);
+            int to = (int) toOffset(end);
+            windows.forEach((key, window) -> {
+                int appId = (int) (key >>> 32);
+                int uriId = (int) key;
+                if (filter != null && !filter.contains(uriId)) {
+                    return;
+                }
+                long hits;
+                if (unique) {
+                    IntHashSet visitors = new IntHashSet();
+                    window.collectUnique(from, to, visitors);
+                    hits = visitors.size();
+                } else {
+                    hits = window.count(from, to);
+                }
+                if (hits > 0) {
+                    result.add(new HitCount(appId, uriId, hits));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparingLong(HitCount::hits).reversed());
+        return Optional.of(result);
+    }
+
+    @Scheduled(fixedDelayString = "${stats.hot-window.evict-interval-ms:60000}")
+    public void evict() {
+        if (!ready) {
+            return;
+        }
+        int cutoff = (int) toOffset(windowStartAt(LocalDateTime.now()));
+        if (cutoff <= windowStart) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            windowStart = cutoff;
+            windows.forEach((key, window) -> window.evictBefore(cutoff, ips));
+            windows.removeIf(UriWindow::isEmpty);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Hot window moved to offset {}: {} uris, {} distinct ips", cutoff, windows.size(), ips.size());
+    }
+
+    private void add(int appId, int uriId, byte[] ip, LocalDateTime created) {
+        long offset = toOffset(created);
+        if (offset < windowStart || offset >= Integer.MAX_VALUE) {
+            return;
+        }
+        long key = ((long) appId << 32) | (uriId & 0xffffffffL);
+        windows.computeIfAbsent(key, k -> new UriWindow()).add((int) offset, ips.acquire(ip));
+    }
+
+    private long toOffset(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) - baseEpochSecond;
+    }
+
+    private LocalDateTime windowStartAt(LocalDateTime now) {
+        return now.minusDays(days).truncatedTo(ChronoUnit.HOURS);
+    }
+}
@@ -0,0 +1,158 @@
+package ru.practicum.stats.service.hot;
+
+import ru.practicum.stats.collection.IntHashSet;
+import ru.practicum.stats.collection.IpIndex;
+
+import java.util.Arrays;
+
+/**
+ * Hits of one app/uri pair inside the hot window: a time-ordered log of (second, ip id) pairs for exact range
+ * edges, plus one set of ip ids per hour so unique counts over long ranges merge sets instead of rescanning hits.
+ * Times are seconds since the hour-aligned window base.
+ */
+final class UriWindow {
+
+    static final int HOUR = 3600;
+
+    private int[] times = new int[8];
+    private int[] ips = new int[8];
+    private int head;
+    private int tail;
+
+    private IntHashSet[] hours = new IntHashSet[0];
+    private int firstHour;
+
+    void add(int time, int ip) {
+        if (tail == times.length) {
+            grow();
+        }
+        if (tail == head || times[tail - 1] <= time) {
+            times[tail] = time;
+            ips[tail] = ip;
+        } else {
+            int position = upperBound(time);
+            System.arraycopy(times, position, times, position + 1, tail - position);
+            System.arraycopy(ips, position, ips, position + 1, tail - position);
+            times[position] = time;
+            ips[position] = ip;
+        }
+        tail++;
+        hourSet(time / HOUR).add(ip);
+    }
+
+    long count(int from, int to) {
+        return upperBound(to) - lowerBound(from);
+    }
+
+    void collectUnique(int from, int to, IntHashSet into) {
+        int fromHour = Math.ceilDiv(from, HOUR);
+        int toHour = (to + 1) / HOUR;
+        if (fromHour >= toHour) {
+            scan(from, to, into);
+            return;
+        }
+        scan(from, fromHour * HOUR - 1, into);
+        for (int hour = Math.max(fromHour, firstHour); hour < toHour && hour - firstHour < hours.length; hour++) {
+            IntHashSet set = hours[hour - firstHour];
+            if (set != null) {
+                into.addAll(set);
+            }
+        }
+        scan(toHour * HOUR, to, into);
+    }
+
+    /**
+     * Drops hits before {@code cutoff}, which must be hour-aligned so that hour sets leave together with their hits.
+     */
+    void evictBefore(int cutoff, IpIndex index) {
+        while (head < tail && times[head] < cutoff) {
+            index.release(ips[head]);
+            head++;
+        }
+        if (head == tail) {
+            head = 0;
+            tail = 0;
+        } else if (head > times.length / 2) {
+            System.arraycopy(times, head, times, 0, tail - head);
+            System.arraycopy(ips, head, ips, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        int drop = Math.min(cutoff / HOUR - firstHour, hours.length);
+        if (drop > 0) {
+            hours = Arrays.copyOfRange(hours, drop, hours.length);
+            firstHour += drop;
+        }
+    }
+
+    boolean isEmpty() {
+        return head == tail;
+    }
+
+    private void scan(int from, int to, IntHashSet into) {
+        for (int i = lowerBound(from); i < tail && times[i] <= to; i++) {
+            into.add(ips[i]);
+        }
+    }
+
+    private IntHashSet hourSet(int hour) {
+        if (hours.length == 0) {
+            hours = new IntHashSet[1];
+            firstHour = hour;
+        } else if (hour < firstHour) {
+            IntHashSet[] shifted = new IntHashSet[hours.length + firstHour - hour];
+            System.arraycopy(hours, 0, shifted, firstHour - hour, hours.length);
+            hours = shifted;
+            firstHour = hour;
+        } else if (hour - firstHour >= hours.length) {
+            hours = Arrays.copyOf(hours, Math.max(hour - firstHour + 1, hours.length * 2));
+        }
+        IntHashSet set = hours[hour - firstHour];
+        if (set == null) {
+            set = new IntHashSet();
+            hours[hour - firstHour] = set;
+        }
+        return set;
+    }
+
+    private void grow() {
+        int live = tail - head;
+        int capacity = live * 2 > times.length ? times.length * 2 : times.length;
+        int[] newTimes = new int[capacity];
+        int[] newIps = new int[capacity];
+        System.arraycopy(times, head, newTimes, 0, live);
+        System.arraycopy(ips, head, newIps, 0, live);
+        times = newTimes;
+        ips = newIps;
+        head = 0;
+        tail = live;
+    }
+
+    private int lowerBound(int time) {
+        int low = head;
+        int high = tail;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(int time) {
+        int low = head;
+        int high = tail;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
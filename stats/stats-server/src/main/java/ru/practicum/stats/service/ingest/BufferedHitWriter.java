@@ -0,0 +1,272 @@
+package ru.practicum.stats.service.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.exception.TooManyRequestsException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Acknowledges hits once queued and group-commits them from a single writer thread. A batch failing to commit is
+ * retried with exponential backoff up to {@code retry-max-interval-ms} while its hits keep their buffer slots, so
+ * a database outage fills the buffer and turns new writes into 429 instead of losing acknowledged hits; hits the
+ * database refuses outright are isolated and dropped one by one. On shutdown the buffer is drained for up to
+ * {@code shutdown-timeout-ms}; whatever is left after that is counted as dropped and logged.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "stats.ingest.mode", havingValue = "buffered")
+public class BufferedHitWriter implements HitWriter, SmartLifecycle {
+
+    private final HitPersister persister;
+    private final BlockingQueue<EndpointHit> queue;
+    private final Semaphore freeSlots;
+    private final int flushSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final long shutdownTimeoutMs;
+    private final long retryIntervalMs;
+    private final long maxRetryIntervalMs;
+
+    private final Timer flushTimer;
+    private final DistributionSummary flushSizeSummary;
+    private final Counter rejectedCounter;
+    private final Counter droppedCounter;
+    private final Counter retryCounter;
+
+    /**
+     * Writes share it while they check {@link #running} and enqueue; {@link #stop()} takes it exclusively to clear
+     * the flag, so no hit can be acknowledged after the writer thread has decided the buffer is drained.
+     */
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public BufferedHitWriter(HitPersister persister,
+                             MeterRegistry meterRegistry,
+                             @Value("${stats.ingest.buffer.capacity:10000}") int capacity,
+                             @Value("${stats.ingest.buffer.flush-size:500}") int flushSize,
+                             @Value("${stats.ingest.buffer.flush-interval-ms:200}") long flushIntervalMs,
+                             @Value("${stats.ingest.buffer.offer-timeout-ms:50}") long offerTimeoutMs,
+                             @Value("${stats.ingest.buffer.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+                             @Value("${stats.ingest.buffer.retry-interval-ms:500}") long retryIntervalMs,
+                             @Value("${stats.ingest.buffer.retry-max-interval-ms:30000}") long maxRetryIntervalMs) {
+        this.persister = persister;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.freeSlots = new Semaphore(capacity);
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.retryIntervalMs = retryIntervalMs;
+        this.maxRetryIntervalMs = Math.max(retryIntervalMs, maxRetryIntervalMs);
+
+        Gauge.builder("stats.ingest.buffer.depth", queue, BlockingQueue::size)
+                .description("Hits waiting in the write-behind buffer")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("stats.ingest.buffer.flush")
+                .description("Time to group-commit one batch of buffered hits")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushSizeSummary = DistributionSummary.builder("stats.ingest.buffer.flush.size")
+                .description("Hits per group commit")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("stats.ingest.buffer.rejected")
+                .description("Hits rejected because the buffer was full")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("stats.ingest.buffer.dropped")
+                .description("Buffered hits lost because the database refused them or shutdown cut their retries")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("stats.ingest.buffer.retries")
+                .description("Failed group commits that were retried")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void write(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        stateLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new TooManyRequestsException("Hit buffer is not accepting writes", retryAfterSeconds());
+            }
+            if (!acquire(hits.size())) {
+                rejectedCounter.increment(hits.size());
+                log.warn("Hit buffer is full, rejected {} hits", hits.size());
+                throw new TooManyRequestsException("Hit buffer is full", retryAfterSeconds());
+            }
+            queue.addAll(hits);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::runWriter, "stats-hit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Buffered hit writer started: flushSize={}, flushIntervalMs={}", flushSize, flushIntervalMs);
+    }
+
+    @Override
+    public void stop() {
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            writerThread.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn("Hit writer did not drain in {} ms, abandoning the hits left in the buffer", shutdownTimeoutMs);
+            writerThread.interrupt();
+            try {
+                writerThread.join(shutdownTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            log.info("Buffered hit writer stopped, buffer drained");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private boolean acquire(int permits) {
+        try {
+            return freeSlots.tryAcquire(permits, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private long retryAfterSeconds() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(flushIntervalMs));
+    }
+
+    private void runWriter() {
+        List<EndpointHit> batch = new ArrayList<>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                    freeSlots.release(batch.size());
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abandon(batch);
+                return;
+            }
+        }
+    }
+
+    private void abandon(List<EndpointHit> batch) {
+        int lost = batch.size() + queue.size();
+        queue.clear();
+        if (lost > 0) {
+            droppedCounter.increment(lost);
+            log.error("Dropped {} buffered hits not committed before shutdown", lost);
+        }
+    }
+
+    private void collectBatch(List<EndpointHit> batch) throws InterruptedException {
+        EndpointHit first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < flushSize) {
+            queue.drainTo(batch, flushSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= flushSize || remaining <= 0 || !running) {
+                return;
+            }
+            EndpointHit next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Commits one batch, retrying with backoff until it does; throws if shutdown interrupts the retries.
+     */
+    private void flush(List<EndpointHit> batch) throws InterruptedException {
+        long backoffMs = retryIntervalMs;
+        boolean isolate = false;
+        while (true) {
+            try {
+                if (isolate) {
+                    flushOneByOne(batch);
+                } else {
+                    flushTimer.record(() -> persister.persist(batch));
+                }
+                flushSizeSummary.record(batch.size());
+                log.debug("Flushed {} buffered hits", batch.size());
+                return;
+            } catch (DataIntegrityViolationException e) {
+                isolate = true;
+            } catch (RuntimeException e) {
+                retryCounter.increment();
+                log.error("Failed to flush {} buffered hits, retrying in {} ms: {}", batch.size(), backoffMs,
+                        e.getMessage());
+                Thread.sleep(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, maxRetryIntervalMs);
+            }
+        }
+    }
+
+    /**
+     * Isolates hits the database refuses; if a later failure sends the batch back here, hits committed by an
+     * earlier pass are written twice, which is accepted for this rare path.
+     */
+    private void flushOneByOne(List<EndpointHit> batch) {
+        for (EndpointHit hit : batch) {
+            try {
+                persister.persist(List.of(hit));
+            } catch (DataIntegrityViolationException e) {
+                droppedCounter.increment();
+                log.error("Dropped hit app={}, uri={} rejected by the database: {}", hit.getApp(), hit.getUri(),
+                        e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.stats.service.ingest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.entity.EndpointHit;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.ingest.mode", havingValue = "direct", matchIfMissing = true)
+public class DirectHitWriter implements HitWriter {
+
+    private final HitPersister persister;
+
+    @Override
+    public void write(List<EndpointHit> hits) {
+        persister.persist(hits);
+    }
+}
@@ -0,0 +1,216 @@
+package ru.practicum.stats.service.ingest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.service.metrics.StatsMetrics;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drops hits repeating an app, uri and ip seen within {@code stats.ingest.dedup.window}, such as page refreshes
+ * and client retries; disabled when the window is zero.
+ *
+ * <p>Each hit is reduced to a 64-bit fingerprint of app, uri, ip and the window-aligned slot of its timestamp, so
+ * replayed history is never mistaken for a burst. Fingerprints go into two fixed open-addressing tables, current
+ * and previous, which rotate every window or as soon as the current one is three quarters full: memory stays
+ * constant, a repeat is caught for at least one window while under capacity, and a false positive needs a full
+ * 64-bit collision. Duplicates straddling a slot boundary are kept. Callers {@link #forget} hits they failed to
+ * write, so that a retry of a rejected batch is not mistaken for a repeat.
+ */
+@Component
+public class DuplicateHitFilter {
+
+    private final StatsMetrics metrics;
+    private final long windowNanos;
+    private final long windowMillis;
+    private final int limit;
+    private final Lock lock = new ReentrantLock();
+
+    private long[] current;
+    private long[] previous;
+    private int size;
+    private long rotatedAt;
+
+    public DuplicateHitFilter(StatsMetrics metrics,
+                              @Value("${stats.ingest.dedup.window:0s}") Duration window,
+                              @Value("${stats.ingest.dedup.capacity:100000}") int capacity) {
+        this.metrics = metrics;
+        this.windowNanos = window.toNanos();
+        this.windowMillis = Math.max(1, window.toMillis());
+        int slots = Integer.highestOneBit(Math.max(16, capacity * 4 / 3) - 1) << 1;
+        this.limit = slots / 4 * 3;
+        this.current = windowNanos > 0 ? new long[slots] : new long[0];
+        this.previous = windowNanos > 0 ? new long[slots] : new long[0];
+        this.rotatedAt = System.nanoTime();
+    }
+
+    public boolean isEnabled() {
+        return windowNanos > 0;
+    }
+
+    /**
+     * Returns the hits not seen within the window, in their original order, and remembers them.
+     */
+    public List<EndpointHit> filter(List<EndpointHit> hits) {
+        if (!isEnabled() || hits.isEmpty()) {
+            return hits;
+        }
+        long[] fingerprints = new long[hits.size()];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = fingerprint(hits.get(i));
+        }
+        boolean[] fresh = new boolean[fingerprints.length];
+        int kept = 0;
+        lock.lock();
+        try {
+            rotateIfDue();
+            for (int i = 0; i < fingerprints.length; i++) {
+                if (size >= limit) {
+                    rotateIfDue();
+                }
+                if (!contains(previous, fingerprints[i]) && insert(fingerprints[i])) {
+                    fresh[i] = true;
+                    kept++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (kept == hits.size()) {
+            return hits;
+        }
+        List<EndpointHit> result = new ArrayList<>(kept);
+        for (int i = 0; i < fresh.length; i++) {
+            if (fresh[i]) {
+                result.add(hits.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes hits returned by {@link #filter} that were not written after all.
+     */
+    public void forget(List<EndpointHit> hits) {
+        if (!isEnabled() || hits.isEmpty()) {
+            return;
+        }
+        long[] fingerprints = new long[hits.size()];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = fingerprint(hits.get(i));
+        }
+        lock.lock();
+        try {
+            for (long fingerprint : fingerprints) {
+                if (remove(current, fingerprint)) {
+                    size--;
+                }
+                remove(previous, fingerprint);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long fingerprint(EndpointHit hit) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mixString(hash, hit.getApp());
+        hash = mixString(hash, hit.getUri());
+        for (byte b : hit.getIp()) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        long slot = hit.getTimestamp() == null
+                ? -1
+                : hit.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli() / windowMillis;
+        hash = (hash ^ slot) * 0x100000001b3L;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private void rotateIfDue() {
+        long now = System.nanoTime();
+        boolean expired = now - rotatedAt >= windowNanos;
+        if (!expired && size < limit) {
+            return;
+        }
+        long[] recycled = previous;
+        Arrays.fill(recycled, 0);
+        previous = current;
+        current = recycled;
+        size = 0;
+        rotatedAt = now;
+        metrics.recordDedupRotation(expired ? "window" : "full");
+    }
+
+    private boolean insert(long fingerprint) {
+        int mask = current.length - 1;
+        int i = (int) fingerprint & mask;
+        while (current[i] != 0) {
+            if (current[i] == fingerprint) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        current[i] = fingerprint;
+        size++;
+        return true;
+    }
+
+    private static boolean contains(long[] table, long fingerprint) {
+        int mask = table.length - 1;
+        int i = (int) fingerprint & mask;
+        while (table[i] != 0) {
+            if (table[i] == fingerprint) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Deletes by shifting later entries of the probe sequence back into the hole, keeping every entry reachable
+     * from its home slot without tombstones.
+     */
+    private static boolean remove(long[] table, long fingerprint) {
+        int mask = table.length - 1;
+        int hole = (int) fingerprint & mask;
+        while (table[hole] != fingerprint) {
+            if (table[hole] == 0) {
+                return false;
+            }
+            hole = (hole + 1) & mask;
+        }
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            long entry = table[i];
+            if (entry == 0) {
+                break;
+            }
+            int home = (int) entry & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = entry;
+                hole = i;
+            }
+        }
+        table[hole] = 0;
+        return true;
+    }
+
+    private static long mixString(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ 0xff) * 0x100000001b3L;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.stats.service.ingest;
+
+import ru.practicum.stats.entity.EndpointHit;
+
+import java.util.List;
+
+public interface HitIngestListener {
+
+    void onHitsPersisted(List<EndpointHit> hits);
+}
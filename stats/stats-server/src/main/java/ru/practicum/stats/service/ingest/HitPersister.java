@@ -0,0 +1,86 @@
+package ru.practicum.stats.service.ingest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.exception.TooManyRequestsException;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Writes hits and notifies the ingest listeners. While ingest is {@link #pauseIngest paused} every persist fails
+ * with {@link TooManyRequestsException}, which the writers retry; a persist holds its share of the ingest lock until
+ * its transaction completes, so a pause waits for hits already being written, commit listeners included.
+ */
+@Component
+@RequiredArgsConstructor
+public class HitPersister {
+
+    private final StatsRepository repository;
+    private final StatsDictionaryService dictionary;
+    private final List<HitIngestListener> listeners;
+    private final List<HitCommitListener> commitListeners;
+    private final ReadWriteLock ingestLock = new ReentrantReadWriteLock();
+
+    private volatile boolean paused;
+
+    @Value("${stats.admission.retry-after:1s}")
+    private Duration retryAfter;
+
+    @Transactional
+    public void persist(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        enter();
+        dictionary.encode(hits);
+        repository.batchInsert(hits);
+        for (HitIngestListener listener : listeners) {
+            listener.onHitsPersisted(hits);
+        }
+        if (!commitListeners.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    for (HitCommitListener listener : commitListeners) {
+                        listener.onHitsCommitted(hits);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Turns away new hits and waits until those being written have committed or rolled back.
+     */
+    public void pauseIngest() {
+        paused = true;
+        ingestLock.writeLock().lock();
+    }
+
+    public void resumeIngest() {
+        paused = false;
+        ingestLock.writeLock().unlock();
+    }
+
+    private void enter() {
+        if (paused || !ingestLock.readLock().tryLock()) {
+            throw new TooManyRequestsException("Ingest is paused", Math.max(1, retryAfter.toSeconds()));
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                ingestLock.readLock().unlock();
+            }
+        });
+    }
+}
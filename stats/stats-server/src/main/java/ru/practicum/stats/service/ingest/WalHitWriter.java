@@ -0,0 +1,244 @@
+package ru.practicum.stats.service.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.exception.BadRequestException;
+import ru.practicum.stats.exception.TooManyRequestsException;
+import ru.practicum.stats.repository.IngestCheckpointRepository;
+import ru.practicum.stats.wal.HitLog;
+import ru.practicum.stats.wal.HitLogReader;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acknowledges hits once they are durable in the local {@link HitLog}; a background loader drains the log into
+ * the database. The loaded position is saved in the same transaction as the hits, so after a crash or restart
+ * loading resumes exactly where the last commit left off, and a database outage only delays loading.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "stats.ingest.mode", havingValue = "wal")
+public class WalHitWriter implements HitWriter, SmartLifecycle {
+
+    private final HitPersister persister;
+    private final IngestCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final long retryIntervalMs;
+    private final long shutdownTimeoutMs;
+    private final String checkpointName;
+    private final MeterRegistry meterRegistry;
+
+    private final Timer syncTimer;
+    private final Counter loadFailureCounter;
+    private final Counter droppedCounter;
+
+    private HitLog hitLog;
+    private volatile boolean running;
+    private Thread loaderThread;
+
+    public WalHitWriter(HitPersister persister,
+                        IngestCheckpointRepository checkpointRepository,
+                        TransactionTemplate transactionTemplate,
+                        MeterRegistry meterRegistry,
+                        @Value("${stats.ingest.wal.dir:data/hit-log}") Path directory,
+                        @Value("${stats.ingest.wal.segment-size:64MB}") DataSize segmentSize,
+                        @Value("${stats.ingest.wal.max-segments:64}") int maxSegments,
+                        @Value("${stats.ingest.wal.load-batch-size:1000}") int batchSize,
+                        @Value("${stats.ingest.wal.poll-interval-ms:50}") long pollIntervalMs,
+                        @Value("${stats.ingest.wal.retry-interval-ms:1000}") long retryIntervalMs,
+                        @Value("${stats.ingest.wal.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+                        @Value("${stats.ingest.wal.checkpoint-name:hit-log}") String checkpointName) {
+        this.persister = persister;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.directory = directory;
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.maxSegments = maxSegments;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.retryIntervalMs = retryIntervalMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.checkpointName = checkpointName;
+
+        this.syncTimer = Timer.builder("stats.ingest.wal.sync")
+                .description("Time an acknowledged write waits for the hit log to reach disk")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.loadFailureCounter = Counter.builder("stats.ingest.wal.load.failures")
+                .description("Failed attempts to load a batch from the hit log into the database")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("stats.ingest.wal.dropped")
+                .description("Logged hits the database rejected as invalid")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void write(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        if (!running) {
+            throw new TooManyRequestsException("Hit log is not accepting writes", retryAfterSeconds());
+        }
+        if (hitLog.segmentCount() > maxSegments) {
+            log.warn("Hit log has {} unloaded segments, rejected {} hits", hitLog.segmentCount(), hits.size());
+            throw new TooManyRequestsException("Hit log is full", retryAfterSeconds());
+        }
+        long position;
+        try {
+            position = hitLog.append(hits);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        long started = System.nanoTime();
+        try {
+            hitLog.sync(position);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TooManyRequestsException("Interrupted while syncing the hit log", retryAfterSeconds());
+        }
+        syncTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void start() {
+        long checkpoint = checkpointRepository.find(checkpointName);
+        hitLog = HitLog.open(directory, segmentSize, checkpoint);
+        hitLog.release(checkpoint);
+        Gauge.builder("stats.ingest.wal.segments", hitLog, HitLog::segmentCount)
+                .description("Hit log segments not yet fully loaded into the database")
+                .register(meterRegistry);
+        HitLogReader reader = hitLog.reader(checkpoint);
+        running = true;
+        loaderThread = new Thread(() -> runLoader(reader), "stats-hit-log-loader");
+        loaderThread.setDaemon(true);
+        loaderThread.start();
+        log.info("Hit log opened in {}, loading from segment {} offset {}", directory,
+                HitLog.segmentOf(checkpoint), HitLog.offsetOf(checkpoint));
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            loaderThread.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (loaderThread.isAlive()) {
+            log.warn("Hit log loader did not catch up in {} ms, the rest is loaded on next start", shutdownTimeoutMs);
+        } else {
+            log.info("Hit log loader stopped");
+        }
+        hitLog.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private long retryAfterSeconds() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(retryIntervalMs));
+    }
+
+    private void runLoader(HitLogReader reader) {
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        while (true) {
+            boolean stopping = !running;
+            reader.read(batchSize, batch);
+            if (batch.isEmpty()) {
+                if (stopping || !pause(pollIntervalMs)) {
+                    return;
+                }
+                continue;
+            }
+            if (!load(batch, reader.position())) {
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Loads one batch, retrying until it commits; returns {@code false} if shutdown interrupted the retries.
+     */
+    private boolean load(List<EndpointHit> batch, long position) {
+        boolean isolate = false;
+        while (true) {
+            try {
+                if (isolate) {
+                    loadOneByOne(batch, position);
+                } else {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        persister.persist(batch);
+                        checkpointRepository.save(checkpointName, position);
+                    });
+                }
+                hitLog.release(position);
+                log.debug("Loaded {} hits from the hit log", batch.size());
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                isolate = true;
+            } catch (RuntimeException e) {
+                loadFailureCounter.increment();
+                log.error("Failed to load {} hits from the hit log, retrying: {}", batch.size(), e.getMessage());
+                if (!running || !pause(retryIntervalMs)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Isolates hits the database refuses so one bad record cannot stall the loader. Hits committed here before a
+     * crash may be loaded twice, which is accepted for this rare path.
+     */
+    private void loadOneByOne(List<EndpointHit> batch, long position) {
+        for (EndpointHit hit : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> persister.persist(List.of(hit)));
+            } catch (DataIntegrityViolationException e) {
+                droppedCounter.increment();
+                log.error("Dropped hit app={}, uri={} rejected by the database: {}", hit.getApp(), hit.getUri(),
+                        e.getMostSpecificCause().getMessage());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> checkpointRepository.save(checkpointName, position));
+    }
+
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package ru.practicum.stats.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.repository.HitCount;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the ingest and query hot paths. Sizes are tagged by bucket rather than by value to keep the number of
+ * series bounded, and timers publish histogram buckets so percentiles can be aggregated across instances:
+ * <ul>
+ *     <li>{@code stats.ingest} timer and {@code stats.ingest.hits} counter, by endpoint, ingest mode and batch size</li>
+ *     <li>{@code stats.query} timer of {@code /stats}, by source, unique, approximate, uri count and result size</li>
+ *     <li>{@code stats.criteria} timer and {@code stats.criteria.rows} histogram of the exact unique scan</li>
+ *     <li>{@code stats.ingest.duplicates} counter of suppressed repeat hits and {@code stats.ingest.dedup.rotations}
+ *     by reason, a high share of {@code full} meaning the window is cut short by the capacity</li>
+ *     <li>{@code stats.admission.requests} counter by lane and outcome, every outcome but {@code admitted} being a
+ *     request shed with 429, and {@code stats.admission.limit} and {@code stats.admission.in-flight} gauges</li>
+ * </ul>
+ */
+@Component
+public class StatsMetrics {
+
+    private static final double[] ROW_BUCKETS = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private final MeterRegistry registry;
+    private final String ingestMode;
+
+    public StatsMetrics(MeterRegistry registry, @Value("${stats.ingest.mode:direct}") String ingestMode) {
+        this.registry = registry;
+        this.ingestMode = ingestMode;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void recordIngest(Timer.Sample sample, String endpoint, int hits) {
+        String batch = sizeBucket(hits);
+        sample.stop(Timer.builder("stats.ingest")
+                .description("Time to accept hits, including the write for direct ingestion")
+                .publishPercentileHistogram()
+                .tags("endpoint", endpoint, "mode", ingestMode, "batch", batch)
+                .register(registry));
+        Counter.builder("stats.ingest.hits")
+                .description("Hits accepted")
+                .tags("endpoint", endpoint, "mode", ingestMode, "batch", batch)
+                .register(registry)
+                .increment(hits);
+    }
+
+    public void recordDuplicates(String endpoint, int suppressed) {
+        Counter.builder("stats.ingest.duplicates")
+                .description("Hits dropped as repeats within the deduplication window")
+                .tag("endpoint", endpoint)
+                .register(registry)
+                .increment(suppressed);
+    }
+
+    public void recordDedupRotation(String reason) {
+        Counter.builder("stats.ingest.dedup.rotations")
+                .description("Rotations of the deduplication tables, on window expiry or when full")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordAdmission(String lane, String outcome) {
+        Counter.builder("stats.admission.requests")
+                .description("Requests passed through admission control, shed ones by reason")
+                .tags("lane", lane, "outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    public void registerAdmissionGauges(Supplier<Number> limit, Supplier<Number> inFlight) {
+        Gauge.builder("stats.admission.limit", limit)
+                .description("Adaptive concurrency limit of /hit and /stats requests")
+                .register(registry);
+        Gauge.builder("stats.admission.in-flight", inFlight)
+                .description("Admitted /hit and /stats requests in progress")
+                .register(registry);
+    }
+
+    /**
+     * @param uris requested uris, {@code null} or empty for all
+     */
+    public void recordQuery(Timer.Sample sample, String source, boolean unique, boolean approximate,
+                            List<String> uris, int resultSize) {
+        sample.stop(Timer.builder("stats.query")
+                .description("Time to answer /stats")
+                .publishPercentileHistogram()
+                .tags("source", source,
+                        "unique", Boolean.toString(unique),
+                        "approximate", Boolean.toString(approximate),
+                        "uris", uris == null || uris.isEmpty() ? "all" : sizeBucket(uris.size()),
+                        "result", sizeBucket(resultSize))
+                .register(registry));
+    }
+
+    /**
+     * Times a {@code findStatsByCriteria} call and records how many app/uri rows it returned.
+     */
+    public List<HitCount> recordCriteria(boolean unique, Supplier<List<HitCount>> query) {
+        Timer.Sample sample = start();
+        List<HitCount> rows = query.get();
+        sample.stop(Timer.builder("stats.criteria")
+                .description("Database time of findStatsByCriteria")
+                .publishPercentileHistogram()
+                .tag("unique", Boolean.toString(unique))
+                .register(registry));
+        DistributionSummary.builder("stats.criteria.rows")
+                .description("Rows returned by findStatsByCriteria")
+                .tag("unique", Boolean.toString(unique))
+                .serviceLevelObjectives(ROW_BUCKETS)
+                .register(registry)
+                .record(rows.size());
+        return rows;
+    }
+
+    static String sizeBucket(int size) {
+        if (size <= 1) {
+            return Integer.toString(size);
+        }
+        if (size <= 10) {
+            return "2-10";
+        }
+        if (size <= 100) {
+            return "11-100";
+        }
+        if (size <= 1_000) {
+            return "101-1000";
+        }
+        return "1000+";
+    }
+}
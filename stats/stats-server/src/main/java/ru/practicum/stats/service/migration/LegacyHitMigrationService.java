@@ -0,0 +1,154 @@
+package ru.practicum.stats.service.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.repository.StatsSketchRepository;
+import ru.practicum.stats.repository.migration.LegacyHitRepository;
+import ru.practicum.stats.repository.migration.LegacyHitRepository.BinaryIp;
+import ru.practicum.stats.repository.migration.LegacyHitRepository.LegacyHit;
+import ru.practicum.stats.repository.migration.LegacyHitRepository.TextIp;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Brings hit rows written by older versions to the current format. Every chunk is converted in its own
+ * transaction and marks its progress in the same transaction, so an interrupted migration resumes on restart.
+ * Stored IPs that do not parse are replaced by an address in the unique local range {@code fd00::/8} hashed from
+ * the original text, so each distinct value still counts as its own visitor; their number is logged. Rows of the
+ * legacy table are deleted as they are moved; the emptied table itself is only dropped when
+ * {@code stats.migration.drop-legacy-table} is set.
+ */
+@Service
+@Slf4j
+public class LegacyHitMigrationService {
+
+    private static final byte UNIQUE_LOCAL_PREFIX = (byte) 0xfd;
+
+    private final LegacyHitRepository repository;
+    private final StatsRepository statsRepository;
+    private final StatsSketchRepository sketchRepository;
+    private final StatsDictionaryService dictionary;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final boolean dropLegacyTable;
+
+    public LegacyHitMigrationService(LegacyHitRepository repository,
+                                     StatsRepository statsRepository,
+                                     StatsSketchRepository sketchRepository,
+                                     StatsDictionaryService dictionary,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${stats.migration.chunk-size:10000}") int chunkSize,
+                                     @Value("${stats.migration.drop-legacy-table:false}") boolean dropLegacyTable) {
+        this.repository = repository;
+        this.statsRepository = statsRepository;
+        this.sketchRepository = sketchRepository;
+        this.dictionary = dictionary;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.dropLegacyTable = dropLegacyTable;
+    }
+
+    public void migrateIfPresent() {
+        if (repository.hasTextIp()) {
+            convertTextIps();
+        }
+        if (repository.exists()) {
+            moveLegacyTable();
+        }
+    }
+
+    private void convertTextIps() {
+        log.info("Column {}.ip is text, converting to binary addresses", LegacyHitRepository.HIT_TABLE);
+        AtomicLong invalid = new AtomicLong();
+        transactionTemplate.executeWithoutResult(status -> repository.addBinaryIpColumn());
+        long converted = 0;
+        long lastId = 0;
+        List<TextIp> chunk = repository.findTextIps(lastId, chunkSize);
+        while (!chunk.isEmpty()) {
+            List<BinaryIp> rows = chunk.stream()
+                    .map(row -> new BinaryIp(row.id(), row.created(), toBytes(row.ip(), invalid)))
+                    .toList();
+            transactionTemplate.executeWithoutResult(status -> repository.updateBinaryIps(rows));
+            converted += chunk.size();
+            lastId = chunk.get(chunk.size() - 1).id();
+            chunk = repository.findTextIps(lastId, chunkSize);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.replaceTextIpColumn();
+            sketchRepository.deleteAll();
+        });
+        log.info("Converted {} ip values ({} unparsable stored as hashed fd00::/8 addresses), sketches will be rebuilt", converted,
+                invalid.get());
+    }
+
+    private void moveLegacyTable() {
+        log.info("Found legacy table {}, moving hits to dictionary-encoded storage", LegacyHitRepository.LEGACY_TABLE);
+        AtomicLong invalid = new AtomicLong();
+        long total = 0;
+        int moved;
+        do {
+            Integer chunk = transactionTemplate.execute(status -> moveChunk(invalid));
+            moved = chunk == null ? 0 : chunk;
+            total += moved;
+        } while (moved > 0);
+        log.info("Moved {} legacy hits ({} unparsable ips stored as hashed fd00::/8 addresses)", total,
+                invalid.get());
+        if (dropLegacyTable) {
+            transactionTemplate.executeWithoutResult(status -> repository.drop());
+            log.info("Dropped table {}", LegacyHitRepository.LEGACY_TABLE);
+        } else {
+            log.info("Kept empty table {}, set stats.migration.drop-legacy-table to drop it",
+                    LegacyHitRepository.LEGACY_TABLE);
+        }
+    }
+
+    private int moveChunk(AtomicLong invalid) {
+        List<LegacyHit> chunk = repository.findChunk(chunkSize);
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        List<EndpointHit> hits = chunk.stream()
+                .map(row -> EndpointHit.builder()
+                        .app(row.app())
+                        .uri(row.uri())
+                        .ip(toBytes(row.ip(), invalid))
+                        .timestamp(row.created())
+                        .build())
+                .toList();
+        dictionary.encode(hits);
+        statsRepository.batchInsert(hits);
+        return repository.deleteUpTo(chunk.get(chunk.size() - 1).id());
+    }
+
+    private static byte[] toBytes(String ip, AtomicLong invalid) {
+        try {
+            return IpAddressUtils.toBytes(ip);
+        } catch (IllegalArgumentException e) {
+            invalid.incrementAndGet();
+            return uniqueLocal(ip);
+        }
+    }
+
+    private static byte[] uniqueLocal(String ip) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(ip.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] address = new byte[IpAddressUtils.LENGTH];
+        address[0] = UNIQUE_LOCAL_PREFIX;
+        System.arraycopy(digest, 0, address, 1, IpAddressUtils.LENGTH - 1);
+        return address;
+    }
+}
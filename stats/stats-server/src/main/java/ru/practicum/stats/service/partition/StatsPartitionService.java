@@ -0,0 +1,133 @@
+package ru.practicum.stats.service.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.repository.StatsCompactionRepository;
+import ru.practicum.stats.repository.StatsRollupRepository;
+import ru.practicum.stats.repository.StatsSketchRepository;
+import ru.practicum.stats.repository.StatsTopRepository;
+import ru.practicum.stats.repository.dialect.SqlDialect;
+import ru.practicum.stats.service.bitmap.StatsBitmapService;
+import ru.practicum.stats.repository.partition.PartitionGranularity;
+import ru.practicum.stats.repository.partition.PartitionRange;
+import ru.practicum.stats.repository.partition.StatsPartitionRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@Slf4j
+public class StatsPartitionService {
+
+    public static final String HIT_TABLE = "stats_hit";
+
+    private final StatsPartitionRepository repository;
+    private final StatsRollupRepository rollupRepository;
+    private final StatsSketchRepository sketchRepository;
+    private final StatsTopRepository topRepository;
+    private final StatsCompactionRepository compactionRepository;
+    private final StatsBitmapService bitmapService;
+    private final TransactionTemplate transactionTemplate;
+    private final SqlDialect dialect;
+    private final PartitionGranularity granularity;
+    private final int precreate;
+    private final int retentionDays;
+    private final int deleteChunkSize;
+
+    public StatsPartitionService(StatsPartitionRepository repository,
+                                 StatsRollupRepository rollupRepository,
+                                 StatsSketchRepository sketchRepository,
+                                 StatsTopRepository topRepository,
+                                 StatsCompactionRepository compactionRepository,
+                                 StatsBitmapService bitmapService,
+                                 TransactionTemplate transactionTemplate,
+                                 SqlDialect dialect,
+                                 @Value("${stats.partition.granularity:MONTH}") PartitionGranularity granularity,
+                                 @Value("${stats.partition.precreate:2}") int precreate,
+                                 @Value("${stats.partition.retention-days:0}") int retentionDays,
+                                 @Value("${stats.partition.delete-chunk-size:10000}") int deleteChunkSize) {
+        this.repository = repository;
+        this.rollupRepository = rollupRepository;
+        this.sketchRepository = sketchRepository;
+        this.topRepository = topRepository;
+        this.compactionRepository = compactionRepository;
+        this.bitmapService = bitmapService;
+        this.transactionTemplate = transactionTemplate;
+        this.dialect = dialect;
+        this.granularity = granularity;
+        this.precreate = precreate;
+        this.retentionDays = retentionDays;
+        this.deleteChunkSize = deleteChunkSize;
+    }
+
+    @Scheduled(cron = "${stats.partition.maintenance-cron:0 5 0 * * *}")
+    public void maintain() {
+        boolean partitioned = dialect == SqlDialect.POSTGRESQL && repository.isPartitioned(HIT_TABLE);
+        if (partitioned) {
+            createUpcomingPartitions(LocalDate.now());
+        } else if (dialect == SqlDialect.POSTGRESQL) {
+            log.warn("Table {} is not partitioned, retention falls back to chunked deletes", HIT_TABLE);
+        }
+        if (retentionDays > 0) {
+            applyRetention(LocalDate.now().minusDays(retentionDays), partitioned);
+        }
+    }
+
+    private void createUpcomingPartitions(LocalDate today) {
+        transactionTemplate.executeWithoutResult(status -> repository.createDefaultPartition(HIT_TABLE));
+        List<PartitionRange> existing = repository.findPartitions(HIT_TABLE);
+        LocalDate from = granularity.floor(today);
+        for (int i = 0; i <= precreate; i++) {
+            LocalDate to = granularity.next(from);
+            LocalDate rangeFrom = from;
+            boolean covered = existing.stream().anyMatch(p -> p.overlaps(rangeFrom, to));
+            if (!covered) {
+                PartitionRange range = new PartitionRange(granularity.partitionName(HIT_TABLE, from), from, to);
+                Integer moved = transactionTemplate.execute(status -> repository.createPartition(HIT_TABLE, range));
+                log.info("Created partition {} for [{}, {}), moved {} rows from default partition",
+                        range.name(), from, to, moved);
+            }
+            from = to;
+        }
+    }
+
+    private void applyRetention(LocalDate cutoffDate, boolean partitioned) {
+        LocalDateTime cutoff = cutoffDate.atStartOfDay();
+        String chunkedTable = HIT_TABLE;
+        if (partitioned) {
+            for (PartitionRange partition : repository.findPartitions(HIT_TABLE)) {
+                if (!partition.to().isAfter(cutoffDate)) {
+                    transactionTemplate.executeWithoutResult(status -> repository.dropPartition(partition.name()));
+                    log.info("Dropped partition {} [{}, {}) past retention", partition.name(), partition.from(),
+                            partition.to());
+                }
+            }
+            chunkedTable = HIT_TABLE + "_default";
+        }
+        long deleted = deleteInChunks(chunkedTable, cutoff);
+        transactionTemplate.executeWithoutResult(status -> {
+            rollupRepository.deleteBefore(cutoff);
+            sketchRepository.deleteBefore(cutoff);
+            topRepository.deleteBefore(cutoff);
+            compactionRepository.deleteBefore(cutoff);
+        });
+        long visitors = bitmapService.deleteBefore(cutoff);
+        log.info("Retention applied with cutoff {}: {} rows deleted from {}, {} unreferenced visitors removed", cutoff,
+                deleted, chunkedTable, visitors);
+    }
+
+    private long deleteInChunks(String table, LocalDateTime cutoff) {
+        long total = 0;
+        int deleted;
+        do {
+            Integer chunk = transactionTemplate.execute(status -> repository.deleteBefore(table, cutoff, deleteChunkSize));
+            deleted = chunk == null ? 0 : chunk;
+            total += deleted;
+        } while (deleted == deleteChunkSize);
+        return total;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.practicum.stats.service.rollup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.RollupRange;
+import ru.practicum.stats.repository.StatsRollupRepository;
+import ru.practicum.stats.repository.StatsRollupRepository.RollupIncrement;
+import ru.practicum.stats.service.ingest.HitIngestListener;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class StatsRollupService implements HitIngestListener {
+
+    private static final Comparator<RollupIncrement> LOCK_ORDER = Comparator
+            .comparingInt(RollupIncrement::uriId)
+            .thenComparingInt(RollupIncrement::appId)
+            .thenComparing(RollupIncrement::bucket);
+
+    private final StatsRollupRepository repository;
+
+    @Value("${stats.rollup.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Override
+    public void onHitsPersisted(List<EndpointHit> hits) {
+        repository.increment(StatsRollupRepository.MINUTE_TABLE, aggregate(hits, ChronoUnit.MINUTES));
+        repository.increment(StatsRollupRepository.HOUR_TABLE, aggregate(hits, ChronoUnit.HOURS));
+    }
+
+    @Transactional(readOnly = true)
+    public List<HitCount> findStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        return repository.findStats(RollupRange.of(start, end), uriIds);
+    }
+
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, int fetchSize,
+                            Consumer<HitCount> consumer) {
+        repository.streamStats(RollupRange.of(start, end), uriIds, fetchSize, consumer);
+    }
+
+    @Transactional
+    public void backfillIfEmpty() {
+        if (!backfillOnStartup || !repository.isEmpty()) {
+            return;
+        }
+        log.info("Rollup tables are empty, backfilling from raw hits");
+        repository.backfill();
+    }
+
+    private List<RollupIncrement> aggregate(List<EndpointHit> hits, ChronoUnit unit) {
+        Map<RollupIncrement, Long> counts = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            RollupIncrement key = new RollupIncrement(hit.getAppId(), hit.getUriId(), hit.getTimestamp().truncatedTo(unit), 0);
+            counts.merge(key, 1L, Long::sum);
+        }
+        return counts.entrySet().stream()
+                .map(e -> new RollupIncrement(e.getKey().appId(), e.getKey().uriId(), e.getKey().bucket(), e.getValue()))
+                .sorted(LOCK_ORDER)
+                .toList();
+    }
+}
@@ -0,0 +1,191 @@
+package ru.practicum.stats.service.sketch;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.RollupRange;
+import ru.practicum.stats.repository.StatsSketchRepository;
+import ru.practicum.stats.repository.StatsSketchRepository.SketchKey;
+import ru.practicum.stats.service.ingest.HitCommitListener;
+import ru.practicum.stats.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+@Slf4j
+public class StatsSketchService implements HitCommitListener {
+
+    private static final Comparator<SketchKey> LOCK_ORDER = Comparator
+            .comparingInt(SketchKey::uriId)
+            .thenComparingInt(SketchKey::appId)
+            .thenComparing(SketchKey::bucket);
+
+    private final StatsSketchRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int precision;
+    private final boolean backfillOnStartup;
+
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Lock flushLock = new ReentrantLock();
+    private volatile Map<SketchKey, HyperLogLog> pending = new ConcurrentHashMap<>();
+    private volatile Map<SketchKey, HyperLogLog> flushing = Map.of();
+
+    public StatsSketchService(StatsSketchRepository repository,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${stats.sketch.precision:12}") int precision,
+                              @Value("${stats.sketch.backfill-on-startup:true}") boolean backfillOnStartup) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.precision = precision;
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    @Override
+    public void onHitsCommitted(List<EndpointHit> hits) {
+        swapLock.readLock().lock();
+        try {
+            for (EndpointHit hit : hits) {
+                SketchKey key = new SketchKey(hit.getAppId(), hit.getUriId(), hit.getTimestamp().truncatedTo(ChronoUnit.HOURS));
+                long hash = HyperLogLog.hash(hit.getIp());
+                pending.compute(key, (k, sketch) -> {
+                    HyperLogLog updated = sketch == null ? new HyperLogLog(precision) : sketch;
+                    updated.addHash(hash);
+                    return updated;
+                });
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${stats.sketch.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            swapLock.writeLock().lock();
+            try {
+                flushing = pending;
+                pending = new ConcurrentHashMap<>();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            writeFlushing();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Unflushed sketches are read before the table: a sketch leaves {@code flushing} only after its
+     * transaction commits, so it is always visible in at least one of the two places.
+     */
+    public List<HitCount> estimateUnique(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        RollupRange range = RollupRange.of(start, end);
+        Map<SketchKey, HyperLogLog> merged = new HashMap<>();
+        Set<Integer> uriFilter = uriIds == null || uriIds.isEmpty() ? null : Set.copyOf(uriIds);
+
+        swapLock.readLock().lock();
+        try {
+            mergeUnflushed(merged, flushing, range, uriFilter);
+            mergeUnflushed(merged, pending, range, uriFilter);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.findSketches(range.hourStart(), range.hourEnd(), uriIds, (key, sketch) ->
+                    mergeInto(merged, key, sketch));
+            repository.findEdgeIps(range, uriIds, (appId, uriId, ip) ->
+                    merged.computeIfAbsent(new SketchKey(appId, uriId, null), k -> new HyperLogLog(precision))
+                            .add(ip));
+        });
+
+        return merged.entrySet().stream()
+                .map(e -> new HitCount(e.getKey().appId(), e.getKey().uriId(), e.getValue().estimate()))
+                .sorted(Comparator.comparingLong(HitCount::hits).reversed())
+                .toList();
+    }
+
+    public void backfillIfEmpty(int fetchSize) {
+        if (!backfillOnStartup || !repository.isEmpty()) {
+            return;
+        }
+        log.info("Sketch table is empty, backfilling from raw hits");
+        Map<SketchKey, HyperLogLog> hour = new HashMap<>();
+        LocalDateTime[] currentBucket = new LocalDateTime[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.scanHourlyIps(fetchSize, (key, ip) -> {
+                if (currentBucket[0] != null && !currentBucket[0].equals(key.bucket())) {
+                    hour.forEach(repository::merge);
+                    hour.clear();
+                }
+                currentBucket[0] = key.bucket();
+                hour.computeIfAbsent(key, k -> new HyperLogLog(precision)).add(ip);
+            });
+            hour.forEach(repository::merge);
+        });
+    }
+
+    private void writeFlushing() {
+        Map<SketchKey, HyperLogLog> batch = flushing;
+        List<SketchKey> keys = new ArrayList<>(batch.keySet());
+        keys.sort(LOCK_ORDER);
+        try {
+            transactionTemplate.executeWithoutResult(status -> keys.forEach(key -> repository.merge(key, batch.get(key))));
+            log.debug("Flushed {} unique-visitor sketches", keys.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} sketches, keeping them for the next attempt: {}", keys.size(), e.getMessage());
+            swapLock.readLock().lock();
+            try {
+                batch.forEach((key, sketch) -> pending.merge(key, sketch, (current, failed) -> {
+                    current.merge(failed);
+                    return current;
+                }));
+            } finally {
+                swapLock.readLock().unlock();
+            }
+        } finally {
+            flushing = Map.of();
+        }
+    }
+
+    private void mergeUnflushed(Map<SketchKey, HyperLogLog> merged,
+                                Map<SketchKey, HyperLogLog> unflushed,
+                                RollupRange range,
+                                Set<Integer> uriFilter) {
+        for (SketchKey key : unflushed.keySet()) {
+            boolean inWholeHours = !key.bucket().isBefore(range.hourStart()) && key.bucket().isBefore(range.hourEnd());
+            if (inWholeHours && (uriFilter == null || uriFilter.contains(key.uriId()))) {
+                unflushed.computeIfPresent(key, (k, sketch) -> {
+                    mergeInto(merged, k, sketch);
+                    return sketch;
+                });
+            }
+        }
+    }
+
+    private void mergeInto(Map<SketchKey, HyperLogLog> merged, SketchKey key, HyperLogLog sketch) {
+        merged.computeIfAbsent(new SketchKey(key.appId(), key.uriId(), null), k -> new HyperLogLog(sketch.getPrecision()))
+                .merge(sketch);
+    }
+}
@@ -0,0 +1,177 @@
+package ru.practicum.stats.service.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.config.StatsStorageInitializer;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.exception.BadRequestException;
+import ru.practicum.stats.repository.StatsBulkLoadRepository;
+import ru.practicum.stats.repository.StatsHitScanRepository;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+import ru.practicum.stats.service.ingest.HitPersister;
+import ru.practicum.stats.snapshot.HitSnapshotReader;
+import ru.practicum.stats.snapshot.HitSnapshotWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exports raw hits of a time range as a compressed, time-sorted {@link HitSnapshotWriter snapshot} and restores
+ * such snapshots into an empty store.
+ *
+ * <p>A restore bypasses the ingest path: hits go in with multi-row inserts in one transaction, the secondary
+ * indexes of {@code stats_hit} are dropped for the load and rebuilt afterwards when
+ * {@code stats.snapshot.defer-indexes} is set, and the derived tables are then backfilled as on startup. Only
+ * derived tables that are empty get backfilled, so restore into a fresh store; ingest is paused from the emptiness
+ * check until the backfill is done, so no hit can slip into the derived tables meanwhile. Restores are refused
+ * unless {@code stats.snapshot.restore-enabled} is set.
+ */
+@Service
+@Slf4j
+public class StatsSnapshotService {
+
+    private final StatsHitScanRepository scanRepository;
+    private final StatsBulkLoadRepository bulkLoadRepository;
+    private final StatsDictionaryService dictionary;
+    private final StatsStorageInitializer storageInitializer;
+    private final HitPersister persister;
+    private final TransactionTemplate exportTransaction;
+    private final TransactionTemplate restoreTransaction;
+    private final int fetchSize;
+    private final int rowsPerStatement;
+    private final boolean deferIndexes;
+    private final boolean restoreEnabled;
+    private final Lock restoreLock = new ReentrantLock();
+
+    public StatsSnapshotService(StatsHitScanRepository scanRepository,
+                                StatsBulkLoadRepository bulkLoadRepository,
+                                StatsDictionaryService dictionary,
+                                StatsStorageInitializer storageInitializer,
+                                HitPersister persister,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${stats.storage.scan-fetch-size:10000}") int fetchSize,
+                                @Value("${stats.snapshot.rows-per-statement:1000}") int rowsPerStatement,
+                                @Value("${stats.snapshot.defer-indexes:true}") boolean deferIndexes,
+                                @Value("${stats.snapshot.restore-enabled:false}") boolean restoreEnabled) {
+        this.scanRepository = scanRepository;
+        this.bulkLoadRepository = bulkLoadRepository;
+        this.dictionary = dictionary;
+        this.storageInitializer = storageInitializer;
+        this.persister = persister;
+        this.exportTransaction = new TransactionTemplate(transactionManager);
+        this.exportTransaction.setReadOnly(true);
+        this.exportTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.restoreTransaction = new TransactionTemplate(transactionManager);
+        this.fetchSize = fetchSize;
+        this.rowsPerStatement = rowsPerStatement;
+        this.deferIndexes = deferIndexes;
+        this.restoreEnabled = restoreEnabled;
+    }
+
+    /**
+     * Writes the hits created in [start, end] to {@code out} and returns their number.
+     */
+    public long export(LocalDateTime start, LocalDateTime end, OutputStream out) throws IOException {
+        if (start.isAfter(end)) {
+            throw new BadRequestException("Start date must be before end date");
+        }
+        long startedAt = System.nanoTime();
+        HitSnapshotWriter writer = new HitSnapshotWriter(out, dictionary::appName, dictionary::uriName);
+        try {
+            exportTransaction.executeWithoutResult(status -> scanRepository.scanRange(start, end, fetchSize,
+                    (appId, uriId, ip, created) -> {
+                        try {
+                            writer.write(appId, uriId, ip, created);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        long count = writer.finish();
+        log.info("Exported {} hits from {} to {} in {} ms", count, start, end, (System.nanoTime() - startedAt) / 1_000_000);
+        return count;
+    }
+
+    /**
+     * Loads a snapshot into the hit store, which must be empty, and returns the number of hits restored.
+     */
+    public long restore(InputStream in) throws IOException {
+        if (!restoreEnabled) {
+            throw new BadRequestException("Snapshot restores are disabled, see stats.snapshot.restore-enabled");
+        }
+        if (!restoreLock.tryLock()) {
+            throw new BadRequestException("A snapshot restore is already running");
+        }
+        persister.pauseIngest();
+        try {
+            if (!bulkLoadRepository.isEmpty()) {
+                throw new BadRequestException("Snapshots are only restored into an empty hit store");
+            }
+            HitSnapshotReader reader = new HitSnapshotReader(in, dictionary::appId, dictionary::uriId);
+            long startedAt = System.nanoTime();
+            long count;
+            if (deferIndexes) {
+                bulkLoadRepository.dropSecondaryIndexes();
+            }
+            try {
+                count = load(reader);
+            } finally {
+                if (deferIndexes) {
+                    bulkLoadRepository.createSecondaryIndexes();
+                }
+            }
+            long loadedAt = System.nanoTime();
+            bulkLoadRepository.analyze();
+            storageInitializer.rebuildDerived();
+            log.info("Restored {} hits in {} ms, derived tables rebuilt in {} ms", count,
+                    (loadedAt - startedAt) / 1_000_000, (System.nanoTime() - loadedAt) / 1_000_000);
+            return count;
+        } finally {
+            persister.resumeIngest();
+            restoreLock.unlock();
+        }
+    }
+
+    private long load(HitSnapshotReader reader) throws IOException {
+        try {
+            Long count = restoreTransaction.execute(status -> {
+                List<EndpointHit> rows = new ArrayList<>(rowsPerStatement);
+                long read;
+                try {
+                    read = reader.readAll((appId, uriId, ip, created) -> {
+                        rows.add(EndpointHit.builder()
+                                .appId(appId)
+                                .uriId(uriId)
+                                .ip(ip)
+                                .timestamp(created)
+                                .build());
+                        if (rows.size() == rowsPerStatement) {
+                            bulkLoadRepository.insertRows(rows);
+                            rows.clear();
+                        }
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                bulkLoadRepository.insertRows(rows);
+                return read;
+            });
+            return count == null ? 0 : count;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
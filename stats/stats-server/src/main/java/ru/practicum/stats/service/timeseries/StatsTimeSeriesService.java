@@ -0,0 +1,138 @@
+package ru.practicum.stats.service.timeseries;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.dto.ViewStats;
+import ru.practicum.stats.dto.ViewStatsPoint;
+import ru.practicum.stats.dto.ViewStatsSeries;
+import ru.practicum.stats.exception.BadRequestException;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.StatsHitScanRepository;
+import ru.practicum.stats.service.compaction.StatsCompactionService;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+import ru.practicum.stats.sketch.HyperLogLog;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds per-bucket hit and unique-visitor series for several uris from a single grouped scan of raw hits.
+ * Buckets are aligned to the epoch, so hourly and daily buckets start on whole hours and days; the first and last
+ * bucket only count hits inside [start, end]. Compacted days fall into the bucket holding their start; where a bucket
+ * mixes compacted and raw hits, its unique count adds the two and may overcount.
+ */
+@Service
+public class StatsTimeSeriesService {
+
+    private static final Duration MIN_BUCKET = Duration.ofMinutes(1);
+
+    private final StatsHitScanRepository scanRepository;
+    private final StatsDictionaryService dictionary;
+    private final StatsCompactionService compactionService;
+    private final int maxBuckets;
+    private final int fetchSize;
+
+    public StatsTimeSeriesService(StatsHitScanRepository scanRepository,
+                                  StatsDictionaryService dictionary,
+                                  StatsCompactionService compactionService,
+                                  @Value("${stats.timeseries.max-buckets:10000}") int maxBuckets,
+                                  @Value("${stats.storage.scan-fetch-size:10000}") int fetchSize) {
+        this.scanRepository = scanRepository;
+        this.dictionary = dictionary;
+        this.compactionService = compactionService;
+        this.maxBuckets = maxBuckets;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Returns one series per app/uri with at least one hit, busiest first; buckets without hits are omitted.
+     */
+    @Transactional(readOnly = true)
+    public List<ViewStatsSeries> findSeries(LocalDateTime start,
+                                            LocalDateTime end,
+                                            List<Integer> uriIds,
+                                            Duration bucket) {
+        long bucketSeconds = validateBucket(start, end, bucket);
+        Map<Long, SeriesBuilder> series = new LinkedHashMap<>();
+        scanRepository.streamSeries(start, end, uriIds, bucketSeconds, fetchSize,
+                (appId, uriId, index, hits, unique) -> seriesOf(series, appId, uriId).add(index, hits, unique));
+        if (compactionService.covers(start)) {
+            compactionService.findDaily(start, end, uriIds, (appId, uriId, day, hits, sketch) -> {
+                long index = Math.floorDiv(day.toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+                seriesOf(series, appId, uriId).addCompacted(index, hits, sketch);
+            });
+        }
+        return series.values().stream()
+                .sorted(Comparator.comparingLong((SeriesBuilder s) -> s.total).reversed())
+                .map(builder -> toSeries(builder, bucketSeconds))
+                .toList();
+    }
+
+    private long validateBucket(LocalDateTime start, LocalDateTime end, Duration bucket) {
+        if (bucket.compareTo(MIN_BUCKET) < 0 || bucket.getNano() != 0) {
+            throw new BadRequestException("Bucket must be a whole number of seconds and at least " + MIN_BUCKET);
+        }
+        long bucketSeconds = bucket.getSeconds();
+        long buckets = Math.floorDiv(end.toEpochSecond(ZoneOffset.UTC), bucketSeconds)
+                - Math.floorDiv(start.toEpochSecond(ZoneOffset.UTC), bucketSeconds) + 1;
+        if (buckets > maxBuckets) {
+            throw new BadRequestException("Range spans " + buckets + " buckets, at most " + maxBuckets + " allowed");
+        }
+        return bucketSeconds;
+    }
+
+    private ViewStatsSeries toSeries(SeriesBuilder builder, long bucketSeconds) {
+        ViewStats names = dictionary.decode(new HitCount(builder.appId, builder.uriId, builder.total));
+        List<ViewStatsPoint> points = builder.buckets.entrySet().stream()
+                .map(e -> {
+                    HyperLogLog compacted = builder.compacted.get(e.getKey());
+                    long unique = e.getValue()[1] + (compacted == null ? 0 : compacted.estimate());
+                    return new ViewStatsPoint(bucketStart(e.getKey(), bucketSeconds), e.getValue()[0], unique);
+                })
+                .toList();
+        return new ViewStatsSeries(names.getApp(), names.getUri(), points);
+    }
+
+    private static SeriesBuilder seriesOf(Map<Long, SeriesBuilder> series, int appId, int uriId) {
+        return series.computeIfAbsent(((long) appId << 32) | (uriId & 0xffffffffL),
+                k -> new SeriesBuilder(appId, uriId));
+    }
+
+    private static LocalDateTime bucketStart(long index, long bucketSeconds) {
+        return LocalDateTime.ofEpochSecond(index * bucketSeconds, 0, ZoneOffset.UTC);
+    }
+
+    private static final class SeriesBuilder {
+
+        private final int appId;
+        private final int uriId;
+        private final TreeMap<Long, long[]> buckets = new TreeMap<>();
+        private final Map<Long, HyperLogLog> compacted = new HashMap<>();
+        private long total;
+
+        private SeriesBuilder(int appId, int uriId) {
+            this.appId = appId;
+            this.uriId = uriId;
+        }
+
+        private void add(long index, long hits, long unique) {
+            long[] counts = buckets.computeIfAbsent(index, i -> new long[2]);
+            counts[0] += hits;
+            counts[1] += unique;
+            total += hits;
+        }
+
+        private void addCompacted(long index, long hits, HyperLogLog sketch) {
+            add(index, hits, 0);
+            compacted.computeIfAbsent(index, i -> new HyperLogLog(sketch.getPrecision())).merge(sketch);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package ru.practicum.stats.service.top;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.StatsTopRepository;
+import ru.practicum.stats.service.ingest.HitCommitListener;
+import ru.practicum.stats.sketch.SpaceSaving;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maintains one Space-Saving summary of app/uri hit counts per hour and per day, so top-K queries merge a bounded
+ * number of fixed-size summaries no matter how many distinct uris there are. Windows are widened to whole hours.
+ *
+ * <p>Unlike unique-visitor sketches, counts must not be seen twice: a flush clears its in-memory summaries under
+ * {@code commitLock} together with the commit, and queries read memory and tables under the same lock.
+ */
+@Service
+@Slf4j
+public class StatsTopService implements HitCommitListener {
+
+    private final StatsTopRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int capacity;
+    private final boolean backfillOnStartup;
+
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private final Lock flushLock = new ReentrantLock();
+    private volatile Map<LocalDateTime, SpaceSaving> pending = new ConcurrentHashMap<>();
+    private volatile Map<LocalDateTime, SpaceSaving> flushing = Map.of();
+
+    public StatsTopService(StatsTopRepository repository,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${stats.top.capacity:512}") int capacity,
+                           @Value("${stats.top.backfill-on-startup:true}") boolean backfillOnStartup) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.capacity = capacity;
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void onHitsCommitted(List<EndpointHit> hits) {
+        Map<LocalDateTime, Map<Long, Long>> counts = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            counts.computeIfAbsent(hit.getTimestamp().truncatedTo(ChronoUnit.HOURS), h -> new HashMap<>())
+                    .merge(key(hit.getAppId(), hit.getUriId()), 1L, Long::sum);
+        }
+        swapLock.readLock().lock();
+        try {
+            counts.forEach((hour, hourCounts) -> pending.compute(hour, (h, summary) -> {
+                SpaceSaving updated = summary == null ? new SpaceSaving(capacity) : summary;
+                hourCounts.forEach(updated::offer);
+                return updated;
+            }));
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${stats.top.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            swapLock.writeLock().lock();
+            try {
+                flushing = pending;
+                pending = new ConcurrentHashMap<>();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            writeFlushing();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code k} app/uri pairs with the most hits in the hours overlapping [start, end].
+     * Counts are upper bounds; pairs that hold more than {@code 1 / capacity} of an hour's hits are never missed.
+     */
+    public List<HitCount> findTop(LocalDateTime start, LocalDateTime end, int k) {
+        LocalDateTime fromHour = start.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime toHour = end.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        LocalDateTime fromDay = fromHour.truncatedTo(ChronoUnit.DAYS);
+        fromDay = fromDay.equals(fromHour) ? fromDay : fromDay.plusDays(1);
+        LocalDateTime toDay = toHour.truncatedTo(ChronoUnit.DAYS);
+        if (!fromDay.isBefore(toDay)) {
+            fromDay = toHour;
+            toDay = toHour;
+        }
+        LocalDateTime dayStart = fromDay;
+        LocalDateTime dayEnd = toDay;
+
+        SpaceSaving merged = new SpaceSaving(capacity);
+        commitLock.readLock().lock();
+        try {
+            swapLock.readLock().lock();
+            try {
+                mergeUnflushed(merged, flushing, fromHour, toHour);
+                mergeUnflushed(merged, pending, fromHour, toHour);
+            } finally {
+                swapLock.readLock().unlock();
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                StatsTopRepository.SummaryHandler mergeInto = (bucket, summary) -> merged.merge(summary);
+                repository.findSummaries(StatsTopRepository.DAY_TABLE, dayStart, dayEnd, mergeInto);
+                repository.findSummaries(StatsTopRepository.HOUR_TABLE, fromHour, min(dayStart, toHour), mergeInto);
+                repository.findSummaries(StatsTopRepository.HOUR_TABLE, max(dayEnd, fromHour), toHour, mergeInto);
+            });
+        } finally {
+            commitLock.readLock().unlock();
+        }
+        return merged.top(k).stream()
+                .map(entry -> new HitCount((int) (entry.key() >>> 32), (int) entry.key(), entry.count()))
+                .toList();
+    }
+
+    public void backfillIfEmpty(int fetchSize) {
+        if (!backfillOnStartup || !repository.isEmpty()) {
+            return;
+        }
+        log.info("Top-K summaries are empty, backfilling from hourly rollups");
+        SpaceSaving[] hour = new SpaceSaving[1];
+        LocalDateTime[] currentBucket = new LocalDateTime[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.scanHourlyCounts(fetchSize, (bucket, count) -> {
+                if (currentBucket[0] != null && !currentBucket[0].equals(bucket)) {
+                    write(currentBucket[0], hour[0]);
+                    hour[0] = null;
+                }
+                currentBucket[0] = bucket;
+                if (hour[0] == null) {
+                    hour[0] = new SpaceSaving(capacity);
+                }
+                hour[0].offer(key(count.appId(), count.uriId()), count.hits());
+            });
+            if (hour[0] != null) {
+                write(currentBucket[0], hour[0]);
+            }
+        });
+    }
+
+    private void writeFlushing() {
+        Map<LocalDateTime, SpaceSaving> batch = flushing;
+        List<LocalDateTime> hours = new ArrayList<>(batch.keySet());
+        hours.sort(null);
+        commitLock.writeLock().lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> hours.forEach(hour -> write(hour, batch.get(hour))));
+            log.debug("Flushed {} hourly top-K summaries", hours.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} top-K summaries, keeping them for the next attempt: {}", hours.size(),
+                    e.getMessage());
+            swapLock.readLock().lock();
+            try {
+                batch.forEach((hour, summary) -> pending.merge(hour, summary, (current, failed) -> {
+                    current.merge(failed);
+                    return current;
+                }));
+            } finally {
+                swapLock.readLock().unlock();
+            }
+        } finally {
+            flushing = Map.of();
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    private void write(LocalDateTime hour, SpaceSaving summary) {
+        repository.merge(StatsTopRepository.HOUR_TABLE, hour, summary);
+        repository.merge(StatsTopRepository.DAY_TABLE, hour.truncatedTo(ChronoUnit.DAYS), summary);
+    }
+
+    private void mergeUnflushed(SpaceSaving merged,
+                                Map<LocalDateTime, SpaceSaving> unflushed,
+                                LocalDateTime fromHour,
+                                LocalDateTime toHour) {
+        for (LocalDateTime hour : unflushed.keySet()) {
+            if (!hour.isBefore(fromHour) && hour.isBefore(toHour)) {
+                unflushed.computeIfPresent(hour, (h, summary) -> {
+                    merged.merge(summary);
+                    return summary;
+                });
+            }
+        }
+    }
+
+    private static long key(int appId, int uriId) {
+        return ((long) appId << 32) | (uriId & 0xffffffffL);
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,200 @@
+package ru.practicum.stats.sketch;
+
+import ru.practicum.stats.collection.LongObjectHashMap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Weighted Space-Saving heavy-hitter summary over {@code long} keys with a fixed number of counters.
+ *
+ * <p>Every reported count is an upper bound that exceeds the true count by at most its {@code error};
+ * any key whose true count is above {@code total / capacity} is guaranteed to be tracked. Summaries are
+ * mergeable, so per-bucket summaries can be combined over arbitrary windows. Not thread-safe.
+ */
+public class SpaceSaving {
+
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private static final Comparator<Counter> BY_COUNT_DESC = Comparator.comparingLong((Counter c) -> c.count).reversed();
+
+    private final int capacity;
+    private final LongObjectHashMap<Counter> counters = new LongObjectHashMap<>();
+    private Counter[] heap;
+    private int size;
+
+    public SpaceSaving() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.heap = new Counter[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void offer(long key, long count) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            counter.count += count;
+            siftDown(counter.index);
+            return;
+        }
+        if (size < capacity) {
+            counter = new Counter(key, count, 0);
+            counter.index = size;
+            heap[size++] = counter;
+            counters.put(key, counter);
+            siftUp(counter.index);
+            return;
+        }
+        Counter min = heap[0];
+        counters.remove(min.key);
+        min.key = key;
+        min.error = min.count;
+        min.count += count;
+        counters.put(key, min);
+        siftDown(0);
+    }
+
+    /**
+     * Adds {@code other} into this summary. A key missing from a full summary may still have occurred there up to
+     * that summary's minimum count, so the minimum is added to both its count and its error.
+     */
+    public void merge(SpaceSaving other) {
+        long thisMin = size == capacity ? heap[0].count : 0;
+        long otherMin = other.size == other.capacity ? other.heap[0].count : 0;
+        List<Counter> merged = new ArrayList<>(size + other.size);
+        for (int i = 0; i < size; i++) {
+            Counter counter = heap[i];
+            Counter match = other.counters.get(counter.key);
+            merged.add(match == null
+                    ? new Counter(counter.key, counter.count + otherMin, counter.error + otherMin)
+                    : new Counter(counter.key, counter.count + match.count, counter.error + match.error));
+        }
+        for (int i = 0; i < other.size; i++) {
+            Counter counter = other.heap[i];
+            if (counters.get(counter.key) == null) {
+                merged.add(new Counter(counter.key, counter.count + thisMin, counter.error + thisMin));
+            }
+        }
+        merged.sort(BY_COUNT_DESC);
+        counters.clear();
+        Arrays.fill(heap, null);
+        size = 0;
+        for (Counter counter : merged.subList(0, Math.min(capacity, merged.size()))) {
+            counter.index = size;
+            heap[size++] = counter;
+            counters.put(counter.key, counter);
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Returns up to {@code k} keys with the largest counts, largest first.
+     */
+    public List<Entry> top(int k) {
+        Counter[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted, BY_COUNT_DESC);
+        List<Entry> top = new ArrayList<>(Math.min(k, size));
+        for (int i = 0; i < Math.min(k, size); i++) {
+            top.add(new Entry(sorted[i].key, sorted[i].count, sorted[i].error));
+        }
+        return top;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + size * 24);
+        buffer.putInt(capacity);
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putLong(heap[i].key);
+            buffer.putLong(heap[i].count);
+            buffer.putLong(heap[i].error);
+        }
+        return buffer.array();
+    }
+
+    public static SpaceSaving fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        SpaceSaving summary = new SpaceSaving(buffer.getInt());
+        int size = buffer.getInt();
+        for (int i = 0; i < size; i++) {
+            Counter counter = new Counter(buffer.getLong(), buffer.getLong(), buffer.getLong());
+            counter.index = i;
+            summary.heap[i] = counter;
+            summary.counters.put(counter.key, counter);
+        }
+        summary.size = size;
+        return summary;
+    }
+
+    private void siftUp(int index) {
+        Counter counter = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= counter.count) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(counter, index);
+    }
+
+    private void siftDown(int index) {
+        Counter counter = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (counter.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(counter, index);
+    }
+
+    private void place(Counter counter, int index) {
+        heap[index] = counter;
+        counter.index = index;
+    }
+
+    public record Entry(long key, long count, long error) {
+    }
+
+    private static final class Counter {
+
+        private long key;
+        private long count;
+        private long error;
+        private int index;
+
+        private Counter(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
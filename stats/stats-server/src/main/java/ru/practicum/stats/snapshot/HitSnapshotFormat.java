@@ -0,0 +1,65 @@
+package ru.practicum.stats.snapshot;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Layout of a hit snapshot: an uncompressed 8-byte header followed by a GZIP stream of tagged records.
+ *
+ * <pre>
+ * byte4  magic    "EWMS"
+ * int    version
+ * -- gzip --
+ * varint 1  app   varint id, UTF name     defined before its first hit
+ * varint 2  uri   varint id, UTF name     defined before its first hit
+ * varint 3  hit   varint app id, varint uri id, varlong delta, byte ip length (4 or 16), byte[] ip
+ * varint 0  end   varlong hit count
+ * </pre>
+ *
+ * Hits are sorted by creation time and {@code delta} is the gap in microseconds to the previous hit (to the epoch for the first one), so a hit of a
+ * known app and uri takes about ten bytes before compression. Ids are those of the exporting store and only
+ * resolve names within the snapshot; IPv4-mapped addresses are stored as their four IPv4 bytes.
+ */
+final class HitSnapshotFormat {
+
+    static final int MAGIC = 0x45574d53;
+    static final int VERSION = 1;
+
+    static final int END = 0;
+    static final int APP = 1;
+    static final int URI = 2;
+    static final int HIT = 3;
+
+    private HitSnapshotFormat() {
+
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in snapshot");
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Id out of range in snapshot: " + value);
+        }
+        return (int) value;
+    }
+}
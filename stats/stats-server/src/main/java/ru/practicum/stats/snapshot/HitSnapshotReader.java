@@ -0,0 +1,112 @@
+package ru.practicum.stats.snapshot;
+
+import ru.practicum.stats.repository.StatsHitScanRepository;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads a {@link HitSnapshotFormat snapshot} and hands its hits over in file order, with app and uri ids resolved
+ * once per name through {@code appIds} and {@code uriIds} into the ids of the importing store.
+ */
+public class HitSnapshotReader {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final DataInputStream in;
+    private final ToIntFunction<String> appIds;
+    private final ToIntFunction<String> uriIds;
+    private final Map<Integer, Integer> apps = new HashMap<>();
+    private final Map<Integer, Integer> uris = new HashMap<>();
+
+    public HitSnapshotReader(InputStream in, ToIntFunction<String> appIds, ToIntFunction<String> uriIds)
+            throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        try {
+            if (header.readInt() != HitSnapshotFormat.MAGIC) {
+                throw new IOException("Not a hit snapshot");
+            }
+            int version = header.readInt();
+            if (version != HitSnapshotFormat.VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Not a hit snapshot", e);
+        }
+        this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in, 1 << 16), 1 << 16));
+        this.appIds = appIds;
+        this.uriIds = uriIds;
+    }
+
+    /**
+     * Reads up to the end record and returns the number of hits; fails on a truncated or inconsistent snapshot.
+     */
+    public long readAll(StatsHitScanRepository.HitHandler handler) throws IOException {
+        long micros = 0;
+        long count = 0;
+        try {
+            while (true) {
+                int tag = HitSnapshotFormat.readVarInt(in);
+                switch (tag) {
+                    case HitSnapshotFormat.APP -> define(apps, appIds);
+                    case HitSnapshotFormat.URI -> define(uris, uriIds);
+                    case HitSnapshotFormat.HIT -> {
+                        int appId = resolve(apps, HitSnapshotFormat.readVarInt(in), "app");
+                        int uriId = resolve(uris, HitSnapshotFormat.readVarInt(in), "uri");
+                        micros += HitSnapshotFormat.readVarLong(in);
+                        handler.accept(appId, uriId, readIp(), EPOCH.plus(micros, ChronoUnit.MICROS));
+                        count++;
+                    }
+                    case HitSnapshotFormat.END -> {
+                        long expected = HitSnapshotFormat.readVarLong(in);
+                        if (expected != count) {
+                            throw new IOException("Snapshot declares " + expected + " hits, read " + count);
+                        }
+                        return count;
+                    }
+                    default -> throw new IOException("Unknown snapshot record " + tag);
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("Snapshot is truncated after " + count + " hits", e);
+        }
+    }
+
+    private void define(Map<Integer, Integer> ids, ToIntFunction<String> resolver) throws IOException {
+        int id = HitSnapshotFormat.readVarInt(in);
+        ids.put(id, resolver.applyAsInt(in.readUTF()));
+    }
+
+    private static int resolve(Map<Integer, Integer> ids, int id, String kind) throws IOException {
+        Integer resolved = ids.get(id);
+        if (resolved == null) {
+            throw new IOException("Snapshot refers to undefined " + kind + " " + id);
+        }
+        return resolved;
+    }
+
+    private byte[] readIp() throws IOException {
+        int length = in.readUnsignedByte();
+        if (length == 4) {
+            byte[] ipv4 = new byte[4];
+            in.readFully(ipv4);
+            return IpAddressUtils.mapIpv4(ipv4);
+        }
+        if (length != IpAddressUtils.LENGTH) {
+            throw new IOException("Malformed ip length " + length + " in snapshot");
+        }
+        byte[] ip = new byte[IpAddressUtils.LENGTH];
+        in.readFully(ip);
+        return ip;
+    }
+}
@@ -0,0 +1,91 @@
+package ru.practicum.stats.snapshot;
+
+import ru.practicum.stats.collection.IntHashSet;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes hits, which must arrive sorted by creation time, as a {@link HitSnapshotFormat snapshot}. Names of apps
+ * and uris are looked up once, on their first hit. {@link #finish()} completes the stream without closing
+ * {@code out}.
+ */
+public class HitSnapshotWriter {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final GZIPOutputStream gzip;
+    private final DataOutputStream out;
+    private final IntFunction<String> appNames;
+    private final IntFunction<String> uriNames;
+    private final IntHashSet apps = new IntHashSet();
+    private final IntHashSet uris = new IntHashSet();
+
+    private long previous;
+    private long count;
+
+    public HitSnapshotWriter(OutputStream out, IntFunction<String> appNames, IntFunction<String> uriNames)
+            throws IOException {
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(HitSnapshotFormat.MAGIC);
+        header.writeInt(HitSnapshotFormat.VERSION);
+        header.flush();
+        this.gzip = new GZIPOutputStream(out, 1 << 16);
+        this.out = new DataOutputStream(new BufferedOutputStream(gzip, 1 << 16));
+        this.appNames = appNames;
+        this.uriNames = uriNames;
+    }
+
+    public void write(int appId, int uriId, byte[] ip, LocalDateTime created) throws IOException {
+        long micros = ChronoUnit.MICROS.between(EPOCH, created);
+        if (count > 0 && micros < previous) {
+            throw new IllegalStateException("Hits must be written in creation order");
+        }
+        if (apps.add(appId)) {
+            HitSnapshotFormat.writeVarLong(out, HitSnapshotFormat.APP);
+            HitSnapshotFormat.writeVarLong(out, appId);
+            out.writeUTF(appNames.apply(appId));
+        }
+        if (uris.add(uriId)) {
+            HitSnapshotFormat.writeVarLong(out, HitSnapshotFormat.URI);
+            HitSnapshotFormat.writeVarLong(out, uriId);
+            out.writeUTF(uriNames.apply(uriId));
+        }
+        HitSnapshotFormat.writeVarLong(out, HitSnapshotFormat.HIT);
+        HitSnapshotFormat.writeVarLong(out, appId);
+        HitSnapshotFormat.writeVarLong(out, uriId);
+        HitSnapshotFormat.writeVarLong(out, micros - previous);
+        previous = micros;
+        writeIp(ip);
+        count++;
+    }
+
+    /**
+     * Writes the end record and flushes the compressed stream; returns the number of hits written.
+     */
+    public long finish() throws IOException {
+        HitSnapshotFormat.writeVarLong(out, HitSnapshotFormat.END);
+        HitSnapshotFormat.writeVarLong(out, count);
+        out.flush();
+        gzip.finish();
+        gzip.flush();
+        return count;
+    }
+
+    private void writeIp(byte[] ip) throws IOException {
+        if (IpAddressUtils.isIpv4Mapped(ip)) {
+            out.writeByte(4);
+            out.write(ip, IpAddressUtils.LENGTH - 4, 4);
+        } else {
+            out.writeByte(IpAddressUtils.LENGTH);
+            out.write(ip);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package ru.practicum.stats.wal;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Local append-only log of accepted hits, split into fixed-size memory-mapped segment files.
+ *
+ * <p>Positions are {@code segment << 32 | offset} and compare in log order. Every open starts a fresh segment,
+ * so a record torn by a crash can only sit at the tail of a sealed segment, where readers treat it as the end.
+ * {@link #sync} group-commits: the first waiting writer forces the mapping on behalf of everyone who has
+ * appended so far, the others wait for it.
+ */
+@Slf4j
+public class HitLog implements Closeable {
+
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final NavigableSet<Long> segments = new ConcurrentSkipListSet<>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private volatile HitLogSegment active;
+    private int offset;
+    private volatile long writePosition;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private long durablePosition;
+    private boolean syncing;
+
+    private HitLog(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the log in {@code directory} and starts a new segment after both the existing ones
+     * and the segment of {@code checkpoint}, the position already applied downstream.
+     */
+    public static HitLog open(Path directory, int segmentSize, long checkpoint) {
+        if (segmentSize < HitLogSegment.HEADER * 2) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        HitLog hitLog = new HitLog(directory, segmentSize);
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    hitLog.segments.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+                }
+            }
+            long last = hitLog.segments.isEmpty() ? 0 : hitLog.segments.last();
+            long id = Math.max(last, segmentOf(checkpoint)) + 1;
+            hitLog.active = HitLogSegment.create(hitLog.pathOf(id), id, segmentSize);
+            hitLog.segments.add(id);
+            hitLog.writePosition = position(id, 0);
+            hitLog.durablePosition = hitLog.writePosition;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open hit log in " + directory, e);
+        }
+        return hitLog;
+    }
+
+    /**
+     * Appends all hits and returns the position right after the last one. The records are visible to readers
+     * at once but only durable after {@link #sync}.
+     */
+    public long append(List<EndpointHit> hits) {
+        byte[][] apps = new byte[hits.size()][];
+        byte[][] uris = new byte[hits.size()][];
+        int[] sizes = new int[hits.size()];
+        for (int i = 0; i < hits.size(); i++) {
+            EndpointHit hit = hits.get(i);
+            if (hit.getTimestamp() == null || hit.getIp() == null || hit.getIp().length != IpAddressUtils.LENGTH) {
+                throw new IllegalArgumentException("Hit #" + i + " has no timestamp or a malformed ip");
+            }
+            apps[i] = hit.getApp().getBytes(StandardCharsets.UTF_8);
+            uris[i] = hit.getUri().getBytes(StandardCharsets.UTF_8);
+            sizes[i] = HitLogSegment.sizeOf(apps[i], uris[i]);
+            if (sizes[i] > segmentSize) {
+                throw new IllegalArgumentException("Hit #" + i + " does not fit into a hit log segment");
+            }
+        }
+        appendLock.lock();
+        try {
+            for (int i = 0; i < hits.size(); i++) {
+                if (offset + sizes[i] > segmentSize) {
+                    roll();
+                }
+                active.write(offset, hits.get(i), apps[i], uris[i]);
+                offset += sizes[i];
+            }
+            writePosition = position(active.id(), offset);
+            return writePosition;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until everything up to {@code position} is on disk.
+     */
+    public void sync(long position) throws InterruptedException {
+        syncLock.lock();
+        try {
+            while (durablePosition < position) {
+                if (syncing) {
+                    synced.await();
+                    continue;
+                }
+                syncing = true;
+                long target = writePosition;
+                HitLogSegment segment = active;
+                syncLock.unlock();
+                try {
+                    segment.force();
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    synced.signalAll();
+                }
+                durablePosition = Math.max(durablePosition, target);
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public HitLogReader reader(long from) {
+        return new HitLogReader(this, from);
+    }
+
+    /**
+     * Deletes segments that lie entirely before {@code checkpoint}.
+     */
+    public void release(long checkpoint) {
+        long keep = segmentOf(checkpoint);
+        for (Long id : segments.headSet(keep, false)) {
+            try {
+                Files.deleteIfExists(pathOf(id));
+                segments.remove(id);
+            } catch (IOException e) {
+                log.warn("Cannot delete hit log segment {}: {}", id, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long writePosition() {
+        return writePosition;
+    }
+
+    @Override
+    public void close() {
+        active.force();
+    }
+
+    public static long position(long segment, int offset) {
+        return segment << 32 | offset;
+    }
+
+    public static long segmentOf(long position) {
+        return position >>> 32;
+    }
+
+    public static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    Long segmentAfter(long id) {
+        return segments.higher(id);
+    }
+
+    boolean hasSegment(long id) {
+        return segments.contains(id);
+    }
+
+    Path pathOf(long id) {
+        return directory.resolve(String.format("%010d%s", id, SUFFIX));
+    }
+
+    private void roll() {
+        active.force();
+        long id = active.id() + 1;
+        try {
+            active = HitLogSegment.create(pathOf(id), id, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create hit log segment " + id, e);
+        }
+        segments.add(id);
+        offset = 0;
+    }
+}
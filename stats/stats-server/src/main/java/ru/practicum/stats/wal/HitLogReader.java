@@ -0,0 +1,95 @@
+package ru.practicum.stats.wal;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.stats.entity.EndpointHit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Reads hits forward from a log position. Sealed segments are read up to their first invalid record,
+ * the active one only up to the published write position.
+ */
+@Slf4j
+public class HitLogReader {
+
+    private final HitLog hitLog;
+    private long position;
+    private HitLogSegment segment;
+
+    HitLogReader(HitLog hitLog, long position) {
+        this.hitLog = hitLog;
+        this.position = position;
+    }
+
+    /**
+     * Appends up to {@code max} hits to {@code into} and returns how many were read.
+     */
+    public int read(int max, List<EndpointHit> into) {
+        int read = 0;
+        while (read < max) {
+            long limit = hitLog.writePosition();
+            if (position >= limit) {
+                break;
+            }
+            long id = HitLog.segmentOf(position);
+            if (!hitLog.hasSegment(id)) {
+                moveToSegmentAfter(id);
+                continue;
+            }
+            int offset = HitLog.offsetOf(position);
+            int length = id == HitLog.segmentOf(limit)
+                    ? activeRecordLength(id, offset, limit)
+                    : sealedRecordLength(id, offset);
+            if (length == 0) {
+                moveToSegmentAfter(id);
+                continue;
+            }
+            into.add(segment.read(offset));
+            position = HitLog.position(id, offset + length);
+            read++;
+        }
+        return read;
+    }
+
+    /**
+     * Position right after the last hit returned by {@link #read}.
+     */
+    public long position() {
+        return position;
+    }
+
+    private int activeRecordLength(long id, int offset, long limit) {
+        if (offset >= HitLog.offsetOf(limit)) {
+            return 0;
+        }
+        return segment(id).recordLength(offset);
+    }
+
+    private int sealedRecordLength(long id, int offset) {
+        HitLogSegment current = segment(id);
+        int length = current.recordLength(offset);
+        if (length == 0 && offset + HitLogSegment.HEADER <= current.capacity() && current.hasData(offset)) {
+            log.warn("Hit log segment {} ends with a torn record at offset {}, skipping the rest", id, offset);
+        }
+        return length;
+    }
+
+    private HitLogSegment segment(long id) {
+        if (segment == null || segment.id() != id) {
+            try {
+                segment = HitLogSegment.openReadOnly(hitLog.pathOf(id), id);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open hit log segment " + id, e);
+            }
+        }
+        return segment;
+    }
+
+    private void moveToSegmentAfter(long id) {
+        Long next = hitLog.segmentAfter(id);
+        position = HitLog.position(next == null ? id + 1 : next, 0);
+        segment = null;
+    }
+}
@@ -0,0 +1,151 @@
+package ru.practicum.stats.wal;
+
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32C;
+
+/**
+ * One memory-mapped segment file. Records have a fixed 36-byte header followed by the app and uri names:
+ *
+ * <pre>
+ * int    length   whole record, 0 marks the unwritten tail of the segment
+ * int    crc      CRC32C of everything after this field
+ * long   created  microseconds since the epoch, UTC
+ * byte16 ip       IPv6 or IPv4-mapped address
+ * short  appLen, short uriLen
+ * byte[] app, byte[] uri  UTF-8
+ * </pre>
+ */
+final class HitLogSegment {
+
+    static final int HEADER = 36;
+
+    private static final int MAX_NAME = 0xffff;
+
+    private final long id;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+
+    private HitLogSegment(long id, Path path, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    static HitLogSegment create(Path path, long id, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new HitLogSegment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    static HitLogSegment openReadOnly(Path path, long id) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new HitLogSegment(id, path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    long id() {
+        return id;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    static int sizeOf(byte[] app, byte[] uri) {
+        if (app.length > MAX_NAME || uri.length > MAX_NAME) {
+            throw new IllegalArgumentException("App or uri is too long for the hit log");
+        }
+        return HEADER + app.length + uri.length;
+    }
+
+    /**
+     * Writes the record at {@code offset}; the caller has checked that it fits.
+     */
+    void write(int offset, EndpointHit hit, byte[] app, byte[] uri) {
+        int length = HEADER + app.length + uri.length;
+        buffer.putLong(offset + 8, toMicros(hit.getTimestamp()));
+        buffer.put(offset + 16, hit.getIp(), 0, IpAddressUtils.LENGTH);
+        buffer.putShort(offset + 32, (short) app.length);
+        buffer.putShort(offset + 34, (short) uri.length);
+        buffer.put(offset + HEADER, app);
+        buffer.put(offset + HEADER + app.length, uri);
+        buffer.putInt(offset + 4, crc(offset, length));
+        buffer.putInt(offset, length);
+    }
+
+    /**
+     * Returns the length of the valid record at {@code offset}, or 0 at the end of the written data,
+     * including a record torn by a crash.
+     */
+    int recordLength(int offset) {
+        if (offset + HEADER > buffer.capacity()) {
+            return 0;
+        }
+        int length = buffer.getInt(offset);
+        if (length < HEADER || offset + length > buffer.capacity()) {
+            return 0;
+        }
+        int appLength = Short.toUnsignedInt(buffer.getShort(offset + 32));
+        int uriLength = Short.toUnsignedInt(buffer.getShort(offset + 34));
+        if (HEADER + appLength + uriLength != length || buffer.getInt(offset + 4) != crc(offset, length)) {
+            return 0;
+        }
+        return length;
+    }
+
+    boolean hasData(int offset) {
+        return buffer.getInt(offset) != 0;
+    }
+
+    EndpointHit read(int offset) {
+        int appLength = Short.toUnsignedInt(buffer.getShort(offset + 32));
+        int uriLength = Short.toUnsignedInt(buffer.getShort(offset + 34));
+        byte[] ip = new byte[IpAddressUtils.LENGTH];
+        buffer.get(offset + 16, ip);
+        byte[] app = new byte[appLength];
+        buffer.get(offset + HEADER, app);
+        byte[] uri = new byte[uriLength];
+        buffer.get(offset + HEADER + appLength, uri);
+        return EndpointHit.builder()
+                .app(new String(app, StandardCharsets.UTF_8))
+                .uri(new String(uri, StandardCharsets.UTF_8))
+                .ip(ip)
+                .timestamp(fromMicros(buffer.getLong(offset + 8)))
+                .build();
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    private int crc(int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset + 8, length - 8));
+        return (int) crc.getValue();
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS stats_hit (
+id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL PRIMARY KEY UNIQUE,
+app_id INTEGER NOT NULL,
+uri_id INTEGER NOT NULL,
+ip UUID NOT NULL,
+created TIMESTAMP WITHOUT TIME ZONE not null
+);
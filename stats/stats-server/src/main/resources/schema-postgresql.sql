@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS stats_hit (
+id BIGSERIAL NOT NULL,
+app_id INTEGER NOT NULL,
+uri_id INTEGER NOT NULL,
+ip UUID NOT NULL,
+created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+PRIMARY KEY (id, created)
+) PARTITION BY RANGE (created);
@@ -1,7 +1,84 @@
-CREATE TABLE IF NOT EXISTS stats (
-id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL PRIMARY KEY UNIQUE,
-app VARCHAR(55) NOT NULL,
-uri VARCHAR(100) NOT NULL,
-ip VARCHAR(30) NOT NULL,
-created TIMESTAMP WITHOUT TIME ZONE not null
-);
\ No newline at end of file
+CREATE TABLE IF NOT EXISTS stats_app (
+id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL PRIMARY KEY,
+name VARCHAR(55) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS stats_uri (
+id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL PRIMARY KEY,
+name VARCHAR(100) NOT NULL UNIQUE
+);
+
+CREATE INDEX IF NOT EXISTS stats_hit_created_idx ON stats_hit (created);
+
+CREATE INDEX IF NOT EXISTS stats_hit_uri_created_idx ON stats_hit (uri_id, created);
+
+CREATE TABLE IF NOT EXISTS stats_rollup_minute (
+app_id INTEGER NOT NULL,
+uri_id INTEGER NOT NULL,
+bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+hits BIGINT NOT NULL,
+PRIMARY KEY (uri_id, app_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS stats_rollup_minute_bucket_idx ON stats_rollup_minute (bucket);
+
+CREATE TABLE IF NOT EXISTS stats_rollup_hour (
+app_id INTEGER NOT NULL,
+uri_id INTEGER NOT NULL,
+bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+hits BIGINT NOT NULL,
+PRIMARY KEY (uri_id, app_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS stats_rollup_hour_bucket_idx ON stats_rollup_hour (bucket);
+
+CREATE TABLE IF NOT EXISTS stats_hll_hour (
+app_id INTEGER NOT NULL,
+uri_id INTEGER NOT NULL,
+bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+sketch BYTEA NOT NULL,
+PRIMARY KEY (uri_id, app_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS stats_hll_hour_bucket_idx ON stats_hll_hour (bucket);
+
+CREATE TABLE IF NOT EXISTS stats_ingest_checkpoint (
+name VARCHAR(64) NOT NULL PRIMARY KEY,
+position BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS stats_top_hour (
+bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL PRIMARY KEY,
+summary BYTEA NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS stats_top_day (
+bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL PRIMARY KEY,
+summary BYTEA NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS stats_hit_daily (
+app_id INTEGER NOT NULL,
+uri_id INTEGER NOT NULL,
+bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+hits BIGINT NOT NULL,
+sketch BYTEA NOT NULL,
+PRIMARY KEY (uri_id, app_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS stats_hit_daily_bucket_idx ON stats_hit_daily (bucket);
+
+CREATE TABLE IF NOT EXISTS stats_visitor (
+id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL PRIMARY KEY,
+ip UUID NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS stats_bitmap_day (
+app_id INTEGER NOT NULL,
+uri_id INTEGER NOT NULL,
+bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+visitors BYTEA NOT NULL,
+PRIMARY KEY (uri_id, app_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS stats_bitmap_day_bucket_idx ON stats_bitmap_day (bucket);
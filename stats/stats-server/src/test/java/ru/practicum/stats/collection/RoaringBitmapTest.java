@@ -0,0 +1,64 @@
+package ru.practicum.stats.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoaringBitmapTest {
+
+    @Test
+    void add_shouldMatchHashSet_forSparseAndDenseContainers() {
+        Random random = new Random(42);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            int value = i % 2 == 0 ? random.nextInt(10_000) : random.nextInt(5_000_000);
+            assertEquals(expected.add(value), bitmap.add(value));
+        }
+
+        assertEquals(expected.size(), bitmap.cardinality());
+        expected.forEach(value -> assertTrue(bitmap.contains(value)));
+        assertFalse(bitmap.contains(5_000_001));
+    }
+
+    @Test
+    void or_shouldUnionWithoutModifyingArgument() {
+        RoaringBitmap left = new RoaringBitmap();
+        RoaringBitmap right = new RoaringBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            left.add(i * 3);
+            right.add(i * 5);
+        }
+        right.add(1 << 20);
+
+        left.or(right);
+        right.add(7);
+
+        assertEquals(10_000 + 10_000 - 2_000 + 1, left.cardinality());
+        assertTrue(left.contains(1 << 20));
+        assertFalse(left.contains(7));
+        assertEquals(10_002, right.cardinality());
+    }
+
+    @Test
+    void toBytes_shouldRoundTripArrayAndBitmapContainers() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 5_000; i++) {
+            bitmap.add(i);
+        }
+        bitmap.add(70_000);
+        bitmap.add(Integer.MAX_VALUE);
+
+        RoaringBitmap restored = RoaringBitmap.fromBytes(bitmap.toBytes());
+
+        assertEquals(bitmap.cardinality(), restored.cardinality());
+        assertTrue(restored.contains(4_999));
+        assertTrue(restored.contains(70_000));
+        assertTrue(restored.contains(Integer.MAX_VALUE));
+        assertFalse(restored.contains(5_000));
+    }
+}
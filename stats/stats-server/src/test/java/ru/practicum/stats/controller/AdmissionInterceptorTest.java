@@ -0,0 +1,60 @@
+package ru.practicum.stats.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.stats.dto.EndpointHitCreateDto;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stats-admission",
+        "stats.admission.write.max-concurrency=0",
+        "stats.admission.retry-after=3s"
+})
+@AutoConfigureMockMvc
+public class AdmissionInterceptorTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void hit_shouldBeShedWithRetryAfter_whileReadsAreServed() throws Exception {
+        EndpointHitCreateDto hit = new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1",
+                LocalDateTime.of(2025, 1, 10, 12, 0, 0));
+
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hit)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"))
+                .andExpect(jsonPath("$.status").value("TOO_MANY_REQUESTS"));
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-01-10 00:00:00")
+                        .param("end", "2025-01-11 00:00:00"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, meterRegistry.get("stats.admission.requests")
+                .tags("lane", "write", "outcome", "lane").counter().count());
+        assertEquals(0, meterRegistry.get("stats.admission.in-flight").gauge().value());
+    }
+}
@@ -0,0 +1,351 @@
+package ru.practicum.stats.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.stats.dto.EndpointHitCreateDto;
+import ru.practicum.stats.repository.StatsRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "stats.ingest.max-batch=5")
+@AutoConfigureMockMvc
+public class StatsControllerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 10, 12, 0, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void saveHits_shouldPersistJsonArrayAndReturnAck() throws Exception {
+        List<EndpointHitCreateDto> hits = List.of(
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1", NOW),
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.2", NOW),
+                new EndpointHitCreateDto("ewm", "/events/2", "10.0.0.1", NOW));
+
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hits)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(3));
+
+        assertEquals(3, repository.count());
+    }
+
+    @Test
+    void saveHits_shouldPersistNdjson() throws Exception {
+        String body = """
+                {"app":"ewm","uri":"/events/1","ip":"10.0.0.1","timestamp":"2025-01-10 12:00:00"}
+                {"app":"ewm","uri":"/events/2","ip":"10.0.0.1","timestamp":"2025-01-10 12:00:01"}
+                """;
+
+        mockMvc.perform(post("/hits")
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(2));
+
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    void saveHits_shouldReturn400_whenHitIsInvalid() throws Exception {
+        List<EndpointHitCreateDto> hits = List.of(
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1", NOW),
+                new EndpointHitCreateDto("ewm", "", "10.0.0.2", NOW));
+
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hits)))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, repository.count());
+    }
+
+    @Test
+    void saveHits_shouldReturn400_whenHitIsNull() throws Exception {
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[null]"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/hits")
+                        .contentType("application/x-ndjson")
+                        .content("null\n"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, repository.count());
+    }
+
+    @Test
+    void saveHits_shouldReturn400_whenBatchIsTooLarge() throws Exception {
+        List<EndpointHitCreateDto> hits = IntStream.range(0, 6)
+                .mapToObj(i -> new EndpointHitCreateDto("ewm", "/events/" + i, "10.0.0.1", NOW))
+                .toList();
+
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hits)))
+                .andExpect(status().isBadRequest());
+
+        StringBuilder ndjson = new StringBuilder();
+        for (EndpointHitCreateDto hit : hits) {
+            ndjson.append(objectMapper.writeValueAsString(hit)).append('\n');
+        }
+        mockMvc.perform(post("/hits")
+                        .contentType("application/x-ndjson")
+                        .content(ndjson.toString()))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, repository.count());
+    }
+
+    @Test
+    void saveHit_shouldAcceptIpv6AndRejectInvalidIp() throws Exception {
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new EndpointHitCreateDto("ewm", "/events/1", "2001:DB8::1", NOW))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.ip").value("2001:db8:0:0:0:0:0:1"));
+
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new EndpointHitCreateDto("ewm", "/events/1", "example.com", NOW))))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    void getStats_shouldCountBatchedHits() throws Exception {
+        List<EndpointHitCreateDto> hits = List.of(
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1", NOW),
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1", NOW),
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.2", NOW));
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hits)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-01-10 00:00:00")
+                        .param("end", "2025-01-11 00:00:00")
+                        .param("uris", "/events/1")
+                        .param("unique", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].uri").value("/events/1"))
+                .andExpect(jsonPath("$[0].hits").value(2));
+    }
+
+    @Test
+    void getStats_shouldRecordIngestAndQueryMetrics() throws Exception {
+        Timer query = meterRegistry.timer("stats.query", "source", "scan", "unique", "true", "approximate", "false",
+                "uris", "1", "result", "1");
+        long queriesBefore = query.count();
+        double hitsBefore = meterRegistry.counter("stats.ingest.hits", "endpoint", "hits", "mode", "direct",
+                "batch", "2-10").count();
+        // a year before NOW so that rolled-up counts do not leak into the other tests' ranges
+        List<EndpointHitCreateDto> hits = List.of(
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1", NOW.minusYears(1)),
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.2", NOW.minusYears(1)));
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hits)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2024-01-10 00:00:00")
+                        .param("end", "2024-01-11 00:00:00")
+                        .param("uris", "/events/1")
+                        .param("unique", "true"))
+                .andExpect(status().isOk());
+
+        assertEquals(hitsBefore + 2, meterRegistry.counter("stats.ingest.hits", "endpoint", "hits", "mode", "direct",
+                "batch", "2-10").count());
+        assertEquals(queriesBefore + 1, query.count());
+        assertEquals(1, meterRegistry.get("stats.criteria.rows").tag("unique", "true").summary().max());
+    }
+
+    @Test
+    void getStats_shouldStreamNdjson_whenRequested() throws Exception {
+        List<EndpointHitCreateDto> hits = List.of(
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1", NOW),
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.2", NOW),
+                new EndpointHitCreateDto("ewm", "/events/2", "10.0.0.1", NOW));
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hits)))
+                .andExpect(status().isCreated());
+
+        MvcResult result = mockMvc.perform(get("/stats")
+                        .accept("application/x-ndjson")
+                        .param("start", "2025-01-10 00:00:00")
+                        .param("end", "2025-01-11 00:00:00"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("""
+                {"app":"ewm","uri":"/events/1","hits":2}
+                {"app":"ewm","uri":"/events/2","hits":1}
+                """, body);
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-01-10 00:00:00")
+                        .param("end", "2025-01-11 00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hits").value(2));
+    }
+
+    @Test
+    void getStats_shouldReturn400BeforeStreaming_whenRangeIsInvalid() throws Exception {
+        mockMvc.perform(get("/stats")
+                        .accept("application/x-ndjson")
+                        .param("start", "2025-01-11 00:00:00")
+                        .param("end", "2025-01-10 00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getTop_shouldReturnMostViewedUris() throws Exception {
+        LocalDateTime topDay = NOW.plusMonths(1);
+        List<EndpointHitCreateDto> hits = List.of(
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1", topDay),
+                new EndpointHitCreateDto("ewm", "/events/2", "10.0.0.1", topDay),
+                new EndpointHitCreateDto("ewm", "/events/2", "10.0.0.2", topDay));
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hits)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/stats/top")
+                        .param("start", "2025-02-10 00:00:00")
+                        .param("end", "2025-02-11 00:00:00")
+                        .param("k", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].uri").value("/events/2"))
+                .andExpect(jsonPath("$[0].hits").value(2));
+
+        mockMvc.perform(get("/stats/top")
+                        .param("start", "2025-02-10 00:00:00")
+                        .param("end", "2025-02-11 00:00:00")
+                        .param("k", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getTimeSeries_shouldCountHitsAndUniquesPerBucket() throws Exception {
+        List<EndpointHitCreateDto> hits = List.of(
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1", NOW.plusMinutes(5)),
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1", NOW.plusMinutes(10)),
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.2", NOW.plusHours(2)),
+                new EndpointHitCreateDto("ewm", "/events/2", "10.0.0.3", NOW.plusMinutes(30)),
+                new EndpointHitCreateDto("ewm", "/events/3", "10.0.0.4", NOW));
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hits)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/stats/timeseries")
+                        .param("start", "2025-01-10 00:00:00")
+                        .param("end", "2025-01-10 23:59:59")
+                        .param("uris", "/events/1", "/events/2")
+                        .param("bucket", "1h"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].uri").value("/events/1"))
+                .andExpect(jsonPath("$[0].points.length()").value(2))
+                .andExpect(jsonPath("$[0].points[0].start").value("2025-01-10 12:00:00"))
+                .andExpect(jsonPath("$[0].points[0].hits").value(2))
+                .andExpect(jsonPath("$[0].points[0].unique").value(1))
+                .andExpect(jsonPath("$[0].points[1].start").value("2025-01-10 14:00:00"))
+                .andExpect(jsonPath("$[0].points[1].hits").value(1))
+                .andExpect(jsonPath("$[1].uri").value("/events/2"))
+                .andExpect(jsonPath("$[1].points[0].hits").value(1));
+
+        mockMvc.perform(get("/stats/timeseries")
+                        .param("start", "2025-01-10 00:00:00")
+                        .param("end", "2025-01-10 23:59:59")
+                        .param("bucket", "PT1S"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/stats/timeseries")
+                        .param("start", "2020-01-10 00:00:00")
+                        .param("end", "2025-01-10 23:59:59")
+                        .param("bucket", "1m"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void queryWindows_shouldCountEachUriInItsOwnRange() throws Exception {
+        List<EndpointHitCreateDto> hits = List.of(
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1", NOW.minusDays(2)),
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1", NOW),
+                new EndpointHitCreateDto("ewm", "/events/1", "10.0.0.1", NOW.plusMinutes(1)),
+                new EndpointHitCreateDto("other", "/events/1", "10.0.0.2", NOW),
+                new EndpointHitCreateDto("ewm", "/events/2", "10.0.0.3", NOW.minusDays(2)));
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hits)))
+                .andExpect(status().isCreated());
+
+        String windows = """
+                [
+                  {"uri": "/events/1", "start": "2025-01-10 00:00:00", "end": "2025-01-11 00:00:00", "unique": true},
+                  {"uri": "/events/1", "start": "2025-01-01 00:00:00", "end": "2025-01-11 00:00:00", "unique": false},
+                  {"uri": "/events/2", "start": "2025-01-10 00:00:00", "end": "2025-01-11 00:00:00", "unique": false},
+                  {"uri": "/events/404", "start": "2025-01-10 00:00:00", "end": "2025-01-11 00:00:00", "unique": true}
+                ]
+                """;
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(windows))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].hits").value(2))
+                .andExpect(jsonPath("$[1].hits").value(4))
+                .andExpect(jsonPath("$[2].hits").value(0))
+                .andExpect(jsonPath("$[3].uri").value("/events/404"))
+                .andExpect(jsonPath("$[3].hits").value(0));
+
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"uri\": \"/events/1\", \"start\": \"2025-01-10 00:00:00\"}]"))
+                .andExpect(status().isBadRequest());
+    }
+}
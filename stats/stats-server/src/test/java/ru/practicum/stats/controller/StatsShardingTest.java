@@ -0,0 +1,93 @@
+package ru.practicum.stats.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.stats.dto.EndpointHitCreateDto;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.utils.ShardUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stats-shard",
+        "stats.shard.index=1",
+        "stats.shard.count=2"
+})
+@AutoConfigureMockMvc
+public class StatsShardingTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 10, 12, 0, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void shardOf_shouldSpreadUrisOverAllShards() {
+        int[] counts = new int[4];
+        IntStream.range(0, 4_000).forEach(i -> counts[ShardUtils.shardOf("/events/" + i, 4)]++);
+
+        for (int count : counts) {
+            assertEquals(1_000, count, 100);
+        }
+        assertEquals(0, ShardUtils.shardOf("/events/1", 1));
+    }
+
+    @Test
+    void saveHits_shouldAcceptOwnedUris() throws Exception {
+        List<EndpointHitCreateDto> hits = List.of(
+                new EndpointHitCreateDto("ewm", uri(1), "10.0.0.1", NOW),
+                new EndpointHitCreateDto("ewm", uri(1), "10.0.0.2", NOW));
+
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hits)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(2));
+
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    void saveHit_shouldReturn400_whenUriBelongsToAnotherShard() throws Exception {
+        EndpointHitCreateDto hit = new EndpointHitCreateDto("ewm", uri(0), "10.0.0.1", NOW);
+
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hit)))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, repository.count());
+    }
+
+    private static String uri(int shard) {
+        return IntStream.iterate(1, i -> i + 1)
+                .mapToObj(i -> "/events/" + i)
+                .filter(uri -> ShardUtils.shardOf(uri, 2) == shard)
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,86 @@
+package ru.practicum.stats.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+import ru.practicum.stats.service.ingest.HitPersister;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:stats-native")
+public class StatsNativeQueryRepositoryTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 1, 0, 0, 0);
+
+    @Autowired
+    private StatsNativeQueryRepository nativeQueryRepository;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @Autowired
+    private HitPersister persister;
+
+    @Autowired
+    private StatsDictionaryService dictionary;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            hits.add(EndpointHit.builder()
+                    .app(i % 4 == 0 ? "other" : "ewm")
+                    .uri("/events/" + (i % 13))
+                    .ip(IpAddressUtils.toBytes("10.3.0." + (i % 37)))
+                    .timestamp(BASE.plusMinutes(i))
+                    .build());
+        }
+        persister.persist(hits);
+    }
+
+    @Test
+    void findStats_shouldMatchCriteriaQuery() {
+        LocalDateTime start = BASE.plusHours(3);
+        LocalDateTime end = BASE.plusHours(20);
+        List<Integer> someUris = dictionary.findUriIds(List.of("/events/1", "/events/5", "/events/12"));
+
+        for (boolean unique : new boolean[]{false, true}) {
+            for (List<Integer> uriIds : Arrays.asList(null, someUris)) {
+                List<HitCount> expected = repository.findStatsByCriteria(start, end, uriIds, unique);
+                List<HitCount> actual = nativeQueryRepository.findStats(start, end, uriIds, unique);
+
+                assertFalse(actual.isEmpty());
+                assertEquals(sorted(expected), sorted(actual));
+                assertTrue(isDescending(actual));
+            }
+        }
+    }
+
+    private static List<HitCount> sorted(List<HitCount> counts) {
+        return counts.stream()
+                .sorted(Comparator.comparing(HitCount::appId).thenComparing(HitCount::uriId))
+                .toList();
+    }
+
+    private static boolean isDescending(List<HitCount> counts) {
+        for (int i = 1; i < counts.size(); i++) {
+            if (counts.get(i - 1).hits() < counts.get(i).hits()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,93 @@
+package ru.practicum.stats.service.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.service.metrics.StatsMetrics;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.practicum.stats.service.admission.AdmissionLimiter.Lane.READ;
+import static ru.practicum.stats.service.admission.AdmissionLimiter.Lane.WRITE;
+import static ru.practicum.stats.service.admission.AdmissionLimiter.Outcome.ADMITTED;
+import static ru.practicum.stats.service.admission.AdmissionLimiter.Outcome.LANE_FULL;
+import static ru.practicum.stats.service.admission.AdmissionLimiter.Outcome.LIMITED;
+import static ru.practicum.stats.service.admission.AdmissionLimiter.Outcome.RESERVED;
+
+public class AdmissionLimiterTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void tryAcquire_shouldKeepReserveForReads() {
+        AdmissionLimiter limiter = limiter(8, 100);
+
+        for (int i = 0; i < 6; i++) {
+            assertEquals(ADMITTED, limiter.tryAcquire(WRITE));
+        }
+        assertEquals(RESERVED, limiter.tryAcquire(WRITE));
+        assertEquals(ADMITTED, limiter.tryAcquire(READ));
+        assertEquals(ADMITTED, limiter.tryAcquire(READ));
+        assertEquals(LIMITED, limiter.tryAcquire(READ));
+
+        limiter.release(WRITE, -1, 0);
+        assertEquals(ADMITTED, limiter.tryAcquire(READ));
+        assertEquals(8, registry.get("stats.admission.in-flight").gauge().value());
+    }
+
+    @Test
+    void tryAcquire_shouldCapEachLane() {
+        AdmissionLimiter limiter = limiter(20, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ADMITTED, limiter.tryAcquire(WRITE));
+        }
+        assertEquals(LANE_FULL, limiter.tryAcquire(WRITE));
+        assertEquals(ADMITTED, limiter.tryAcquire(READ));
+
+        limiter.release(WRITE, -1, 0);
+        assertEquals(ADMITTED, limiter.tryAcquire(WRITE));
+    }
+
+    @Test
+    void release_shouldShrinkLimitWhileSlow_andGrowItBackOnceFast() {
+        AdmissionLimiter limiter = limiter(20, 100);
+        long now = 0;
+
+        now = run(limiter, now, 10 * MS, 12);
+        assertEquals(20, limiter.getLimit());
+        for (int i = 0; i < 6; i++) {
+            now = run(limiter, now, 100 * MS, 12);
+        }
+        int shrunk = limiter.getLimit();
+        assertTrue(shrunk <= 12, "limit " + shrunk);
+        for (int i = 0; i < 10; i++) {
+            now = run(limiter, now, 10 * MS, limiter.getLimit());
+        }
+        assertTrue(limiter.getLimit() > 2 * shrunk, "limit " + limiter.getLimit());
+    }
+
+    /**
+     * Runs one window of {@code concurrency} overlapping reads taking {@code latency} each.
+     */
+    private static long run(AdmissionLimiter limiter, long now, long latency, int concurrency) {
+        int admitted = 0;
+        while (admitted < concurrency && limiter.tryAcquire(READ) == ADMITTED) {
+            admitted++;
+        }
+        long end = now + Math.max(latency, 1_000 * MS);
+        for (int i = 0; i < admitted; i++) {
+            limiter.release(READ, end - latency, end);
+        }
+        return end;
+    }
+
+    private AdmissionLimiter limiter(int initialLimit, int writeMaxConcurrency) {
+        return new AdmissionLimiter(new StatsMetrics(registry, "direct"), initialLimit, 4, 200, 0.75, 2.0,
+                Duration.ofSeconds(1), 100, writeMaxConcurrency);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.stats.service.bitmap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.stats.dto.ViewStats;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.StatsBitmapRepository;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+import ru.practicum.stats.service.ingest.HitPersister;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stats-bitmap",
+        "stats.bitmap.enabled=true"
+})
+public class StatsBitmapServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 5, 1, 0, 0, 0);
+
+    @Autowired
+    private HitPersister persister;
+
+    @Autowired
+    private StatsBitmapService bitmapService;
+
+    @Autowired
+    private StatsBitmapRepository bitmapRepository;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @Autowired
+    private StatsDictionaryService dictionary;
+
+    @BeforeEach
+    void setUp() {
+        bitmapService.flush();
+        repository.deleteAll();
+        bitmapRepository.deleteAll();
+
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 6000; i++) {
+            hits.add(EndpointHit.builder()
+                    .app("ewm")
+                    .uri("/events/" + (i % 3))
+                    .ip(IpAddressUtils.toBytes("10.1." + (i % 2500 / 256) + "." + (i % 2500 % 256)))
+                    .timestamp(BASE.plusSeconds(i * 60L))
+                    .build());
+        }
+        persister.persist(hits);
+    }
+
+    @Test
+    void countUnique_shouldMatchExactCount_withUnflushedAndFlushedBitmaps() {
+        LocalDateTime start = BASE.plusHours(7).plusMinutes(13);
+        LocalDateTime end = BASE.plusDays(3).plusHours(2);
+
+        assertExact(start, end, null);
+        bitmapService.flush();
+        assertFalse(bitmapRepository.isEmpty());
+        assertExact(start, end, null);
+        assertExact(start, end, List.of("/events/1", "/events/2"));
+        assertExact(start, end, List.of("/events/1", "/events/2"));
+        assertExact(BASE.plusHours(1), BASE.plusHours(5), List.of("/events/0"));
+    }
+
+    private void assertExact(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<Integer> uriIds = dictionary.findUriIds(uris);
+        Map<String, Long> exact = toMap(dictionary.decode(repository.findStatsByCriteria(start, end, uriIds, true)));
+        Map<String, Long> counted = toMap(dictionary.decode(bitmapService.countUnique(start, end, uriIds)));
+
+        assertEquals(exact, counted);
+    }
+
+    private static Map<String, Long> toMap(List<ViewStats> stats) {
+        return stats.stream().collect(Collectors.toMap(ViewStats::getUri, ViewStats::getHits));
+    }
+}
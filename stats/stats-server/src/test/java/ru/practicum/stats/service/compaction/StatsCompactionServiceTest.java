@@ -0,0 +1,140 @@
+package ru.practicum.stats.service.compaction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.dto.StatsQueryWindowDto;
+import ru.practicum.stats.dto.ViewStats;
+import ru.practicum.stats.dto.ViewStatsSeries;
+import ru.practicum.stats.dto.ViewStatsWindow;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.StatsCompactionRepository;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.service.StatsService;
+import ru.practicum.stats.service.ingest.HitPersister;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "stats.compaction.chunk-size=300")
+public class StatsCompactionServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 5, 1, 0, 0, 0);
+    private static final LocalDateTime CUTOFF = BASE.plusDays(3);
+    private static final Comparator<ViewStats> ORDER = Comparator.comparing(ViewStats::getApp)
+            .thenComparing(ViewStats::getUri);
+
+    @Autowired
+    private HitPersister persister;
+
+    @Autowired
+    private StatsCompactionService compactionService;
+
+    @Autowired
+    private StatsCompactionRepository compactionRepository;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Random random = new Random(7);
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        compactionRepository.deleteAll();
+        compactionService.refresh();
+
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            hits.add(EndpointHit.builder()
+                    .app(i % 5 == 0 ? "other" : "ewm")
+                    .uri("/compacted/" + random.nextInt(4))
+                    .ip(IpAddressUtils.toBytes("10.1.0." + random.nextInt(20)))
+                    .timestamp(BASE.plusSeconds(random.nextInt(5 * 24 * 3600)))
+                    .build());
+        }
+        persister.persist(hits);
+    }
+
+    @AfterEach
+    void tearDown() {
+        compactionRepository.deleteAll();
+        compactionService.refresh();
+    }
+
+    @Test
+    void compactBefore_shouldFoldOldHitsAndKeepQueryResults() {
+        LocalDateTime start = BASE;
+        LocalDateTime end = BASE.plusDays(5).minusSeconds(1);
+        List<String> uris = List.of("/compacted/0", "/compacted/1", "/compacted/2", "/compacted/3");
+        List<ViewStats> uniqueBefore = sorted(statsService.getStats(start, end, uris, true, false));
+        List<StatsQueryWindowDto> windows = List.of(
+                new StatsQueryWindowDto("/compacted/1", BASE.plusDays(1), end, true),
+                new StatsQueryWindowDto("/compacted/2", BASE.plusDays(2), end, false),
+                new StatsQueryWindowDto("/compacted/3", CUTOFF, end, false));
+        List<ViewStatsWindow> windowsBefore = statsService.queryWindows(windows);
+        List<ViewStatsSeries> seriesBefore = statsService.getTimeSeries(start, end, uris, Duration.ofDays(1));
+        long rawBefore = countRaw(CUTOFF);
+
+        long compacted = compactionService.compactBefore(CUTOFF);
+
+        assertEquals(rawBefore, compacted);
+        assertEquals(0, countRaw(CUTOFF));
+        assertEquals(compacted, jdbcTemplate.queryForObject("SELECT SUM(hits) FROM stats_hit_daily", Long.class));
+        assertTrue(compactionService.covers(start));
+        assertEquals(uniqueBefore, sorted(statsService.getStats(start, end, uris, true, false)));
+        assertEquals(windowsBefore, statsService.queryWindows(windows));
+        assertEquals(hitsPerDay(seriesBefore), hitsPerDay(statsService.getTimeSeries(start, end, uris,
+                Duration.ofDays(1))));
+    }
+
+    @Test
+    void compactBefore_shouldLeaveOutCompactedDaysOnlyPartlyInRange() {
+        LocalDateTime end = BASE.plusDays(5).minusSeconds(1);
+        LocalDateTime partial = BASE.plusDays(1).plusHours(14);
+        List<String> uris = List.of("/compacted/0", "/compacted/1", "/compacted/2", "/compacted/3");
+        List<ViewStats> wholeDays = sorted(statsService.getStats(BASE.plusDays(2), end, uris, true, false));
+        Long windowHits = statsService.queryWindows(List.of(
+                new StatsQueryWindowDto("/compacted/1", BASE.plusDays(2), end, false))).get(0).getHits();
+
+        compactionService.compactBefore(CUTOFF);
+
+        assertEquals(wholeDays, sorted(statsService.getStats(partial, end, uris, true, false)));
+        assertEquals(windowHits, statsService.queryWindows(List.of(
+                new StatsQueryWindowDto("/compacted/1", partial, end, false))).get(0).getHits());
+    }
+
+    private long countRaw(LocalDateTime before) {
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_hit WHERE created < ?", Long.class,
+                before);
+        return rows == null ? 0 : rows;
+    }
+
+    private static List<ViewStats> sorted(List<ViewStats> stats) {
+        return stats.stream().sorted(ORDER).toList();
+    }
+
+    private static List<String> hitsPerDay(List<ViewStatsSeries> series) {
+        return series.stream()
+                .flatMap(s -> s.getPoints().stream().map(p -> s.getApp() + s.getUri() + p.getStart() + "=" + p.getHits()))
+                .sorted()
+                .toList();
+    }
+}
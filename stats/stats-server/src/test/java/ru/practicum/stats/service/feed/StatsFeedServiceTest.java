@@ -0,0 +1,157 @@
+package ru.practicum.stats.service.feed;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.stats.dto.ViewStatsDelta;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.service.ingest.HitPersister;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stats-feed",
+        "stats.feed.interval-ms=3600000",
+        "stats.feed.heartbeat=0s",
+        "stats.feed.max-queued-updates=3",
+        "stats.feed.tracked-uris=1"
+})
+public class StatsFeedServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 2, 1, 10, 0, 0);
+
+    @Autowired
+    private StatsFeedService feedService;
+
+    @Autowired
+    private HitPersister persister;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void publish_shouldPushHitAndNewVisitorDeltas_forSubscribedPrefix() {
+        persister.persist(List.of(hit("/events/1", "10.0.0.1"), hit("/events/1", "10.0.0.2")));
+        List<List<ViewStatsDelta>> received = Collections.synchronizedList(new ArrayList<>());
+        StatsFeedService.Subscription subscription = feedService.subscribe("/events/", received::add, () -> {
+        });
+
+        persister.persist(List.of(
+                hit("/events/1", "10.0.0.1"),
+                hit("/events/1", "10.0.0.3"),
+                hit("/events/1", "10.0.0.3"),
+                hit("/events/2", "10.0.0.1"),
+                hit("/users/1", "10.0.0.9")));
+        feedService.publish();
+        persister.persist(List.of(hit("/events/1", "10.0.0.3"), hit("/events/1", "10.0.0.4")));
+        feedService.publish();
+        feedService.publish();
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertEquals(3, received.size()));
+        subscription.cancel();
+
+        assertEquals(List.of(
+                new ViewStatsDelta("ewm", "/events/1", 3, 1),
+                new ViewStatsDelta("ewm", "/events/2", 1, 1)), received.get(0));
+        assertEquals(List.of(new ViewStatsDelta("ewm", "/events/1", 2, 1)), received.get(1));
+        assertEquals(List.of(), received.get(2));
+        assertEquals(0, feedService.getSubscriberCount());
+    }
+
+    @Test
+    void publish_shouldKeepTrackedUri_whenSeedingOtherUrisEvictsIt() {
+        persister.persist(List.of(hit("/events/evict-tracked", "10.0.0.1")));
+        List<List<ViewStatsDelta>> received = Collections.synchronizedList(new ArrayList<>());
+        StatsFeedService.Subscription subscription = feedService.subscribe("/events/evict-", received::add, () -> {
+        });
+
+        persister.persist(List.of(hit("/events/evict-tracked", "10.0.0.2")));
+        feedService.publish();
+        List<EndpointHit> hits = new ArrayList<>(List.of(hit("/events/evict-tracked", "10.0.0.2"),
+                hit("/events/evict-tracked", "10.0.0.3")));
+        List<ViewStatsDelta> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            hits.add(hit("/events/evict-" + i, "10.0.0.4"));
+            expected.add(new ViewStatsDelta("ewm", "/events/evict-" + i, 1, 1));
+        }
+        expected.add(new ViewStatsDelta("ewm", "/events/evict-tracked", 2, 1));
+        persister.persist(hits);
+        feedService.publish();
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertEquals(2, received.size()));
+        subscription.cancel();
+
+        assertEquals(expected, received.get(1));
+    }
+
+    @Test
+    void publish_shouldDropSubscriber_whenSinkFails() {
+        AtomicBoolean dropped = new AtomicBoolean();
+        feedService.subscribe("/", deltas -> {
+            throw new IOException("Broken pipe");
+        }, () -> dropped.set(true));
+
+        persister.persist(List.of(hit("/events/1", "10.0.0.1")));
+        feedService.publish();
+
+        await().atMost(Duration.ofSeconds(5)).untilTrue(dropped);
+        assertEquals(0, feedService.getSubscriberCount());
+        assertTrue(repository.count() > 0);
+    }
+
+    @Test
+    void publish_shouldNotWaitForSlowSubscriber_andDropItOnceTooFarBehind() {
+        CountDownLatch stalled = new CountDownLatch(1);
+        AtomicBoolean dropped = new AtomicBoolean();
+        List<List<ViewStatsDelta>> received = Collections.synchronizedList(new ArrayList<>());
+        feedService.subscribe("/", deltas -> awaitQuietly(stalled), () -> dropped.set(true));
+        StatsFeedService.Subscription fast = feedService.subscribe("/", received::add, () -> {
+        });
+
+        for (int i = 1; i <= 5; i++) {
+            feedService.publish();
+            int updates = i;
+            await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertEquals(updates, received.size()));
+        }
+
+        assertTrue(dropped.get());
+        assertEquals(1, feedService.getSubscriberCount());
+        stalled.countDown();
+        fast.cancel();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static EndpointHit hit(String uri, String ip) {
+        return EndpointHit.builder()
+                .app("ewm")
+                .uri(uri)
+                .ip(IpAddressUtils.toBytes(ip))
+                .timestamp(NOW)
+                .build();
+    }
+}
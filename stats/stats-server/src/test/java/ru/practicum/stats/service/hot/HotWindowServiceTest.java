@@ -0,0 +1,101 @@
+package ru.practicum.stats.service.hot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+import ru.practicum.stats.service.ingest.HitPersister;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class HotWindowServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    @Autowired
+    private HitPersister persister;
+
+    @Autowired
+    private HotWindowService hotWindowService;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @Autowired
+    private StatsDictionaryService dictionary;
+
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        persister.persist(randomHits(3000, NOW.minusDays(3)));
+        hotWindowService.rebuild();
+    }
+
+    @Test
+    void findStats_shouldMatchDatabase_forRebuiltAndLiveHits() {
+        assertMatchesDatabase();
+
+        List<EndpointHit> live = randomHits(500, NOW.minusHours(6));
+        persister.persist(live);
+        assertMatchesDatabase();
+    }
+
+    @Test
+    void covers_shouldRejectRangesStartingBeforeWindow() {
+        assertTrue(hotWindowService.covers(NOW.minusDays(1), NOW));
+        assertFalse(hotWindowService.covers(NOW.minusDays(30), NOW));
+        assertTrue(hotWindowService.findStats(NOW.minusDays(30), NOW, null, false).isEmpty());
+    }
+
+    private void assertMatchesDatabase() {
+        List<Integer> uriIds = List.of(dictionary.uriId("/events/1"), dictionary.uriId("/events/2"));
+        for (int i = 0; i < 30; i++) {
+            LocalDateTime start = NOW.minusSeconds(random.nextInt(3 * 24 * 3600));
+            LocalDateTime end = start.plusSeconds(random.nextInt(2 * 24 * 3600));
+            boolean unique = i % 2 == 0;
+            List<Integer> filter = i % 3 == 0 ? uriIds : null;
+
+            assertEquals(toMap(repository.findStatsByCriteria(start, end, filter, unique)),
+                    toMap(hotWindowService.findStats(start, end, filter, unique).orElseThrow()),
+                    start + " - " + end + ", unique " + unique);
+        }
+    }
+
+    private List<EndpointHit> randomHits(int count, LocalDateTime from) {
+        int seconds = (int) ChronoUnit.SECONDS.between(from, NOW);
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            hits.add(EndpointHit.builder()
+                    .app(i % 7 == 0 ? "admin" : "ewm")
+                    .uri("/events/" + random.nextInt(5))
+                    .ip(IpAddressUtils.toBytes("10.0.0." + random.nextInt(200)))
+                    .timestamp(from.plusSeconds(random.nextInt(seconds)))
+                    .build());
+        }
+        return hits;
+    }
+
+    private static Map<String, Long> toMap(List<HitCount> counts) {
+        Map<String, Long> result = new HashMap<>();
+        counts.forEach(count -> result.put(count.appId() + ":" + count.uriId(), count.hits()));
+        return result;
+    }
+}
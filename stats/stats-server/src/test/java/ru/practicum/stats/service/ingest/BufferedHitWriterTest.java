@@ -0,0 +1,187 @@
+package ru.practicum.stats.service.ingest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.exception.TooManyRequestsException;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "stats.ingest.mode=buffered",
+        "stats.ingest.buffer.flush-size=10",
+        "stats.ingest.buffer.flush-interval-ms=50"
+})
+public class BufferedHitWriterTest {
+
+    @Autowired
+    private HitWriter hitWriter;
+
+    @Autowired
+    private StatsRepository repository;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void write_shouldGroupCommitBufferedHits() {
+        assertInstanceOf(BufferedHitWriter.class, hitWriter);
+        List<EndpointHit> hits = hits(25);
+
+        hitWriter.write(hits.subList(0, 5));
+        hitWriter.write(hits.subList(5, 25));
+
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertEquals(25, repository.count()));
+    }
+
+    @Test
+    void write_shouldRejectWithRetryAfter_whenBufferIsFull() throws InterruptedException {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        BufferedHitWriter writer = writer(5, 5, 10_000, batch -> {
+            flushing.countDown();
+            awaitQuietly(unblock);
+        });
+        writer.start();
+
+        writer.write(hits(5));
+        flushing.await(5, TimeUnit.SECONDS);
+        TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class,
+                () -> writer.write(hits(1)));
+        unblock.countDown();
+        writer.stop();
+
+        assertEquals(1, rejected.getRetryAfterSeconds());
+        assertEquals(1, registry.get("stats.ingest.buffer.rejected").counter().count());
+    }
+
+    @Test
+    void flush_shouldRetryFailedBatch_untilItCommits() {
+        List<EndpointHit> persisted = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger failures = new AtomicInteger(2);
+        BufferedHitWriter writer = writer(100, 10, 10_000, batch -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("database unavailable");
+            }
+            persisted.addAll(batch);
+        });
+        writer.start();
+
+        writer.write(hits(10));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertEquals(10, persisted.size()));
+        writer.stop();
+        assertEquals(2, registry.get("stats.ingest.buffer.retries").counter().count());
+        assertEquals(0, registry.get("stats.ingest.buffer.dropped").counter().count());
+    }
+
+    @Test
+    void stop_shouldDrainBufferedHits() {
+        List<EndpointHit> persisted = Collections.synchronizedList(new ArrayList<>());
+        BufferedHitWriter writer = writer(100, 1_000, 10_000, persisted::addAll);
+        writer.start();
+
+        writer.write(hits(25));
+        writer.stop();
+
+        assertEquals(25, persisted.size());
+    }
+
+    @Test
+    void stop_shouldPersistEveryAcknowledgedHit_whenWritesRaceShutdown() throws InterruptedException {
+        List<EndpointHit> persisted = Collections.synchronizedList(new ArrayList<>());
+        BufferedHitWriter writer = writer(100_000, 100, 10_000, persisted::addAll);
+        writer.start();
+        AtomicInteger acknowledged = new AtomicInteger();
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            writers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (true) {
+                        writer.write(hits(1));
+                        acknowledged.incrementAndGet();
+                    }
+                } catch (TooManyRequestsException e) {
+                    // stopped
+                }
+            }));
+        }
+
+        Thread.sleep(50);
+        writer.stop();
+        for (Thread thread : writers) {
+            thread.join();
+        }
+
+        assertEquals(acknowledged.get(), persisted.size());
+    }
+
+    @Test
+    void stop_shouldCountAbandonedHits_whenDrainTimesOut() {
+        BufferedHitWriter writer = writer(100, 10, 200, batch -> {
+            throw new IllegalStateException("database unavailable");
+        });
+        writer.start();
+
+        writer.write(hits(25));
+        writer.stop();
+
+        assertEquals(25, registry.get("stats.ingest.buffer.dropped").counter().count());
+    }
+
+    private BufferedHitWriter writer(int capacity, int flushSize, long shutdownTimeoutMs,
+                                     Consumer<List<EndpointHit>> persist) {
+        HitPersister persister = new HitPersister(null, null, List.of(), List.of()) {
+            @Override
+            public void persist(List<EndpointHit> hits) {
+                persist.accept(List.copyOf(hits));
+            }
+        };
+        return new BufferedHitWriter(persister, registry, capacity, flushSize, 50, 10, shutdownTimeoutMs, 20, 40);
+    }
+
+    private static List<EndpointHit> hits(int count) {
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            hits.add(EndpointHit.builder()
+                    .app("ewm")
+                    .uri("/events/" + (i % 3))
+                    .ip(IpAddressUtils.toBytes("10.0.0." + i))
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        }
+        return hits;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
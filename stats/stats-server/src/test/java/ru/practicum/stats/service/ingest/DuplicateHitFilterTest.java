@@ -0,0 +1,90 @@
+package ru.practicum.stats.service.ingest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.service.metrics.StatsMetrics;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DuplicateHitFilterTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0, 1);
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void filter_shouldDropRepeatsWithinWindow_andKeepOtherVisitorsAndSlots() {
+        DuplicateHitFilter filter = filter(Duration.ofMinutes(1), 1_000);
+
+        List<EndpointHit> first = filter.filter(List.of(
+                hit("/events/1", "10.0.0.1", NOW),
+                hit("/events/1", "10.0.0.1", NOW.plusSeconds(5)),
+                hit("/events/1", "10.0.0.2", NOW),
+                hit("/events/2", "10.0.0.1", NOW)));
+        List<EndpointHit> second = filter.filter(List.of(
+                hit("/events/2", "10.0.0.1", NOW.plusSeconds(30)),
+                hit("/events/2", "10.0.0.1", NOW.plusMinutes(2))));
+
+        assertEquals(3, first.size());
+        assertEquals(1, second.size());
+        assertEquals(NOW.plusMinutes(2), second.get(0).getTimestamp());
+    }
+
+    @Test
+    void filter_shouldReturnSameList_whenDisabled() {
+        DuplicateHitFilter filter = filter(Duration.ZERO, 1_000);
+        List<EndpointHit> hits = List.of(hit("/events/1", "10.0.0.1", NOW), hit("/events/1", "10.0.0.1", NOW));
+
+        assertSame(hits, filter.filter(hits));
+    }
+
+    @Test
+    void filter_shouldRotateEarly_whenCapacityIsReached() {
+        DuplicateHitFilter filter = filter(Duration.ofHours(1), 100);
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            hits.add(hit("/events/" + i, "10.0.0.1", NOW));
+        }
+
+        assertEquals(1_000, filter.filter(hits).size());
+        assertEquals(0, filter.filter(hits.subList(990, 1_000)).size());
+        assertTrue(registry.get("stats.ingest.dedup.rotations").tag("reason", "full").counter().count() >= 4);
+    }
+
+    @Test
+    void forget_shouldLetRetriesOfUnwrittenHitsThrough_andKeepOthersSeen() {
+        DuplicateHitFilter filter = filter(Duration.ofMinutes(1), 16);
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            hits.add(hit("/events/" + i, "10.0.0.1", NOW));
+        }
+        filter.filter(hits);
+
+        filter.forget(hits.subList(0, 6));
+
+        assertEquals(hits.subList(0, 6), filter.filter(hits));
+    }
+
+    private DuplicateHitFilter filter(Duration window, int capacity) {
+        return new DuplicateHitFilter(new StatsMetrics(registry, "direct"), window, capacity);
+    }
+
+    private static EndpointHit hit(String uri, String ip, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .app("ewm")
+                .uri(uri)
+                .ip(IpAddressUtils.toBytes(ip))
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.stats.service.ingest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.IngestCheckpointRepository;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.utils.IpAddressUtils;
+import ru.practicum.stats.wal.HitLog;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "stats.ingest.mode=wal",
+        "stats.ingest.wal.segment-size=4KB",
+        "stats.ingest.wal.load-batch-size=10",
+        "stats.ingest.wal.poll-interval-ms=20"
+})
+public class WalHitWriterTest {
+
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    private HitWriter hitWriter;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @Autowired
+    private IngestCheckpointRepository checkpointRepository;
+
+    @DynamicPropertySource
+    static void walDirectory(DynamicPropertyRegistry registry) {
+        registry.add("stats.ingest.wal.dir", () -> directory.toString());
+    }
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void write_shouldLoadLoggedHitsAndAdvanceCheckpoint() {
+        assertInstanceOf(WalHitWriter.class, hitWriter);
+        long checkpoint = checkpointRepository.find("hit-log");
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            hits.add(EndpointHit.builder()
+                    .app("ewm")
+                    .uri("/events/" + (i % 3))
+                    .ip(IpAddressUtils.toBytes("10.0.0." + i))
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        }
+
+        hitWriter.write(hits.subList(0, 5));
+        hitWriter.write(hits.subList(5, 200));
+
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertEquals(200, repository.count()));
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertTrue(HitLog.segmentOf(checkpointRepository.find("hit-log"))
+                        > HitLog.segmentOf(checkpoint)));
+    }
+}
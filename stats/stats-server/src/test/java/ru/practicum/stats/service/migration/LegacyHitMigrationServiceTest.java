@@ -0,0 +1,96 @@
+package ru.practicum.stats.service.migration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.dto.ViewStats;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.repository.migration.LegacyHitRepository;
+import ru.practicum.stats.service.StatsService;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "stats.migration.chunk-size=4")
+public class LegacyHitMigrationServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 10, 12, 0, 0);
+    private static final List<String> IPS = List.of("10.0.0.1", "10.0.0.2", "2001:db8::1", "2001:DB8:0::1", "garbage",
+            "unknown");
+
+    @Autowired
+    private LegacyHitMigrationService migrationService;
+
+    @Autowired
+    private LegacyHitRepository legacyRepository;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private StatsDictionaryService dictionary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void migrateIfPresent_shouldMoveLegacyRowsAndKeepEmptiedTable() {
+        jdbcTemplate.execute("CREATE TABLE stats (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "app VARCHAR(55) NOT NULL, uri VARCHAR(100) NOT NULL, ip VARCHAR(30) NOT NULL, "
+                + "created TIMESTAMP WITHOUT TIME ZONE NOT NULL)");
+        for (int i = 0; i < 10; i++) {
+            jdbcTemplate.update("INSERT INTO stats (app, uri, ip, created) VALUES (?, ?, ?, ?)",
+                    "ewm-main-service", "/events/" + (i % 3 == 0 ? "legacy" : "2"), "10.0.0." + (i % 5),
+                    Timestamp.valueOf(BASE.plusMinutes(i)));
+        }
+
+        migrationService.migrateIfPresent();
+
+        assertTrue(legacyRepository.exists());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats", Long.class));
+        assertEquals(10, repository.count());
+        assertEquals(List.of(
+                new ViewStats("ewm-main-service", "/events/2", 5L),
+                new ViewStats("ewm-main-service", "/events/legacy", 4L)), uniqueStats("/events/legacy", "/events/2"));
+    }
+
+    @Test
+    void migrateIfPresent_shouldConvertTextIpColumnToBinary() {
+        jdbcTemplate.execute("DROP TABLE stats_hit");
+        jdbcTemplate.execute("CREATE TABLE stats_hit (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "app_id INTEGER NOT NULL, uri_id INTEGER NOT NULL, ip VARCHAR(30) NOT NULL, "
+                + "created TIMESTAMP WITHOUT TIME ZONE NOT NULL)");
+        int appId = dictionary.appId("ewm-main-service");
+        int uriId = dictionary.uriId("/events/ip");
+        for (int i = 0; i < 10; i++) {
+            jdbcTemplate.update("INSERT INTO stats_hit (app_id, uri_id, ip, created) VALUES (?, ?, ?, ?)",
+                    appId, uriId, IPS.get(i % IPS.size()), Timestamp.valueOf(BASE.plusMinutes(i)));
+        }
+
+        migrationService.migrateIfPresent();
+
+        assertFalse(legacyRepository.hasTextIp());
+        assertEquals(10, repository.count());
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/ip", 5L)), uniqueStats("/events/ip"));
+    }
+
+    private List<ViewStats> uniqueStats(String... uris) {
+        return statsService.getStats(BASE, BASE.plusHours(1), List.of(uris), true, false);
+    }
+}
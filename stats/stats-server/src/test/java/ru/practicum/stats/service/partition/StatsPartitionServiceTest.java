@@ -0,0 +1,82 @@
+package ru.practicum.stats.service.partition;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.service.bitmap.StatsBitmapService;
+import ru.practicum.stats.service.ingest.HitPersister;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "stats.partition.retention-days=30",
+        "stats.partition.delete-chunk-size=7",
+        "stats.bitmap.enabled=true"
+})
+public class StatsPartitionServiceTest {
+
+    @Autowired
+    private StatsPartitionService partitionService;
+
+    @Autowired
+    private HitPersister persister;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @Autowired
+    private StatsBitmapService bitmapService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        jdbcTemplate.update("DELETE FROM stats_rollup_minute");
+        jdbcTemplate.update("DELETE FROM stats_rollup_hour");
+        jdbcTemplate.update("DELETE FROM stats_bitmap_day");
+        jdbcTemplate.update("DELETE FROM stats_visitor");
+    }
+
+    @Test
+    void maintain_shouldDeleteHitsRollupsAndBitmapsPastRetention() {
+        LocalDateTime now = LocalDateTime.now();
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            hits.add(hit("10.0.0." + i, now.minusDays(40).plusMinutes(i)));
+        }
+        for (int i = 0; i < 5; i++) {
+            hits.add(hit("10.0.0." + i, now.minusDays(1).plusMinutes(i)));
+        }
+        persister.persist(hits);
+        bitmapService.flush();
+
+        partitionService.maintain();
+
+        assertEquals(5, repository.count());
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT SUM(hits) FROM stats_rollup_minute", Long.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_bitmap_day WHERE bucket < ?",
+                Long.class, now.minusDays(30)));
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_visitor", Long.class));
+        assertEquals(5, bitmapService.countUnique(now.minusDays(50), now, null).get(0).hits());
+    }
+
+    private static EndpointHit hit(String ip, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .app("ewm")
+                .uri("/events/1")
+                .ip(IpAddressUtils.toBytes(ip))
+                .timestamp(timestamp)
+                .build();
+    }
+}
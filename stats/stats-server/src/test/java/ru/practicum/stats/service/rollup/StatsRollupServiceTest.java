@@ -0,0 +1,95 @@
+package ru.practicum.stats.service.rollup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+import ru.practicum.stats.service.ingest.HitPersister;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class StatsRollupServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 1, 0, 0, 0);
+    private static final Comparator<HitCount> ORDER = Comparator.comparingInt(HitCount::appId)
+            .thenComparingInt(HitCount::uriId);
+
+    @Autowired
+    private HitPersister persister;
+
+    @Autowired
+    private StatsRollupService rollupService;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @Autowired
+    private StatsDictionaryService dictionary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        jdbcTemplate.update("DELETE FROM stats_rollup_minute");
+        jdbcTemplate.update("DELETE FROM stats_rollup_hour");
+
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            hits.add(EndpointHit.builder()
+                    .app(i % 7 == 0 ? "other" : "ewm")
+                    .uri("/events/" + random.nextInt(5))
+                    .ip(IpAddressUtils.toBytes("10.0.0." + random.nextInt(20)))
+                    .timestamp(BASE.plusSeconds(random.nextInt(6 * 3600)))
+                    .build());
+        }
+        persister.persist(hits);
+    }
+
+    @Test
+    void findStats_shouldMatchRawCounts_forArbitraryRanges() {
+        for (int i = 0; i < 30; i++) {
+            LocalDateTime start = BASE.minusMinutes(10).plusSeconds(random.nextInt(7 * 3600));
+            LocalDateTime end = start.plusSeconds(random.nextInt(4 * 3600));
+            List<Integer> uriIds = i % 2 == 0 ? null : dictionary.findUriIds(List.of("/events/1", "/events/3"));
+
+            List<HitCount> expected = sorted(repository.findStatsByCriteria(start, end, uriIds, false));
+            List<HitCount> actual = sorted(rollupService.findStats(start, end, uriIds));
+
+            assertEquals(expected, actual, "range " + start + " - " + end);
+        }
+    }
+
+    @Test
+    void backfillIfEmpty_shouldRebuildRollupsFromRawHits() {
+        LocalDateTime start = BASE.plusMinutes(7).plusSeconds(13);
+        LocalDateTime end = BASE.plusHours(5).plusSeconds(42);
+        List<HitCount> before = sorted(rollupService.findStats(start, end, null));
+
+        jdbcTemplate.update("DELETE FROM stats_rollup_minute");
+        jdbcTemplate.update("DELETE FROM stats_rollup_hour");
+        rollupService.backfillIfEmpty();
+
+        assertEquals(before, sorted(rollupService.findStats(start, end, null)));
+    }
+
+    private static List<HitCount> sorted(List<HitCount> stats) {
+        return stats.stream().sorted(ORDER).toList();
+    }
+}
@@ -0,0 +1,86 @@
+package ru.practicum.stats.service.sketch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.stats.dto.ViewStats;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.service.dictionary.StatsDictionaryService;
+import ru.practicum.stats.service.ingest.HitPersister;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class StatsSketchServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 4, 1, 0, 0, 0);
+
+    @Autowired
+    private HitPersister persister;
+
+    @Autowired
+    private StatsSketchService sketchService;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @Autowired
+    private StatsDictionaryService dictionary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        sketchService.flush();
+        repository.deleteAll();
+        jdbcTemplate.update("DELETE FROM stats_hll_hour");
+
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 6000; i++) {
+            hits.add(EndpointHit.builder()
+                    .app("ewm")
+                    .uri("/events/" + (i % 2))
+                    .ip(IpAddressUtils.toBytes("10.0." + (i % 1500 / 256) + "." + (i % 1500 % 256)))
+                    .timestamp(BASE.plusSeconds(i * 3L))
+                    .build());
+        }
+        persister.persist(hits);
+    }
+
+    @Test
+    void estimateUnique_shouldBeCloseToExactCount_withUnflushedAndFlushedSketches() {
+        LocalDateTime start = BASE.plusMinutes(17).plusSeconds(5);
+        LocalDateTime end = BASE.plusHours(4).plusMinutes(3);
+
+        assertClose(start, end);
+        sketchService.flush();
+        assertClose(start, end);
+    }
+
+    private void assertClose(LocalDateTime start, LocalDateTime end) {
+        Map<String, Long> exact = toMap(dictionary.decode(repository.findStatsByCriteria(start, end, null, true)));
+        Map<String, Long> approximate = toMap(dictionary.decode(sketchService.estimateUnique(start, end, null)));
+
+        assertEquals(exact.keySet(), approximate.keySet());
+        exact.forEach((uri, hits) -> {
+            double error = Math.abs(approximate.get(uri) - hits) / (double) hits;
+            assertTrue(error < 0.05, uri + ": exact " + hits + ", approximate " + approximate.get(uri));
+        });
+    }
+
+    private static Map<String, Long> toMap(List<ViewStats> stats) {
+        return stats.stream().collect(Collectors.toMap(ViewStats::getUri, ViewStats::getHits));
+    }
+}
@@ -0,0 +1,142 @@
+package ru.practicum.stats.service.snapshot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.exception.BadRequestException;
+import ru.practicum.stats.exception.TooManyRequestsException;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.service.ingest.HitPersister;
+import ru.practicum.stats.service.sketch.StatsSketchService;
+import ru.practicum.stats.service.top.StatsTopService;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stats-snapshot",
+        "stats.snapshot.restore-enabled=true"
+})
+public class StatsSnapshotServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 4, 1, 0, 0, 0);
+    private static final LocalDateTime START = BASE.minusDays(1);
+    private static final LocalDateTime END = BASE.plusDays(30);
+
+    @Autowired
+    private StatsSnapshotService snapshotService;
+
+    @Autowired
+    private HitPersister persister;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @Autowired
+    private StatsSketchService sketchService;
+
+    @Autowired
+    private StatsTopService topService;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            hits.add(EndpointHit.builder()
+                    .app(i % 5 == 0 ? "other" : "ewm")
+                    .uri("/events/" + (i % 7))
+                    .ip(i % 11 == 0
+                            ? IpAddressUtils.toBytes("2001:db8::" + Integer.toHexString(i % 300))
+                            : IpAddressUtils.toBytes("10.2." + (i % 200 / 100) + "." + (i % 100)))
+                    .timestamp(BASE.plusSeconds(i * 397L).plusNanos(i % 3 * 1_000L))
+                    .build());
+        }
+        persister.persist(hits);
+        sketchService.flush();
+        topService.flush();
+    }
+
+    @Test
+    void restore_shouldReloadExportedHits() throws IOException {
+        List<HitCount> total = counts(false);
+        List<HitCount> unique = counts(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(3000, snapshotService.export(START, END, out));
+        assertTrue(out.size() < 3000 * 12, "snapshot takes " + out.size() + " bytes");
+        assertThrows(BadRequestException.class, () -> snapshotService.restore(new ByteArrayInputStream(out.toByteArray())));
+
+        repository.deleteAll();
+
+        assertEquals(3000, snapshotService.restore(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(total, counts(false));
+        assertEquals(unique, counts(true));
+        assertEquals(1, repository.findStatsByCriteria(BASE, BASE, null, false).size());
+    }
+
+    @Test
+    void restore_shouldLoadNothing_whenSnapshotIsTruncated() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshotService.export(START, END, out);
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() / 2);
+        repository.deleteAll();
+
+        assertThrows(IOException.class, () -> snapshotService.restore(new ByteArrayInputStream(truncated)));
+        assertEquals(0, repository.count());
+    }
+
+    @Test
+    void restore_shouldTurnAwayHitsWhileLoading() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshotService.export(START, END, out);
+        repository.deleteAll();
+        AtomicReference<Throwable> ingest = new AtomicReference<>();
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(out.toByteArray())) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (ingest.get() == null) {
+                    ingest.set(CompletableFuture.runAsync(() -> persister.persist(List.of(EndpointHit.builder()
+                                    .app("ewm")
+                                    .uri("/events/0")
+                                    .ip(IpAddressUtils.toBytes("10.9.9.9"))
+                                    .timestamp(BASE)
+                                    .build())))
+                            .handle((ok, e) -> e)
+                            .join());
+                }
+                return super.read(b, off, len);
+            }
+        };
+
+        assertEquals(3000, snapshotService.restore(in));
+        assertTrue(ingest.get() instanceof CompletionException
+                && ingest.get().getCause() instanceof TooManyRequestsException, "ingest got " + ingest.get());
+        assertEquals(3000, repository.count());
+    }
+
+    private List<HitCount> counts(boolean unique) {
+        return repository.findStatsByCriteria(START, END, null, unique).stream()
+                .sorted(Comparator.comparing(HitCount::appId).thenComparing(HitCount::uriId))
+                .toList();
+    }
+}
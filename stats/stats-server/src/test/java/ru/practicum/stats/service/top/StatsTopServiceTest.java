@@ -0,0 +1,67 @@
+package ru.practicum.stats.service.top;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.repository.HitCount;
+import ru.practicum.stats.repository.StatsRepository;
+import ru.practicum.stats.repository.StatsTopRepository;
+import ru.practicum.stats.service.ingest.HitPersister;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class StatsTopServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 5, 1, 0, 0, 0);
+
+    @Autowired
+    private HitPersister persister;
+
+    @Autowired
+    private StatsTopService topService;
+
+    @Autowired
+    private StatsTopRepository topRepository;
+
+    @Autowired
+    private StatsRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        topService.flush();
+        repository.deleteAll();
+        topRepository.deleteAll();
+
+        Random random = new Random(7);
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            hits.add(EndpointHit.builder()
+                    .app("ewm")
+                    .uri("/events/" + (int) Math.floor(Math.pow(random.nextDouble(), 2) * 40))
+                    .ip(IpAddressUtils.toBytes("10.0.0.1"))
+                    .timestamp(BASE.plusMinutes(random.nextInt(4 * 24 * 60)))
+                    .build());
+        }
+        persister.persist(hits);
+    }
+
+    @Test
+    void findTop_shouldMatchExactCounts_beforeAndAfterFlush() {
+        LocalDateTime start = BASE.plusHours(5);
+        LocalDateTime end = BASE.plusDays(3).plusHours(7).plusMinutes(59).plusSeconds(59);
+
+        List<HitCount> exact = repository.findStatsByCriteria(start, end, null, false).subList(0, 5);
+        assertEquals(exact, topService.findTop(start, end, 5));
+        topService.flush();
+        assertEquals(exact, topService.findTop(start, end, 5));
+    }
+}
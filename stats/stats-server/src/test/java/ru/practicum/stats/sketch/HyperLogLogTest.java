@@ -0,0 +1,57 @@
+package ru.practicum.stats.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HyperLogLogTest {
+
+    @Test
+    void estimate_shouldStayWithinErrorBound() {
+        for (int cardinality : new int[]{10, 1_000, 50_000, 500_000}) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < cardinality; i++) {
+                sketch.add("10." + (i >> 16) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff));
+            }
+            double error = Math.abs(sketch.estimate() - cardinality) / (double) cardinality;
+            assertTrue(error < 0.05, "cardinality " + cardinality + " error " + error);
+        }
+    }
+
+    @Test
+    void merge_shouldEstimateUnion() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        for (int i = 0; i < 20_000; i++) {
+            left.add("ip-" + i);
+            right.add("ip-" + (i + 10_000));
+        }
+
+        left.merge(right);
+
+        double error = Math.abs(left.estimate() - 30_000) / 30_000.0;
+        assertTrue(error < 0.05, "error " + error);
+    }
+
+    @Test
+    void toBytes_shouldRoundTripSparseAndDenseSketches() {
+        HyperLogLog sparse = new HyperLogLog();
+        sparse.add("10.0.0.1");
+        sparse.add("10.0.0.2");
+        HyperLogLog dense = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            dense.add("ip-" + i);
+        }
+
+        byte[] sparseBytes = sparse.toBytes();
+
+        assertTrue(sparseBytes.length < 32);
+        assertEquals(sparse.estimate(), HyperLogLog.fromBytes(sparseBytes).estimate());
+        assertEquals(dense.estimate(), HyperLogLog.fromBytes(dense.toBytes()).estimate());
+    }
+
+    @Test
+    void merge_shouldRejectDifferentPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(12).merge(new HyperLogLog(10)));
+    }
+}
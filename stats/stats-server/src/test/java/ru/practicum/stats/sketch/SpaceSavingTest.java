@@ -0,0 +1,70 @@
+package ru.practicum.stats.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpaceSavingTest {
+
+    @Test
+    void top_shouldFindHeavyHittersWithBoundedOverestimate() {
+        SpaceSaving summary = new SpaceSaving(64);
+        Map<Long, Long> exact = new HashMap<>();
+        offerSkewed(summary, exact, new Random(1), 200_000);
+
+        assertTopMatches(exact, summary.top(10));
+    }
+
+    @Test
+    void merge_shouldMatchSingleSummaryOverBothStreams() {
+        SpaceSaving left = new SpaceSaving(64);
+        SpaceSaving right = new SpaceSaving(64);
+        Map<Long, Long> exact = new HashMap<>();
+        offerSkewed(left, exact, new Random(2), 100_000);
+        offerSkewed(right, exact, new Random(3), 100_000);
+
+        left.merge(SpaceSaving.fromBytes(right.toBytes()));
+
+        assertTopMatches(exact, left.top(10));
+    }
+
+    @Test
+    void offer_shouldCountExactly_whenKeysFitIntoCapacity() {
+        SpaceSaving summary = new SpaceSaving(8);
+        summary.offer(1, 5);
+        summary.offer(2, 3);
+        summary.offer(1, 2);
+
+        assertEquals(List.of(new SpaceSaving.Entry(1, 7, 0), new SpaceSaving.Entry(2, 3, 0)), summary.top(5));
+    }
+
+    private static void offerSkewed(SpaceSaving summary, Map<Long, Long> exact, Random random, int n) {
+        for (int i = 0; i < n; i++) {
+            long key = random.nextDouble() < 0.7
+                    ? (long) (-Math.log(1 - random.nextDouble()) * 8)
+                    : 1_000 + random.nextInt(100_000);
+            summary.offer(key, 1);
+            exact.merge(key, 1L, Long::sum);
+        }
+    }
+
+    private static void assertTopMatches(Map<Long, Long> exact, List<SpaceSaving.Entry> top) {
+        Set<Long> expected = exact.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                .limit(top.size())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        assertEquals(expected, top.stream().map(SpaceSaving.Entry::key).collect(Collectors.toSet()));
+        for (SpaceSaving.Entry entry : top) {
+            long actual = exact.get(entry.key());
+            assertTrue(entry.count() >= actual && entry.count() - entry.error() <= actual, entry.toString());
+        }
+    }
+}
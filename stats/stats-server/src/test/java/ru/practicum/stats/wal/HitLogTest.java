@@ -0,0 +1,115 @@
+package ru.practicum.stats.wal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.stats.entity.EndpointHit;
+import ru.practicum.stats.utils.IpAddressUtils;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HitLogTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 1, 10, 15, 30, 123_456_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_shouldReturnAppendedHitsAcrossSegments() throws Exception {
+        HitLog log = HitLog.open(directory, 1024, 0);
+        List<EndpointHit> hits = hits(0, 100);
+        log.sync(log.append(hits.subList(0, 40)));
+        log.sync(log.append(hits.subList(40, 100)));
+
+        List<EndpointHit> read = new ArrayList<>();
+        HitLogReader reader = log.reader(0);
+        while (reader.read(7, read) > 0) {
+            assertTrue(read.size() <= 100);
+        }
+
+        assertTrue(log.segmentCount() > 1);
+        assertHits(hits, read);
+        assertEquals(log.writePosition(), reader.position());
+    }
+
+    @Test
+    void open_shouldReplayFromCheckpointAndSkipTornTail() throws Exception {
+        HitLog first = HitLog.open(directory, 4096, 0);
+        List<EndpointHit> hits = hits(0, 30);
+        first.append(hits.subList(0, 10));
+        List<EndpointHit> loaded = new ArrayList<>();
+        HitLogReader loader = first.reader(0);
+        loader.read(10, loaded);
+        long checkpoint = loader.position();
+        long end = first.append(hits.subList(10, 20));
+        first.close();
+        tearRecordAt(first, end);
+
+        HitLog second = HitLog.open(directory, 4096, checkpoint);
+        second.release(checkpoint);
+        second.append(hits.subList(20, 30));
+
+        List<EndpointHit> replayed = new ArrayList<>();
+        second.reader(checkpoint).read(100, replayed);
+
+        assertHits(hits.subList(10, 30), replayed);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void release_shouldDeleteSegmentsBeforeCheckpoint() throws Exception {
+        HitLog log = HitLog.open(directory, 512, 0);
+        log.append(hits(0, 50));
+        List<EndpointHit> read = new ArrayList<>();
+        HitLogReader reader = log.reader(0);
+        reader.read(50, read);
+
+        log.release(reader.position());
+
+        assertEquals(1, log.segmentCount());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    private static void tearRecordAt(HitLog log, long position) throws Exception {
+        try (RandomAccessFile file = new RandomAccessFile(log.pathOf(HitLog.segmentOf(position)).toFile(), "rw")) {
+            file.seek(HitLog.offsetOf(position));
+            file.writeInt(80);
+            file.writeInt(12345);
+        }
+    }
+
+    private static List<EndpointHit> hits(int from, int to) {
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            hits.add(EndpointHit.builder()
+                    .app("ewm")
+                    .uri("/events/" + i)
+                    .ip(IpAddressUtils.toBytes(i % 2 == 0 ? "10.0.0." + i : "2001:db8::" + i))
+                    .timestamp(NOW.plusSeconds(i))
+                    .build());
+        }
+        return hits;
+    }
+
+    private static void assertHits(List<EndpointHit> expected, List<EndpointHit> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getApp(), actual.get(i).getApp());
+            assertEquals(expected.get(i).getUri(), actual.get(i).getUri());
+            assertArrayEquals(expected.get(i).getIp(), actual.get(i).getIp());
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+        }
+    }
+}